@@ -25,16 +25,31 @@ import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.KitManager;
 import net.foulest.kitpvp.kits.type.*;
+import net.foulest.kitpvp.leaderboard.Leaderboards;
 import net.foulest.kitpvp.listeners.DeathListener;
 import net.foulest.kitpvp.listeners.EventListener;
 import net.foulest.kitpvp.listeners.FlaskListener;
 import net.foulest.kitpvp.listeners.kits.*;
+import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.region.Spawn;
+import net.foulest.kitpvp.storage.AutoSaveScheduler;
+import net.foulest.kitpvp.storage.EconomyJournal;
+import net.foulest.kitpvp.storage.OfflineProfileService;
+import net.foulest.kitpvp.storage.PersistenceQueue;
+import net.foulest.kitpvp.storage.ProfileBatchLoader;
+import net.foulest.kitpvp.storage.ProfileFallbackCache;
+import net.foulest.kitpvp.storage.ProfileLeases;
+import net.foulest.kitpvp.storage.ProfileSnapshotCache;
+import net.foulest.kitpvp.storage.ProfileStagingCache;
+import net.foulest.kitpvp.storage.StorageCircuitBreaker;
+import net.foulest.kitpvp.storage.StorageExecutor;
+import net.foulest.kitpvp.storage.StorageMetrics;
 import net.foulest.kitpvp.util.DatabaseUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.PlaceholderUtil;
 import net.foulest.kitpvp.util.Settings;
 import net.foulest.kitpvp.util.command.CommandFramework;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.Bukkit;
 import org.bukkit.Difficulty;
 import org.bukkit.entity.Player;
@@ -64,6 +79,11 @@ public class KitPvP extends JavaPlugin {
      */
     private CommandFramework framework;
 
+    /**
+     * Whether the database was loaded and the plugin's storage started.
+     */
+    private boolean storageStarted;
+
     @Override
     public void onLoad() {
         // Sets the instance.
@@ -93,7 +113,50 @@ public class KitPvP extends JavaPlugin {
 
         // Sets up the database instance.
         MessageUtil.log(Level.INFO, "Loading Database...");
-        DatabaseUtil.loadDatabase();
+        if (!DatabaseUtil.loadDatabase()) {
+            MessageUtil.log(Level.SEVERE, "Disabling the plugin, as the database couldn't be loaded.");
+            Bukkit.getPluginManager().disablePlugin(this);
+            return;
+        }
+        storageStarted = true;
+
+        // Opens the economy journal, replaying it if the server crashed.
+        MessageUtil.log(Level.INFO, "Opening Economy Journal...");
+        EconomyJournal.open();
+        DatabaseUtil.deleteExpiredWrites();
+
+        // Starts the threads running database work.
+        MessageUtil.log(Level.INFO, "Starting Storage Executor...");
+        StorageExecutor.start();
+        StorageCircuitBreaker.start();
+        StorageMetrics.start();
+
+        // Starts the write-behind persistence queue.
+        MessageUtil.log(Level.INFO, "Starting Persistence Queue...");
+        PersistenceQueue.start();
+
+        // Starts renewing the leases on online players' data.
+        ProfileLeases.start();
+
+        // Starts the batched profile loader.
+        MessageUtil.log(Level.INFO, "Starting Profile Loader...");
+        ProfileBatchLoader.start();
+        ProfileSnapshotCache.start();
+
+        // Starts the staggered autosave task.
+        MessageUtil.log(Level.INFO, "Starting Autosave...");
+        AutoSaveScheduler.start();
+
+        // Starts publishing player data snapshots for other threads.
+        PlayerDataManager.start();
+
+        // Starts the timer wheel running per-player timers.
+        TimerWheel.start();
+
+        // Loads the leaderboards.
+        MessageUtil.log(Level.INFO, "Loading Leaderboards...");
+        Leaderboards.load();
+        Leaderboards.start();
 
         // Loads the plugin's listeners.
         MessageUtil.log(Level.INFO, "Loading Listeners...");
@@ -117,6 +180,7 @@ public class KitPvP extends JavaPlugin {
         // Loads the spawn.
         MessageUtil.log(Level.INFO, "Loading Spawn...");
         Spawn.load();
+        Regions.start();
 
         // Checks if the world difficulty is set to Peaceful.
         if (Spawn.getLocation().getWorld().getDifficulty() == Difficulty.PEACEFUL) {
@@ -134,10 +198,31 @@ public class KitPvP extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        // Only closes the connection pool if the database never loaded.
+        if (!storageStarted) {
+            DatabaseUtil.closeDbcp();
+            return;
+        }
+
         // Unloads the kits saved in the Kit Manager.
         MessageUtil.log(Level.INFO, "Unloading Kits...");
         KitManager.getKits().clear();
 
+        // Stops the staggered autosave task.
+        AutoSaveScheduler.stop();
+        PlayerDataManager.stop();
+        TimerWheel.stop();
+        StorageMetrics.stop();
+
+        // Stops updating the leaderboards.
+        Leaderboards.stop();
+
+        // Stops reloading the safe zones.
+        Regions.stop();
+
+        // Leaves degraded mode if the database has recovered, so the saves below aren't dropped.
+        StorageCircuitBreaker.probeNow();
+
         // Saves online players' data.
         MessageUtil.log(Level.INFO, "Saving Player Data...");
         for (Player player : Bukkit.getOnlinePlayers()) {
@@ -147,6 +232,34 @@ public class KitPvP extends JavaPlugin {
             }
         }
 
+        // Discards the cached offline profiles.
+        OfflineProfileService.shutdown();
+
+        // Stops the batched profile loader.
+        MessageUtil.log(Level.INFO, "Stopping Profile Loader...");
+        ProfileBatchLoader.shutdown();
+        ProfileStagingCache.clear();
+
+        // Flushes the write-behind persistence queue.
+        MessageUtil.log(Level.INFO, "Flushing Persistence Queue...");
+        PersistenceQueue.shutdown(Settings.writeBehindFlushTimeout * 1000L);
+        StorageCircuitBreaker.stop();
+
+        // Writes the recently active profiles for the next startup.
+        ProfileSnapshotCache.stop();
+        ProfileFallbackCache.clear();
+
+        // Hands the online players' data over to other servers.
+        ProfileLeases.shutdown();
+
+        // Stops the threads running database work.
+        MessageUtil.log(Level.INFO, "Stopping Storage Executor...");
+        StorageExecutor.shutdown(1000L);
+
+        // Checkpoints and closes the economy journal.
+        MessageUtil.log(Level.INFO, "Closing Economy Journal...");
+        EconomyJournal.close();
+
         // Closes the DBCP connection.
         MessageUtil.log(Level.INFO, "Saving Database...");
         DatabaseUtil.closeDbcp();
@@ -20,6 +20,7 @@ package net.foulest.kitpvp.cmds;
 import lombok.Data;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.storage.OfflineProfileService;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
@@ -155,30 +156,30 @@ public class BountyCmd {
             }
         }
 
+        // Remembers the original benefactor before their bounty is replaced.
+        UUID previousBenefactor = targetData.getBenefactor();
+
         targetData.addBounty(amount, playerUUID);
         playerData.removeCoins(amount);
 
-        UUID targetBenefactor = targetData.getBenefactor();
-
         // Refund the original benefactor if they set a new bounty on the same player.
-        if (targetBenefactor != null) {
-            Player targetBenefactorPlayer = Bukkit.getPlayer(targetBenefactor);
-            PlayerData targetBenefactorData = PlayerDataManager.getPlayerData(targetBenefactorPlayer);
-
-            if (targetBenefactorPlayer.isOnline()) {
-                MessageUtil.messagePlayer(targetBenefactorPlayer, "&aYour bounty on " + targetName + "'s head has been refunded.");
-                targetBenefactorData.addCoins(targetBounty);
-            } else {
-                // Load player data asynchronously
-                targetBenefactorData.load().thenAccept(success -> {
-                    if (success) {
-                        targetBenefactorData.addCoins(targetBounty);
-                    } else {
-                        String benefactorPlayerName = targetBenefactorPlayer.getName();
-                        MessageUtil.messagePlayer(player, "&cAn error occurred while loading " + benefactorPlayerName + "'s data.");
-                    }
-                });
-            }
+        if (previousBenefactor != null && targetBounty > 0) {
+            String finalTargetName = targetName;
+
+            OfflineProfileService.update(previousBenefactor, profile -> profile.withCoins(profile.getCoins() + targetBounty))
+                    .whenComplete((profile, ex) -> {
+                        if (ex != null) {
+                            ex.printStackTrace();
+                            MessageUtil.messagePlayer(player, "&cAn error occurred while refunding the previous bounty.");
+                            return;
+                        }
+
+                        Player benefactorPlayer = Bukkit.getPlayer(previousBenefactor);
+
+                        if (benefactorPlayer != null) {
+                            MessageUtil.messagePlayer(benefactorPlayer, "&aYour bounty on " + finalTargetName + "'s head has been refunded.");
+                        }
+                    });
         }
     }
 }
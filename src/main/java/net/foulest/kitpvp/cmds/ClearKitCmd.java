@@ -22,7 +22,6 @@ import net.foulest.kitpvp.combattag.CombatTag;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.command.Command;
@@ -57,7 +56,6 @@ public class ClearKitCmd {
             return;
         }
 
-        Location location = player.getLocation();
         PlayerData playerData = PlayerDataManager.getPlayerData(player);
 
         // Handles clearing your own kit.
@@ -67,7 +65,7 @@ public class ClearKitCmd {
                 return;
             }
 
-            if (Regions.isInSafezone(location)) {
+            if (playerData.isInSafezone()) {
                 if (playerData.getActiveKit() == null) {
                     MessageUtil.messagePlayer(player, ConstantUtil.NO_KIT_SELECTED);
                     return;
@@ -20,18 +20,22 @@ package net.foulest.kitpvp.cmds;
 import lombok.Data;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.storage.OfflineProfileService;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.command.Command;
 import net.foulest.kitpvp.util.command.CommandArgs;
 import org.apache.commons.lang.StringUtils;
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Locale;
+import java.util.function.UnaryOperator;
 
 /**
  * Command for managing a player's balance.
@@ -53,18 +57,6 @@ public class EcoCmd {
         }
 
         String target = args.getArgs(1);
-        Player targetPlayer = Bukkit.getPlayer(target);
-
-        // Checks if the target is online.
-        if (targetPlayer == null || !targetPlayer.isOnline()) {
-            MessageUtil.messagePlayer(sender, ConstantUtil.PLAYER_NOT_FOUND);
-            return;
-        }
-
-        String targetName = targetPlayer.getName();
-        PlayerData targetData = PlayerDataManager.getPlayerData(targetPlayer);
-        int targetCoins = targetData.getCoins();
-
         String desiredAmount = args.getArgs(2);
 
         // Checks if the amount is a number.
@@ -82,16 +74,36 @@ public class EcoCmd {
             return;
         }
 
+        String subCommand = args.getArgs(0).toLowerCase(Locale.ROOT);
+
+        // Checks if the sub-command is valid.
+        if (!subCommand.equals("give") && !subCommand.equals("set") && !subCommand.equals("take")) {
+            MessageUtil.messagePlayer(sender, "&cUsage: /eco <give/set/take> <player> <amount>");
+            return;
+        }
+
+        // Checks if the sender has permission to use the sub-command.
+        if (!sender.hasPermission("kitpvp.eco." + subCommand)
+                && !(sender instanceof ConsoleCommandSender)) {
+            MessageUtil.messagePlayer(sender, ConstantUtil.NO_PERMISSION);
+            return;
+        }
+
+        Player targetPlayer = Bukkit.getPlayer(target);
+
+        // Changes the balance of offline players.
+        if (targetPlayer == null || !targetPlayer.isOnline()) {
+            modifyOfflineBalance(sender, target, subCommand, amount);
+            return;
+        }
+
+        String targetName = targetPlayer.getName();
+        PlayerData targetData = PlayerDataManager.getPlayerData(targetPlayer);
+        int targetCoins = targetData.getCoins();
+
         // Handles sub-commands.
-        String subCommand = args.getArgs(0);
-        switch (subCommand.toLowerCase(Locale.ROOT)) {
+        switch (subCommand) {
             case "give":
-                if (!sender.hasPermission("kitpvp.eco.give")
-                        && !(sender instanceof ConsoleCommandSender)) {
-                    MessageUtil.messagePlayer(sender, ConstantUtil.NO_PERMISSION);
-                    return;
-                }
-
                 targetData.setCoins(targetCoins + amount);
                 totalCoins = targetData.getCoins();
 
@@ -105,12 +117,6 @@ public class EcoCmd {
                 break;
 
             case "set":
-                if (!sender.hasPermission("kitpvp.eco.set")
-                        && !(sender instanceof ConsoleCommandSender)) {
-                    MessageUtil.messagePlayer(sender, ConstantUtil.NO_PERMISSION);
-                    return;
-                }
-
                 targetData.setCoins(amount);
                 totalCoins = targetData.getCoins();
 
@@ -123,13 +129,7 @@ public class EcoCmd {
                 MessageUtil.messagePlayer(sender, "&aYou set " + targetName + "'s balance to " + totalCoins + " coins.");
                 break;
 
-            case "take":
-                if (!sender.hasPermission("kitpvp.eco.take")
-                        && !(sender instanceof ConsoleCommandSender)) {
-                    MessageUtil.messagePlayer(sender, ConstantUtil.NO_PERMISSION);
-                    return;
-                }
-
+            default:
                 targetData.removeCoins(amount);
                 totalCoins = targetData.getCoins();
 
@@ -141,10 +141,57 @@ public class EcoCmd {
                 MessageUtil.messagePlayer(targetPlayer, "&aYour balance was set to " + totalCoins + " coins. &7(-" + amount + ")");
                 MessageUtil.messagePlayer(sender, "&aYou set " + targetName + "'s balance to " + totalCoins + " coins. &7(-" + amount + ")");
                 break;
+        }
+    }
+
+    /**
+     * Changes the balance of a player who isn't online.
+     *
+     * @param sender     The command sender.
+     * @param target     The target's name.
+     * @param subCommand The sub-command (give, set or take).
+     * @param amount     The amount of coins.
+     */
+    @SuppressWarnings("deprecation")
+    private static void modifyOfflineBalance(@NotNull CommandSender sender, @NotNull String target,
+                                             @NotNull String subCommand, int amount) {
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(target);
+
+        // Checks if the target has ever joined.
+        if (!offlinePlayer.hasPlayedBefore()) {
+            MessageUtil.messagePlayer(sender, ConstantUtil.PLAYER_NOT_FOUND);
+            return;
+        }
+
+        String targetName = offlinePlayer.getName() == null ? target : offlinePlayer.getName();
+        UnaryOperator<PlayerSnapshot> mutation;
+        String suffix;
+
+        switch (subCommand) {
+            case "give":
+                mutation = profile -> profile.withCoins(Math.max(0, profile.getCoins() + amount));
+                suffix = " &7(+" + amount + ")";
+                break;
+
+            case "set":
+                mutation = profile -> profile.withCoins(Math.max(0, amount));
+                suffix = "";
+                break;
 
             default:
-                MessageUtil.messagePlayer(sender, "&cUsage: /eco <give/set/take> <player> <amount>");
+                mutation = profile -> profile.withCoins(Math.max(0, profile.getCoins() - amount));
+                suffix = " &7(-" + amount + ")";
                 break;
         }
+
+        OfflineProfileService.update(offlinePlayer.getUniqueId(), mutation).whenComplete((profile, ex) -> {
+            if (ex != null) {
+                ex.printStackTrace();
+                MessageUtil.messagePlayer(sender, "&cAn error occurred while loading " + targetName + "'s data.");
+                return;
+            }
+
+            MessageUtil.messagePlayer(sender, "&aYou set " + targetName + "'s balance to " + profile.getCoins() + " coins." + suffix);
+        });
     }
 }
@@ -18,18 +18,35 @@
 package net.foulest.kitpvp.cmds;
 
 import lombok.Data;
+import net.foulest.kitpvp.leaderboard.Leaderboard;
+import net.foulest.kitpvp.leaderboard.LeaderboardEntry;
+import net.foulest.kitpvp.leaderboard.LeaderboardType;
+import net.foulest.kitpvp.leaderboard.Leaderboards;
 import net.foulest.kitpvp.region.Spawn;
+import net.foulest.kitpvp.storage.*;
+import net.foulest.kitpvp.util.DatabaseUtil;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
+import net.foulest.kitpvp.util.TaskUtil;
 import net.foulest.kitpvp.util.command.Command;
 import net.foulest.kitpvp.util.command.CommandArgs;
+import net.foulest.kitpvp.util.timer.TimerWheel;
+import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Main command for KitPvP.
@@ -68,11 +85,218 @@ public class KitPvPCmd {
             Settings.loadSettings();
             Spawn.load();
             MessageUtil.messagePlayer(sender, "&aReloaded the config files successfully.");
+        } else if (subCommand.equalsIgnoreCase("top")) {
+            handleTop(sender, args);
+        } else if (subCommand.equalsIgnoreCase("storage")) {
+            handleStorage(sender, args);
+        } else if (subCommand.equalsIgnoreCase("export")) {
+            handleExport(sender, args);
+        } else if (subCommand.equalsIgnoreCase("import")) {
+            handleImport(sender, args);
         } else {
             handleHelp(sender, args);
         }
     }
 
+    /**
+     * Handles the top command.
+     *
+     * @param sender The command sender
+     * @param args   The command arguments
+     */
+    private static void handleTop(@NotNull CommandSender sender, @NotNull CommandArgs args) {
+        if (!sender.hasPermission("kitpvp.top")
+                && !(sender instanceof ConsoleCommandSender)) {
+            MessageUtil.messagePlayer(sender, ConstantUtil.NO_PERMISSION);
+            return;
+        }
+
+        String typeNames = Arrays.stream(LeaderboardType.values())
+                .map(LeaderboardType::getId)
+                .collect(Collectors.joining("/"));
+
+        if (args.length() != 2) {
+            MessageUtil.messagePlayer(sender, "&cUsage: /kitpvp top <" + typeNames + ">");
+            return;
+        }
+
+        LeaderboardType type = LeaderboardType.fromId(args.getArgs(1));
+
+        if (type == null) {
+            MessageUtil.messagePlayer(sender, "&cUsage: /kitpvp top <" + typeNames + ">");
+            return;
+        }
+
+        Leaderboard leaderboard = Leaderboards.getLeaderboard(type);
+        List<LeaderboardEntry> entries = leaderboard == null ? Collections.emptyList() : leaderboard.getEntries();
+
+        MessageUtil.messagePlayer(sender, "");
+        MessageUtil.messagePlayer(sender, "&eTop " + type.getDisplayName());
+
+        if (entries.isEmpty()) {
+            MessageUtil.messagePlayer(sender, "&7Nobody is ranked yet.");
+        }
+
+        for (LeaderboardEntry entry : entries) {
+            MessageUtil.messagePlayer(sender, "&f" + entry.getRank() + ". &e" + entry.getName() + " &7- &f" + entry.getValue());
+        }
+
+        MessageUtil.messagePlayer(sender, "");
+    }
+
+    /**
+     * Handles the storage command.
+     *
+     * @param sender The command sender
+     * @param args   The command arguments
+     */
+    private static void handleStorage(@NotNull CommandSender sender, @NotNull CommandArgs args) {
+        if (!sender.hasPermission("kitpvp.storage")
+                && !(sender instanceof ConsoleCommandSender)) {
+            MessageUtil.messagePlayer(sender, ConstantUtil.NO_PERMISSION);
+            return;
+        }
+
+        if (args.length() != 1) {
+            MessageUtil.messagePlayer(sender, "&cUsage: /kitpvp storage");
+            return;
+        }
+
+        MessageUtil.messagePlayer(sender, "");
+        MessageUtil.messagePlayer(sender, "&eKitPvP Storage &7(" + (Settings.usingFlatFile ? "SQLite" : "MariaDB") + ")");
+        MessageUtil.messagePlayer(sender, "&fState: " + (StorageCircuitBreaker.isDegraded()
+                ? "&cdegraded" : "&aok") + " &7(" + StorageCircuitBreaker.getTrips() + " outages)");
+        MessageUtil.messagePlayer(sender, "&fExecutor: &e" + StorageExecutor.getQueueDepth() + " &7queued, &e"
+                + StorageExecutor.getActiveThreads() + " &7active, &e" + StorageExecutor.getRejectedTasks() + " &7rejected");
+        MessageUtil.messagePlayer(sender, "&fSaves: &e" + PersistenceQueue.getQueueDepth() + " &7pending, &e"
+                + PersistenceQueue.getBufferedSaves() + " &7buffered, &e" + PersistenceQueue.getFailedWrites()
+                + " &7failed, &e" + PersistenceQueue.getDroppedWrites() + " &7dropped");
+        MessageUtil.messagePlayer(sender, "&fSnapshot cache: &e" + ProfileSnapshotCache.getSize() + " &7profiles, &e"
+                + ProfileSnapshotCache.getHits() + " &7hits, &e" + ProfileSnapshotCache.getOutdated() + " &7outdated");
+        MessageUtil.messagePlayer(sender, "&fTimers: &e" + TimerWheel.getPendingTimers() + " &7pending, &e"
+                + TimerWheel.getDispatchedTimers() + " &7dispatched");
+
+        for (PoolStats pool : DatabaseUtil.getPoolStats()) {
+            MessageUtil.messagePlayer(sender, "&f" + pool.getName() + ": &e" + pool.getActive() + "/" + pool.getMaximum()
+                    + " &7active, &e" + pool.getIdle() + " &7idle, &e" + pool.getWaiting() + " &7waiting");
+        }
+
+        for (StorageOperation operation : StorageOperation.values()) {
+            LatencyStats latency = StorageMetrics.getLatency(operation);
+
+            // Skips operations that haven't run yet.
+            if (latency.getCount() == 0) {
+                continue;
+            }
+
+            MessageUtil.messagePlayer(sender, String.format("&f%s: &e%.1fms &7p50, &e%.1fms &7p99, &e%.1fms &7max (%d calls, %d errors)",
+                    operation.getDisplayName(), latency.getPercentileMillis(50), latency.getPercentileMillis(99),
+                    latency.getMaxMillis(), latency.getCount(), StorageMetrics.getErrors(operation)));
+        }
+
+        MessageUtil.messagePlayer(sender, "");
+    }
+
+    /**
+     * Handles the export command.
+     *
+     * @param sender The command sender
+     * @param args   The command arguments
+     */
+    private static void handleExport(@NotNull CommandSender sender, @NotNull CommandArgs args) {
+        if (!sender.hasPermission("kitpvp.transfer")
+                && !(sender instanceof ConsoleCommandSender)) {
+            MessageUtil.messagePlayer(sender, ConstantUtil.NO_PERMISSION);
+            return;
+        }
+
+        if (args.length() > 2) {
+            MessageUtil.messagePlayer(sender, "&cUsage: /kitpvp export [file]");
+            return;
+        }
+
+        String fileName = args.length() == 2 ? args.getArgs(1)
+                : "players-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".kpx";
+        Path path = getTransferFile(sender, fileName);
+
+        if (path == null) {
+            return;
+        }
+
+        if (!ProfileTransfer.startExport(path, message -> TaskUtil.runTask(() -> MessageUtil.messagePlayer(sender, message)))) {
+            MessageUtil.messagePlayer(sender, "&cAnother export or import is already running.");
+            return;
+        }
+
+        MessageUtil.messagePlayer(sender, "&aExporting player data to " + fileName + "...");
+    }
+
+    /**
+     * Handles the import command.
+     *
+     * @param sender The command sender
+     * @param args   The command arguments
+     */
+    private static void handleImport(@NotNull CommandSender sender, @NotNull CommandArgs args) {
+        if (!sender.hasPermission("kitpvp.transfer")
+                && !(sender instanceof ConsoleCommandSender)) {
+            MessageUtil.messagePlayer(sender, ConstantUtil.NO_PERMISSION);
+            return;
+        }
+
+        if (args.length() != 2) {
+            MessageUtil.messagePlayer(sender, "&cUsage: /kitpvp import <file>");
+            return;
+        }
+
+        // Online players' data would overwrite the imported rows when saved.
+        if (!Bukkit.getOnlinePlayers().isEmpty()) {
+            MessageUtil.messagePlayer(sender, "&cPlayer data can only be imported while no players are online.");
+            return;
+        }
+
+        String fileName = args.getArgs(1);
+        Path path = getTransferFile(sender, fileName);
+
+        if (path == null) {
+            return;
+        }
+
+        if (!Files.isRegularFile(path)) {
+            MessageUtil.messagePlayer(sender, "&cThere is no file named " + fileName + " in the exports folder.");
+            return;
+        }
+
+        if (!ProfileTransfer.startImport(path, message -> TaskUtil.runTask(() -> MessageUtil.messagePlayer(sender, message)))) {
+            MessageUtil.messagePlayer(sender, "&cAnother export or import is already running.");
+            return;
+        }
+
+        MessageUtil.messagePlayer(sender, "&aImporting player data from " + fileName + "...");
+    }
+
+    /**
+     * Gets a file in the exports folder, telling the sender if the name isn't allowed.
+     *
+     * @param sender   The command sender
+     * @param fileName The file name
+     * @return The file, or null if it can't be used.
+     */
+    private static @Nullable Path getTransferFile(@NotNull CommandSender sender, @NotNull String fileName) {
+        try {
+            Path path = ProfileTransfer.getFile(fileName);
+
+            if (path == null) {
+                MessageUtil.messagePlayer(sender, "&cFile names may only contain letters, numbers, dots, dashes and underscores.");
+            }
+            return path;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            MessageUtil.messagePlayer(sender, "&cThe exports folder couldn't be created.");
+            return null;
+        }
+    }
+
     /**
      * Handles the help command.
      *
@@ -87,8 +311,12 @@ public class KitPvPCmd {
         }
 
         // A list of available commands with their usages.
-        List<String> commands = Collections.singletonList(
-                "&f/kitpvp reload &7- Reloads the config."
+        List<String> commands = Arrays.asList(
+                "&f/kitpvp reload &7- Reloads the config.",
+                "&f/kitpvp top <stat> &7- Shows the leaderboards.",
+                "&f/kitpvp storage &7- Shows the storage metrics.",
+                "&f/kitpvp export [file] &7- Exports the player data.",
+                "&f/kitpvp import <file> &7- Imports the player data."
         );
 
         int itemsPerPage = 4;
@@ -20,13 +20,11 @@ package net.foulest.kitpvp.cmds;
 import lombok.Data;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.command.Command;
 import net.foulest.kitpvp.util.command.CommandArgs;
 import net.foulest.kitpvp.util.item.ItemBuilder;
-import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -54,9 +52,8 @@ public class PotionsCmd {
         }
 
         PlayerData playerData = PlayerDataManager.getPlayerData(player);
-        Location location = player.getLocation();
 
-        if (!Regions.isInSafezone(location)) {
+        if (!playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.NOT_IN_SPAWN);
             return;
         }
@@ -18,20 +18,18 @@
 package net.foulest.kitpvp.cmds;
 
 import lombok.Data;
-import net.foulest.kitpvp.KitPvP;
 import net.foulest.kitpvp.combattag.CombatTag;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.region.Spawn;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.command.Command;
 import net.foulest.kitpvp.util.command.CommandArgs;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.Sound;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -71,7 +69,7 @@ public class SpawnCmd {
         }
 
         // Checks if the player is in spawn.
-        if (Regions.isInSafezone(player.getLocation())) {
+        if (playerData.isInSafezone()) {
             Spawn.teleport(player);
             player.getInventory().setHeldItemSlot(0);
             MessageUtil.messagePlayer(player, ConstantUtil.TELEPORTED_TO_SPAWN);
@@ -85,15 +83,15 @@ public class SpawnCmd {
         }
 
         // Teleports the player to spawn.
-        playerData.setTeleportToSpawnTask(new TeleportRunnable(player, playerData).runTaskTimer(KitPvP.instance, 0L, 20L));
+        playerData.setTeleportToSpawnTask(TimerWheel.scheduleRepeating(new TeleportRunnable(player, playerData), 1L, 20L));
     }
 
     /**
-     * BukkitRunnable for teleporting a player to spawn.
+     * Timer callback for teleporting a player to spawn.
      *
-     * @see BukkitRunnable
+     * @see TimerWheel
      */
-    private static final class TeleportRunnable extends BukkitRunnable {
+    private static final class TeleportRunnable implements Runnable {
 
         private final Player player;
         private final PlayerData playerData;
@@ -115,8 +113,8 @@ public class SpawnCmd {
                 player.getInventory().setHeldItemSlot(0);
                 player.playSound(player.getLocation(), Sound.CHICKEN_EGG_POP, 0.5f, 0.0f);
                 MessageUtil.messagePlayer(player, ConstantUtil.TELEPORTED_TO_SPAWN);
+                playerData.getTeleportToSpawnTask().cancel();
                 playerData.setTeleportToSpawnTask(null);
-                cancel();
                 return;
             }
 
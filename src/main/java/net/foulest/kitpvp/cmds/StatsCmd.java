@@ -20,11 +20,14 @@ package net.foulest.kitpvp.cmds;
 import lombok.Data;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.storage.OfflineProfileService;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.command.Command;
 import net.foulest.kitpvp.util.command.CommandArgs;
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
@@ -71,43 +74,77 @@ public class StatsCmd {
 
             Player targetPlayer = Bukkit.getPlayer(targetName);
 
-            if (targetPlayer == null || !targetPlayer.isOnline()) {
+            if (targetPlayer != null && targetPlayer.isOnline()) {
+                displayStats(player, new PlayerSnapshot(PlayerDataManager.getPlayerData(targetPlayer)),
+                        targetPlayer.getName(), targetPlayer.equals(player));
+                return;
+            }
+
+            // Loads the stats of offline players.
+            @SuppressWarnings("deprecation")
+            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(targetName);
+
+            if (!offlinePlayer.hasPlayedBefore()) {
                 MessageUtil.messagePlayer(sender, ConstantUtil.PLAYER_NOT_FOUND);
                 return;
             }
 
-            displayStats(targetPlayer, false);
+            String offlineName = offlinePlayer.getName() == null ? targetName : offlinePlayer.getName();
+
+            OfflineProfileService.get(offlinePlayer.getUniqueId()).whenComplete((profile, ex) -> {
+                if (ex != null) {
+                    ex.printStackTrace();
+                    MessageUtil.messagePlayer(player, "&cAn error occurred while loading " + offlineName + "'s data.");
+                    return;
+                }
+
+                if (player.isOnline()) {
+                    displayStats(player, profile, offlineName, false);
+                }
+            });
         }
     }
 
     /**
-     * Displays the stats of a player.
+     * Displays a player's own stats.
      *
      * @param player     The player to display the stats to.
      * @param samePlayer Whether the player is the same as the sender.
      */
-    public static void displayStats(Player player, boolean samePlayer) {
+    public static void displayStats(@NotNull Player player, boolean samePlayer) {
         PlayerData playerData = PlayerDataManager.getPlayerData(player);
-        String playerName = player.getName();
-        int kills = playerData.getKills();
-        int deaths = playerData.getDeaths();
-        String kdrText = playerData.getKDRText();
-        int killstreak = playerData.getKillstreak();
-        int topKillstreak = playerData.getTopKillstreak();
-        int level = playerData.getLevel();
-        int expPercent = playerData.getExpPercent();
-        int coins = playerData.getCoins();
-        int bounty = playerData.getBounty();
-
-        MessageUtil.messagePlayer(player, "");
-        MessageUtil.messagePlayer(player, " &a&l" + (samePlayer ? "Your" : playerName + "'s") + " Stats");
-        MessageUtil.messagePlayer(player, " &fKills: &e" + kills);
-        MessageUtil.messagePlayer(player, " &fDeaths: &e" + deaths);
-        MessageUtil.messagePlayer(player, " &fK/D Ratio: &e" + kdrText);
-        MessageUtil.messagePlayer(player, " &fStreak: &e" + killstreak + " &7(" + topKillstreak + ")");
-        MessageUtil.messagePlayer(player, " &fLevel: &e" + level + " &7(" + expPercent + "%)");
-        MessageUtil.messagePlayer(player, " &fCoins: &6" + coins);
-        MessageUtil.messagePlayer(player, " &fBounty: &6" + bounty);
-        MessageUtil.messagePlayer(player, "");
+        displayStats(player, new PlayerSnapshot(playerData), player.getName(), samePlayer);
+    }
+
+    /**
+     * Displays the stats of a player.
+     *
+     * @param viewer     The player to display the stats to.
+     * @param profile    The data of the player whose stats are shown.
+     * @param playerName The name of the player whose stats are shown.
+     * @param samePlayer Whether the stats belong to the viewer.
+     */
+    public static void displayStats(@NotNull Player viewer, @NotNull PlayerSnapshot profile,
+                                    @NotNull String playerName, boolean samePlayer) {
+        int kills = profile.getKills();
+        int deaths = profile.getDeaths();
+        String kdrText = profile.getKDRText();
+        int killstreak = profile.getKillstreak();
+        int topKillstreak = profile.getTopKillstreak();
+        int level = profile.getLevel();
+        int expPercent = profile.getExpPercent();
+        int coins = profile.getCoins();
+        int bounty = profile.getBounty();
+
+        MessageUtil.messagePlayer(viewer, "");
+        MessageUtil.messagePlayer(viewer, " &a&l" + (samePlayer ? "Your" : playerName + "'s") + " Stats");
+        MessageUtil.messagePlayer(viewer, " &fKills: &e" + kills);
+        MessageUtil.messagePlayer(viewer, " &fDeaths: &e" + deaths);
+        MessageUtil.messagePlayer(viewer, " &fK/D Ratio: &e" + kdrText);
+        MessageUtil.messagePlayer(viewer, " &fStreak: &e" + killstreak + " &7(" + topKillstreak + ")");
+        MessageUtil.messagePlayer(viewer, " &fLevel: &e" + level + " &7(" + expPercent + "%)");
+        MessageUtil.messagePlayer(viewer, " &fCoins: &6" + coins);
+        MessageUtil.messagePlayer(viewer, " &fBounty: &6" + bounty);
+        MessageUtil.messagePlayer(viewer, "");
     }
 }
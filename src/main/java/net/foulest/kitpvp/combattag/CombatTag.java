@@ -18,14 +18,13 @@
 package net.foulest.kitpvp.combattag;
 
 import lombok.Data;
-import net.foulest.kitpvp.KitPvP;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
+import net.foulest.kitpvp.util.timer.TimerHandle;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -43,7 +42,7 @@ public class CombatTag {
     /**
      * The combat scheduler and handler for each player.
      */
-    private static final Map<Player, BukkitTask> combatScheduler = new HashMap<>();
+    private static final Map<Player, TimerHandle> combatScheduler = new HashMap<>();
 
     /**
      * The remaining time in combat for each player.
@@ -78,18 +77,15 @@ public class CombatTag {
             } else {
                 combatHandler.put(player, Settings.combatTagDuration);
 
-                BukkitTask task = new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        if (isInCombat(player)) {
-                            if (getRemainingTime(player) > 1) {
-                                combatHandler.replace(player, getRemainingTime(player), getRemainingTime(player) - 1);
-                            } else {
-                                remove(player);
-                            }
+                TimerHandle task = TimerWheel.scheduleRepeating(() -> {
+                    if (isInCombat(player)) {
+                        if (getRemainingTime(player) > 1) {
+                            combatHandler.replace(player, getRemainingTime(player), getRemainingTime(player) - 1);
+                        } else {
+                            remove(player);
                         }
                     }
-                }.runTaskTimer(KitPvP.instance, 0L, 20L);
+                }, 1L, 20L);
 
                 combatScheduler.put(player, task);
             }
@@ -0,0 +1,76 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.cooldown;
+
+/**
+ * Represents the kit abilities that have cooldowns.
+ * The ordinal is the ability's index in each player's {@link CooldownTable}.
+ *
+ * @author Foulest
+ */
+public enum Ability {
+    /**
+     * The Archer's speed boost.
+     */
+    ARCHER,
+
+    /**
+     * The Fisherman's hook.
+     */
+    FISHERMAN,
+
+    /**
+     * The Fisherman's rod cast, limited to stop spamming.
+     */
+    FISHERMAN_ROD,
+
+    /**
+     * The Jester's projectile.
+     */
+    JESTER,
+
+    /**
+     * The Kangaroo's leap.
+     */
+    KANGAROO,
+
+    /**
+     * The Mage's debuff.
+     */
+    MAGE,
+
+    /**
+     * The Pyro's flare.
+     */
+    PYRO,
+
+    /**
+     * The Reaper's mark.
+     */
+    REAPER,
+
+    /**
+     * The Tank's fortify.
+     */
+    TANK,
+
+    /**
+     * The Vampire's invisibility.
+     */
+    VAMPIRE
+}
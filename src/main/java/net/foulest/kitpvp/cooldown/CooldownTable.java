@@ -0,0 +1,99 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.cooldown;
+
+import net.foulest.kitpvp.util.timer.TimerHandle;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds a player's ability cooldowns.
+ * <p>
+ * Each ability has a fixed slot, so checking and setting a cooldown is a
+ * single array access with no allocation. Each slot also holds its own
+ * expiry notification, so cooldowns of different abilities never replace
+ * each other's notifications.
+ *
+ * @author Foulest
+ */
+public class CooldownTable {
+
+    /**
+     * The number of abilities.
+     */
+    private static final int ABILITY_COUNT = Ability.values().length;
+
+    /**
+     * When each ability's cooldown ends, in epoch milliseconds.
+     */
+    private final long[] expiries = new long[ABILITY_COUNT];
+
+    /**
+     * The pending expiry notification of each ability.
+     */
+    private final TimerHandle[] notifiers = new TimerHandle[ABILITY_COUNT];
+
+    /**
+     * Gets the time left on an ability's cooldown.
+     *
+     * @param ability The ability.
+     * @param now     The current time in epoch milliseconds.
+     * @return The remaining cooldown in milliseconds, or zero if it isn't on cooldown.
+     */
+    public long getRemaining(@NotNull Ability ability, long now) {
+        return Math.max(0L, expiries[ability.ordinal()] - now);
+    }
+
+    /**
+     * Puts an ability on cooldown, replacing its previous cooldown and notification.
+     *
+     * @param ability  The ability.
+     * @param expiry   When the cooldown ends, in epoch milliseconds.
+     * @param notifier The notification sent when it ends, or null for none.
+     */
+    public void set(@NotNull Ability ability, long expiry, @Nullable TimerHandle notifier) {
+        int index = ability.ordinal();
+        cancelNotifier(index);
+        expiries[index] = expiry;
+        notifiers[index] = notifier;
+    }
+
+    /**
+     * Ends every cooldown and cancels their notifications.
+     */
+    public void clear() {
+        for (int index = 0; index < ABILITY_COUNT; index++) {
+            expiries[index] = 0L;
+            cancelNotifier(index);
+        }
+    }
+
+    /**
+     * Cancels an ability's pending notification.
+     *
+     * @param index The ability's index.
+     */
+    private void cancelNotifier(int index) {
+        TimerHandle notifier = notifiers[index];
+
+        if (notifier != null) {
+            notifier.cancel();
+            notifiers[index] = null;
+        }
+    }
+}
@@ -18,32 +18,35 @@
 package net.foulest.kitpvp.data;
 
 import lombok.Data;
-import net.foulest.kitpvp.KitPvP;
-import net.foulest.kitpvp.cooldown.Cooldown;
+import net.foulest.kitpvp.cooldown.Ability;
+import net.foulest.kitpvp.cooldown.CooldownTable;
 import net.foulest.kitpvp.enchants.Enchants;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.KitManager;
-import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.leaderboard.Leaderboards;
+import net.foulest.kitpvp.region.Regions;
+import net.foulest.kitpvp.region.SafezoneEnterEvent;
+import net.foulest.kitpvp.region.SafezoneLeaveEvent;
+import net.foulest.kitpvp.storage.PersistenceQueue;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
 import net.foulest.kitpvp.util.item.ItemBuilder;
 import net.foulest.kitpvp.util.item.SkullBuilder;
+import net.foulest.kitpvp.util.timer.TimerHandle;
+import net.foulest.kitpvp.util.timer.TimerWheel;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * Main class for storing player data.
@@ -59,7 +62,7 @@ public class PlayerData {
 
     // Kit data
     private final Set<Kit> ownedKits = new HashSet<>();
-    private Kit activeKit;
+    private volatile Kit activeKit;
     private Kit previousKit = KitManager.getKit("Knight");
     private int changeCount;
 
@@ -80,27 +83,39 @@ public class PlayerData {
     // Enchant data
     private final Set<Enchants> enchants = EnumSet.noneOf(Enchants.class);
 
+    // Persistence data
+    private @Nullable PlayerSnapshot savedSnapshot;
+
+    // The snapshot other threads read; replaced, never changed.
+    private volatile @Nullable PlayerSnapshot publishedSnapshot;
+
+    // Safe zone data, cached for the block the player is in
+    private volatile boolean inSafezone;
+    private @Nullable String safezoneId;
+    private int safezoneBlockX = Integer.MIN_VALUE;
+    private int safezoneBlockY = Integer.MIN_VALUE;
+    private int safezoneBlockZ = Integer.MIN_VALUE;
+
     // No-fall data
     private boolean noFall;
     private double lastVelocityY;
     private long onGroundTicks;
 
     // Cooldowns and timers
-    private final List<Cooldown> cooldowns = new ArrayList<>();
-    private @Nullable BukkitTask abilityCooldownNotifier;
-    private BukkitTask teleportToSpawnTask;
+    private final CooldownTable cooldowns = new CooldownTable();
+    private TimerHandle teleportToSpawnTask;
 
     // Flask data
-    private @Nullable BukkitTask flaskCooldownTask;
+    private @Nullable TimerHandle flaskCooldownTask;
 
     // Vampire task
-    private @Nullable BukkitTask lifeStealCooldown;
+    private @Nullable TimerHandle lifeStealCooldown;
 
     // Reaper mark
     private Player activeReaperMark;
 
     // Soldier rage
-    private double soldierRage;
+    private volatile double soldierRage;
 
     /**
      * Creates a new player data object.
@@ -114,32 +129,80 @@ public class PlayerData {
     }
 
     /**
-     * Checks if the player has a cooldown for their active kit and item.
+     * Updates the player's cached safe zone status if they moved into another block.
+     * Fires a {@link SafezoneEnterEvent} or {@link SafezoneLeaveEvent} if it changed.
+     * Must be called on the main thread.
      *
+     * @param location The player's new location.
+     */
+    public void updateSafezone(@NotNull Location location) {
+        int blockX = location.getBlockX();
+        int blockY = location.getBlockY();
+        int blockZ = location.getBlockZ();
+
+        if (blockX == safezoneBlockX && blockY == safezoneBlockY && blockZ == safezoneBlockZ) {
+            return;
+        }
+
+        safezoneBlockX = blockX;
+        safezoneBlockY = blockY;
+        safezoneBlockZ = blockZ;
+
+        String regionId = Regions.getSafezoneId(location);
+        String previousId = safezoneId;
+
+        if (Objects.equals(regionId, previousId)) {
+            return;
+        }
+
+        safezoneId = regionId;
+        inSafezone = regionId != null;
+
+        if (previousId != null) {
+            Bukkit.getPluginManager().callEvent(new SafezoneLeaveEvent(player, previousId));
+        }
+
+        if (regionId != null) {
+            Bukkit.getPluginManager().callEvent(new SafezoneEnterEvent(player, regionId));
+        }
+    }
+
+    /**
+     * Updates the player's cached safe zone status even if they're still in the same block.
+     * Used when the safe zones themselves have changed.
+     *
+     * @param location The player's location.
+     */
+    public void refreshSafezone(@NotNull Location location) {
+        safezoneBlockX = Integer.MIN_VALUE;
+        updateSafezone(location);
+    }
+
+    /**
+     * Checks if the player has a cooldown for an ability.
+     *
+     * @param ability     The ability to check.
      * @param sendMessage Whether to send a message to the player.
      * @return Whether the player has a cooldown.
      */
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    public boolean hasCooldown(Material itemType, boolean sendMessage) {
-        for (Cooldown cooldown : cooldowns) {
-            if (cooldown.getPlayer() == player && cooldown.getItemType() == itemType) {
-                long duration = cooldown.getDuration() - System.currentTimeMillis();
-
-                if (duration > 0) {
-                    if (sendMessage) {
-                        BigDecimal cooldownDecimal = BigDecimal.valueOf((double) duration / 1000).setScale(1, RoundingMode.HALF_UP);
-                        double cooldownDouble = cooldownDecimal.doubleValue();
-
-                        String cooldownMsg = "&cYou are still on cooldown for %time% seconds.";
-                        cooldownMsg = cooldownMsg.replace("%time%", String.valueOf(cooldownDouble));
-
-                        MessageUtil.messagePlayer(player, cooldownMsg);
-                    }
-                    return true;
-                }
-            }
+    public boolean hasCooldown(@NotNull Ability ability, boolean sendMessage) {
+        long duration = cooldowns.getRemaining(ability, System.currentTimeMillis());
+
+        if (duration <= 0) {
+            return false;
+        }
+
+        if (sendMessage) {
+            BigDecimal cooldownDecimal = BigDecimal.valueOf((double) duration / 1000).setScale(1, RoundingMode.HALF_UP);
+            double cooldownDouble = cooldownDecimal.doubleValue();
+
+            String cooldownMsg = "&cYou are still on cooldown for %time% seconds.";
+            cooldownMsg = cooldownMsg.replace("%time%", String.valueOf(cooldownDouble));
+
+            MessageUtil.messagePlayer(player, cooldownMsg);
         }
-        return false;
+        return true;
     }
 
     /**
@@ -148,11 +211,6 @@ public class PlayerData {
     public void clearCooldowns() {
         cooldowns.clear();
 
-        if (abilityCooldownNotifier != null) {
-            abilityCooldownNotifier.cancel();
-            abilityCooldownNotifier = null;
-        }
-
         if (flaskCooldownTask != null) {
             flaskCooldownTask.cancel();
             flaskCooldownTask = null;
@@ -165,186 +223,221 @@ public class PlayerData {
     }
 
     /**
-     * Sets a cooldown for a specific kit.
+     * Sets a cooldown for an ability, replacing any existing cooldown for it.
      *
-     * @param kit          The kit to set the cooldown for.
-     * @param itemType     The item type to set the cooldown for.
+     * @param ability      The ability to set the cooldown for.
      * @param cooldownTime The time in seconds for the cooldown.
      * @param notify       Whether to notify the player when the cooldown expires.
      */
-    public void setCooldown(Kit kit, Material itemType, int cooldownTime, boolean notify) {
-        Cooldown cooldown = new Cooldown(player, kit, itemType, System.currentTimeMillis() + cooldownTime * 1000L);
+    public void setCooldown(@NotNull Ability ability, int cooldownTime, boolean notify) {
+        TimerHandle notifier = null;
 
-        // Removes any existing cooldowns for the player, kit, and item type.
-        for (Cooldown existingCooldown : cooldowns) {
-            if (existingCooldown.getPlayer() == player
-                    && existingCooldown.getKit() == kit
-                    && existingCooldown.getItemType() == itemType) {
-                cooldowns.remove(existingCooldown);
-                break;
-            }
+        if (notify) {
+            notifier = TimerWheel.schedule(() -> MessageUtil.messagePlayer(player,
+                    "&aYour ability cooldown has expired."), cooldownTime * 20L);
         }
 
-        // Adds the new cooldown.
-        cooldowns.add(cooldown);
+        cooldowns.set(ability, System.currentTimeMillis() + cooldownTime * 1000L, notifier);
+    }
 
-        if (notify) {
-            abilityCooldownNotifier = new BukkitRunnable() {
-                @Override
-                public void run() {
-                    MessageUtil.messagePlayer(player, "&aYour ability cooldown has expired.");
+    /**
+     * Gets the time left on an ability's cooldown.
+     *
+     * @param ability The ability to get the cooldown for.
+     * @return The remaining cooldown in milliseconds, or zero if it isn't on cooldown.
+     */
+    public long getRemainingCooldown(@NotNull Ability ability) {
+        return cooldowns.getRemaining(ability, System.currentTimeMillis());
+    }
 
-                    // Remove the cooldown that just expired.
-                    cooldowns.remove(cooldown);
-                }
-            }.runTaskLater(KitPvP.instance, cooldownTime * 20L);
+    /**
+     * Applies a loaded profile to the player's data.
+     * Must be called on the main thread.
+     *
+     * @param profile The loaded profile.
+     */
+    public void applyProfile(@NotNull PlayerSnapshot profile) {
+        copyFrom(profile);
+
+        // Only changes made after loading need to be saved.
+        savedSnapshot = profile;
+        publishSnapshot();
+    }
+
+    /**
+     * Publishes a snapshot of the player's data for other threads, if it changed since the last one.
+     * Nothing is published until the player's profile is loaded.
+     * Must be called on the main thread.
+     */
+    public void publishSnapshot() {
+        if (savedSnapshot == null) {
+            return;
+        }
+
+        PlayerSnapshot published = publishedSnapshot;
+
+        if (published == null || hasChangedSince(published)) {
+            publishedSnapshot = new PlayerSnapshot(this);
         }
     }
 
     /**
-     * Gets a cooldown for a specific kit and item type.
+     * Checks if the player's persisted data differs from a snapshot, without allocating.
      *
-     * @param kit The kit to get the cooldown for.
-     * @param itemType The item type to get the cooldown for.
-     * @return The cooldown.
-     */
-    public @Nullable Cooldown getCooldown(Kit kit, Material itemType) {
-        for (Cooldown cooldown : cooldowns) {
-            if (cooldown.getPlayer() == player && cooldown.getKit() == kit && cooldown.getItemType() == itemType) {
-                return cooldown;
+     * @param snapshot The snapshot to compare with.
+     * @return Whether any persisted field differs.
+     */
+    private boolean hasChangedSince(@NotNull PlayerSnapshot snapshot) {
+        if (coins != snapshot.getCoins()
+                || experience != snapshot.getExperience()
+                || kills != snapshot.getKills()
+                || deaths != snapshot.getDeaths()
+                || killstreak != snapshot.getKillstreak()
+                || topKillstreak != snapshot.getTopKillstreak()
+                || usingSoup != snapshot.isUsingSoup()
+                || bounty != snapshot.getBounty()
+                || !Objects.equals(benefactor, snapshot.getBenefactor())
+                || !(previousKit == null ? "Knight" : previousKit.getName()).equals(snapshot.getPreviousKit())
+                || !enchants.equals(snapshot.getEnchants())) {
+            return true;
+        }
+
+        int kitCount = 0;
+        for (Kit kit : ownedKits) {
+            if (kit == null) {
+                continue;
+            }
+
+            if (!snapshot.getOwnedKits().contains(kit.getName())) {
+                return true;
             }
+            kitCount++;
         }
-        return null;
+        return kitCount != snapshot.getOwnedKits().size();
     }
 
     /**
-     * Loads the player's data from the database.
+     * Updates a profile applied from the local snapshot cache with the values stored in the database.
+     * Fields the player changed since joining keep their current values.
+     * Must be called on the main thread.
      *
-     * @return Whether the data was loaded successfully.
-     */
-    public CompletableFuture<Boolean> load() {
-        return CompletableFuture.supplyAsync(() -> {
-            // Inserts default values into PlayerStats.
-            Map<String, Object> defaultStats = new HashMap<>();
-            String uuidString = uniqueId.toString();
-
-            defaultStats.put("uuid", uuidString);
-            defaultStats.put("coins", Settings.startingCoins);
-            defaultStats.put("experience", 0);
-            defaultStats.put("kills", 0);
-            defaultStats.put("deaths", 0);
-            defaultStats.put("killstreak", 0);
-            defaultStats.put("topKillstreak", 0);
-            defaultStats.put("usingSoup", 0);
-            defaultStats.put("previousKit", "Knight");
-            DatabaseUtil.addDefaultDataToTable("PlayerStats", defaultStats);
-
-            // Loads values from PlayerStats.
-            try {
-                List<HashMap<String, Object>> data = DatabaseUtil.loadDataFromTable("PlayerStats",
-                        "uuid = ?", Collections.singletonList(uuidString));
-
-                if (!data.isEmpty()) {
-                    HashMap<String, Object> playerData = data.get(0);
-                    coins = (Integer) playerData.get("coins");
-                    experience = (Integer) playerData.get("experience");
-                    kills = (Integer) playerData.get("kills");
-                    deaths = (Integer) playerData.get("deaths");
-                    killstreak = (Integer) playerData.get("killstreak");
-                    topKillstreak = (Integer) playerData.get("topKillstreak");
-                    usingSoup = (Integer) playerData.get("usingSoup") == 1;
-
-                    Object previousKitObj = playerData.get("previousKit");
-                    previousKit = KitManager.getKit((String) previousKitObj);
-                }
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-                return false;
-            }
+     * @param cached The profile the player joined with.
+     * @param stored The profile stored in the database.
+     */
+    public void reconcileProfile(@NotNull PlayerSnapshot cached, @NotNull PlayerSnapshot stored) {
+        PlayerSnapshot current = new PlayerSnapshot(this);
+        Set<PlayerField> outdated = stored.getChangedFields(cached);
+        outdated.removeAll(current.getChangedFields(cached));
 
-            // Inserts default values into PlayerKits.
-            Map<String, Object> defaultKits = new HashMap<>();
-            defaultKits.put("uuid", uuidString);
-            defaultKits.put("kitName", "Knight");
-            DatabaseUtil.addDefaultDataToTable("PlayerKits", defaultKits);
-
-            // Loads values from PlayerKits.
-            try {
-                List<HashMap<String, Object>> data = DatabaseUtil.loadDataFromTable("PlayerKits",
-                        "uuid = ?", Collections.singletonList(uuidString));
-
-                if (!data.isEmpty()) {
-                    for (Map<String, Object> row : data) {
-                        Object kitNameObj = row.get("kitName");
-
-                        if (kitNameObj != null && !kitNameObj.equals("")) {
-                            ownedKits.add(KitManager.getKit((String) kitNameObj));
-                        }
-                    }
-                }
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-                return false;
-            }
+        if (outdated.isEmpty()) {
+            return;
+        }
 
-            // Loads values from Bounties.
-            try {
-                List<HashMap<String, Object>> data = DatabaseUtil.loadDataFromTable("Bounties",
-                        "uuid = ?", Collections.singletonList(uuidString));
+        int previousExperience = experience;
+        copyFrom(current.withFields(stored, outdated));
 
-                if (!data.isEmpty()) {
-                    HashMap<String, Object> playerData = data.get(0);
-                    bounty = (Integer) playerData.get("bounty");
+        // The stored values are already in the database, so they aren't saved again.
+        if (savedSnapshot != null) {
+            savedSnapshot = savedSnapshot.withFields(stored, outdated);
+        }
 
-                    Object benefactorObj = playerData.get("benefactor");
+        if (experience != previousExperience) {
+            calcLevel(false);
+        }
 
-                    if (!benefactorObj.equals("")) {
-                        benefactor = UUID.fromString((String) benefactorObj);
-                    }
-                }
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-                return false;
-            }
+        Leaderboards.update(new PlayerSnapshot(this));
+    }
 
-            // Loads values from Enchants.
-            try {
-                List<HashMap<String, Object>> data = DatabaseUtil.loadDataFromTable("Enchants",
-                        "uuid = ?", Collections.singletonList(uuidString));
+    /**
+     * Replaces the player's data with a modified snapshot of it and saves the changes.
+     * Must be called on the main thread.
+     *
+     * @param snapshot The modified snapshot.
+     */
+    public void applySnapshot(@NotNull PlayerSnapshot snapshot) {
+        int previousExperience = experience;
+        copyFrom(snapshot);
 
-                if (!data.isEmpty()) {
-                    Map<String, Object> playerData = data.get(0);
+        if (experience != previousExperience) {
+            calcLevel(false);
+        }
 
-                    for (Enchants enchant : Enchants.values()) {
-                        String key = enchant.getDatabaseName();
-                        Object value = playerData.get(key);
+        // Queues the player's data to be saved.
+        saveAll();
+    }
 
-                        if (Integer.valueOf(1).equals(value)) {
-                            enchants.add(enchant);
-                        }
-                    }
-                }
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-                return false;
+    /**
+     * Copies the persisted fields of a snapshot into the player's data.
+     *
+     * @param snapshot The snapshot to copy.
+     */
+    private void copyFrom(@NotNull PlayerSnapshot snapshot) {
+        coins = snapshot.getCoins();
+        experience = snapshot.getExperience();
+        kills = snapshot.getKills();
+        deaths = snapshot.getDeaths();
+        killstreak = snapshot.getKillstreak();
+        topKillstreak = snapshot.getTopKillstreak();
+        usingSoup = snapshot.isUsingSoup();
+        previousKit = KitManager.getKit(snapshot.getPreviousKit());
+
+        ownedKits.clear();
+        for (String kitName : snapshot.getOwnedKits()) {
+            Kit kit = KitManager.getKit(kitName);
+
+            if (kit != null) {
+                ownedKits.add(kit);
             }
-            return true;
-        });
+        }
+
+        bounty = snapshot.getBounty();
+        benefactor = snapshot.getBenefactor();
+
+        enchants.clear();
+        enchants.addAll(snapshot.getEnchants());
     }
 
     /**
-     * Saves the player's data to the database.
+     * Queues the player's data to be saved to the database.
+     * Only the fields changed since the last save are written.
      */
     public void saveAll() {
         if (previousKit == null) {
             previousKit = KitManager.getKit("Knight");
         }
 
-        // Updates values in every table.
-        DatabaseUtil.updatePlayerKitsTable(this);
-        DatabaseUtil.updatePlayerStatsTable(this);
-        DatabaseUtil.updateBountiesTable(this);
-        DatabaseUtil.updateEnchantsTable(this);
+        PlayerSnapshot snapshot = new PlayerSnapshot(this);
+
+        // Moves the player to their new leaderboard ranks.
+        Leaderboards.update(snapshot);
+
+        // Queues the changes since the last save; the queue skips it if there are none.
+        PersistenceQueue.enqueue(savedSnapshot, snapshot);
+        savedSnapshot = snapshot;
+        publishedSnapshot = snapshot;
+    }
+
+    /**
+     * Saves the player's data only if it changed since the last save,
+     * or if the last save failed and needs to be retried.
+     *
+     * @return Whether the player's data was queued to be saved.
+     */
+    public boolean saveIfChanged() {
+        if (previousKit == null) {
+            previousKit = KitManager.getKit("Knight");
+        }
+
+        PlayerSnapshot snapshot = new PlayerSnapshot(this);
+
+        if (snapshot.getChangedFields(savedSnapshot).isEmpty() && !PersistenceQueue.hasFailedSave(uniqueId)) {
+            return false;
+        }
+
+        PersistenceQueue.enqueue(savedSnapshot, snapshot);
+        savedSnapshot = snapshot;
+        publishedSnapshot = snapshot;
+        return true;
     }
 
     /**
@@ -355,8 +448,8 @@ public class PlayerData {
     public void setPreviousKit(Kit kit) {
         previousKit = kit;
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -373,8 +466,8 @@ public class PlayerData {
         this.bounty = bounty;
         this.benefactor = benefactor;
 
-        // Updates values in the Bounties table.
-        DatabaseUtil.updateBountiesTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -385,8 +478,8 @@ public class PlayerData {
             bounty = 0;
             benefactor = null;
 
-            // Updates values in the Bounties table.
-            DatabaseUtil.updateBountiesTable(this);
+            // Queues the player's data to be saved.
+            saveAll();
         }
     }
 
@@ -398,8 +491,8 @@ public class PlayerData {
     public void setKills(int kills) {
         this.kills = kills;
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -410,8 +503,8 @@ public class PlayerData {
     public void setDeaths(int deaths) {
         this.deaths = deaths;
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -426,8 +519,8 @@ public class PlayerData {
             topKillstreak = killstreak;
         }
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -440,8 +533,8 @@ public class PlayerData {
             topKillstreak = killstreak;
         }
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -453,8 +546,8 @@ public class PlayerData {
         experience = value;
         calcLevel(false);
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -466,8 +559,8 @@ public class PlayerData {
         experience += value;
         calcLevel(true);
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -479,8 +572,8 @@ public class PlayerData {
         experience = Math.max(0, experience - value);
         calcLevel(false);
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -491,8 +584,8 @@ public class PlayerData {
     public void addCoins(int value) {
         coins = Math.max(0, coins + value);
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -503,8 +596,8 @@ public class PlayerData {
     public void removeCoins(int value) {
         coins = Math.max(0, coins - value);
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
@@ -515,8 +608,8 @@ public class PlayerData {
     public void setCoins(int value) {
         coins = Math.max(0, value);
 
-        // Updates values in the PlayerStats table.
-        DatabaseUtil.updatePlayerStatsTable(this);
+        // Queues the player's data to be saved.
+        saveAll();
     }
 
     /**
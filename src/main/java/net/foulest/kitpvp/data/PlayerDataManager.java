@@ -18,15 +18,24 @@
 package net.foulest.kitpvp.data;
 
 import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for managing player data.
+ * <p>
+ * Player data is only changed on the main thread. Other threads read
+ * the immutable snapshot each player's data publishes once per tick
+ * (see {@link #getSnapshot(UUID)}), so they never see half-applied
+ * changes and the main thread never takes a lock.
  *
  * @author Foulest
  */
@@ -36,37 +45,72 @@ public class PlayerDataManager {
     /**
      * Map of player UUIDs to their stored data.
      */
-    private static final Map<UUID, PlayerData> playerDataMap = new HashMap<>();
+    private static final Map<UUID, PlayerData> playerDataMap = new ConcurrentHashMap<>();
 
     /**
-     * Gets a player's data from the map.
+     * The task publishing snapshots of changed player data.
+     */
+    private static @Nullable BukkitTask publishTask;
+
+    /**
+     * Starts publishing snapshots of changed player data every tick.
+     */
+    public static void start() {
+        if (publishTask != null) {
+            return;
+        }
+
+        publishTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                for (PlayerData playerData : playerDataMap.values()) {
+                    playerData.publishSnapshot();
+                }
+            }
+        }.runTaskTimer(KitPvP.instance, 1L, 1L);
+    }
+
+    /**
+     * Stops publishing snapshots.
+     */
+    public static void stop() {
+        if (publishTask != null) {
+            publishTask.cancel();
+            publishTask = null;
+        }
+    }
+
+    /**
+     * Gets a player's data from the map, creating it if needed.
+     * Must be called on the main thread.
      *
      * @param player The player to get.
      * @return The player's data.
      */
     public static PlayerData getPlayerData(@NotNull Player player) {
-        UUID playerUUID = player.getUniqueId();
-
-        if (playerDataMap.containsKey(playerUUID)) {
-            return playerDataMap.get(playerUUID);
-        } else {
-            addPlayerData(player);
-        }
-        return playerDataMap.get(playerUUID);
+        return playerDataMap.computeIfAbsent(player.getUniqueId(), playerUUID -> new PlayerData(playerUUID, player));
     }
 
     /**
-     * Adds a player's data to the map.
+     * Gets a player's data from the map without creating it.
      *
-     * @param player The player to add.
+     * @param uniqueId The player's UUID.
+     * @return The player's data, or null if they have none.
      */
-    private static void addPlayerData(@NotNull Player player) {
-        UUID playerUUID = player.getUniqueId();
+    public static @Nullable PlayerData getPlayerDataIfPresent(@NotNull UUID uniqueId) {
+        return playerDataMap.get(uniqueId);
+    }
 
-        if (!playerDataMap.containsKey(playerUUID)) {
-            PlayerData data = new PlayerData(playerUUID, player);
-            playerDataMap.put(playerUUID, data);
-        }
+    /**
+     * Gets the last published snapshot of a player's data.
+     * Safe to call from any thread; the snapshot is at most a tick old.
+     *
+     * @param uniqueId The player's UUID.
+     * @return The player's snapshot, or null if their data isn't loaded.
+     */
+    public static @Nullable PlayerSnapshot getSnapshot(@NotNull UUID uniqueId) {
+        PlayerData playerData = playerDataMap.get(uniqueId);
+        return playerData == null ? null : playerData.getPublishedSnapshot();
     }
 
     /**
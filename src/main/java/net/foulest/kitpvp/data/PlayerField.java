@@ -0,0 +1,96 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.data;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the persisted fields of a player's data.
+ *
+ * @author Foulest
+ */
+@Getter
+public enum PlayerField {
+    /**
+     * The player's coins.
+     */
+    COINS("coins"),
+
+    /**
+     * The player's experience.
+     */
+    EXPERIENCE("experience"),
+
+    /**
+     * The player's kills.
+     */
+    KILLS("kills"),
+
+    /**
+     * The player's deaths.
+     */
+    DEATHS("deaths"),
+
+    /**
+     * The player's current killstreak.
+     */
+    KILLSTREAK("killstreak"),
+
+    /**
+     * The player's highest killstreak.
+     */
+    TOP_KILLSTREAK("topKillstreak"),
+
+    /**
+     * Whether the player is using soup.
+     */
+    USING_SOUP("usingSoup"),
+
+    /**
+     * The player's previous kit.
+     */
+    PREVIOUS_KIT("previousKit"),
+
+    /**
+     * The player's owned kits, stored as a bitmask of kit ids.
+     */
+    OWNED_KITS("ownedKits"),
+
+    /**
+     * The player's bounty and its benefactor.
+     */
+    BOUNTY("bounty", "benefactor"),
+
+    /**
+     * The player's enchants, stored as a bitmask of enchant bits.
+     */
+    ENCHANTS("enchants");
+
+    /**
+     * The Players table columns the field is stored in.
+     */
+    private final List<String> columnNames;
+
+    PlayerField(String... columnNames) {
+        this.columnNames = Collections.unmodifiableList(Arrays.asList(columnNames));
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.With;
+import net.foulest.kitpvp.enchants.Enchants;
+import net.foulest.kitpvp.kits.Kit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.DecimalFormat;
+import java.util.*;
+
+/**
+ * An immutable copy of the persisted parts of a player's data.
+ * <p>
+ * Snapshots are taken on the main thread and handed to
+ * storage threads, so they never share state with {@link PlayerData}.
+ * Profiles loaded from the database are returned as snapshots as well.
+ * Changes are made by creating modified copies with the {@code with} methods.
+ *
+ * @author Foulest
+ */
+@Data
+@With
+@AllArgsConstructor
+public class PlayerSnapshot {
+
+    // Player data
+    private final UUID uniqueId;
+
+    // Player stats
+    private final int coins;
+    private final int experience;
+    private final int kills;
+    private final int deaths;
+    private final int killstreak;
+    private final int topKillstreak;
+    private final boolean usingSoup;
+    private final String previousKit;
+
+    // Kit data
+    private final Set<String> ownedKits;
+
+    // Bounty data
+    private final int bounty;
+    private final @Nullable UUID benefactor;
+
+    // Enchant data
+    private final Set<Enchants> enchants;
+
+    /**
+     * Creates a snapshot of a player's data.
+     *
+     * @param playerData The player's data.
+     */
+    public PlayerSnapshot(@NotNull PlayerData playerData) {
+        uniqueId = playerData.getUniqueId();
+        coins = playerData.getCoins();
+        experience = playerData.getExperience();
+        kills = playerData.getKills();
+        deaths = playerData.getDeaths();
+        killstreak = playerData.getKillstreak();
+        topKillstreak = playerData.getTopKillstreak();
+        usingSoup = playerData.isUsingSoup();
+
+        Kit kit = playerData.getPreviousKit();
+        previousKit = (kit == null) ? "Knight" : kit.getName();
+
+        Set<String> kitNames = new HashSet<>();
+        for (Kit ownedKit : playerData.getOwnedKits()) {
+            if (ownedKit != null) {
+                kitNames.add(ownedKit.getName());
+            }
+        }
+        ownedKits = Collections.unmodifiableSet(kitNames);
+
+        bounty = playerData.getBounty();
+        benefactor = playerData.getBenefactor();
+
+        Set<Enchants> enchantsCopy = EnumSet.noneOf(Enchants.class);
+        enchantsCopy.addAll(playerData.getEnchants());
+        enchants = Collections.unmodifiableSet(enchantsCopy);
+    }
+
+    /**
+     * Gets the player's level, as calculated by {@link PlayerData#calcLevel(boolean)}.
+     *
+     * @return The player's level.
+     */
+    public int getLevel() {
+        return (experience / 625) + 1;
+    }
+
+    /**
+     * Gets the player's progress towards their next level.
+     *
+     * @return The percentage of the level completed.
+     */
+    public int getExpPercent() {
+        int level = getLevel();
+        int nextLevelXP = (level * 25) * 25;
+        int pastLevelXP = (Math.max(1, level - 1) * 25) * 25;
+
+        if (level == 1) {
+            return (int) (((double) experience / nextLevelXP) * 100);
+        }
+        return (int) (((double) (experience - pastLevelXP) / (nextLevelXP - pastLevelXP)) * 100);
+    }
+
+    /**
+     * Gets the player's KDR as a string.
+     *
+     * @return The player's KDR as a string.
+     */
+    public @NotNull String getKDRText() {
+        double kdr = (deaths == 0) ? kills : kills / (double) deaths;
+        return new DecimalFormat("####0.00").format(kdr);
+    }
+
+    /**
+     * Gets the fields that differ from an older snapshot.
+     *
+     * @param baseline The older snapshot, or null if nothing has been persisted.
+     * @return The changed fields.
+     */
+    public @NotNull Set<PlayerField> getChangedFields(@Nullable PlayerSnapshot baseline) {
+        if (baseline == null) {
+            return EnumSet.allOf(PlayerField.class);
+        }
+
+        Set<PlayerField> changed = EnumSet.noneOf(PlayerField.class);
+
+        if (coins != baseline.coins) {
+            changed.add(PlayerField.COINS);
+        }
+        if (experience != baseline.experience) {
+            changed.add(PlayerField.EXPERIENCE);
+        }
+        if (kills != baseline.kills) {
+            changed.add(PlayerField.KILLS);
+        }
+        if (deaths != baseline.deaths) {
+            changed.add(PlayerField.DEATHS);
+        }
+        if (killstreak != baseline.killstreak) {
+            changed.add(PlayerField.KILLSTREAK);
+        }
+        if (topKillstreak != baseline.topKillstreak) {
+            changed.add(PlayerField.TOP_KILLSTREAK);
+        }
+        if (usingSoup != baseline.usingSoup) {
+            changed.add(PlayerField.USING_SOUP);
+        }
+        if (!Objects.equals(previousKit, baseline.previousKit)) {
+            changed.add(PlayerField.PREVIOUS_KIT);
+        }
+        if (!ownedKits.equals(baseline.ownedKits)) {
+            changed.add(PlayerField.OWNED_KITS);
+        }
+        if (bounty != baseline.bounty || !Objects.equals(benefactor, baseline.benefactor)) {
+            changed.add(PlayerField.BOUNTY);
+        }
+        if (!enchants.equals(baseline.enchants)) {
+            changed.add(PlayerField.ENCHANTS);
+        }
+        return changed;
+    }
+
+    /**
+     * Creates a copy of this snapshot with some fields taken from another snapshot.
+     *
+     * @param source The snapshot to take the fields from.
+     * @param fields The fields to take.
+     * @return The merged snapshot.
+     */
+    public @NotNull PlayerSnapshot withFields(@NotNull PlayerSnapshot source, @NotNull Collection<PlayerField> fields) {
+        PlayerSnapshot merged = this;
+
+        for (PlayerField field : fields) {
+            switch (field) {
+                case COINS:
+                    merged = merged.withCoins(source.coins);
+                    break;
+                case EXPERIENCE:
+                    merged = merged.withExperience(source.experience);
+                    break;
+                case KILLS:
+                    merged = merged.withKills(source.kills);
+                    break;
+                case DEATHS:
+                    merged = merged.withDeaths(source.deaths);
+                    break;
+                case KILLSTREAK:
+                    merged = merged.withKillstreak(source.killstreak);
+                    break;
+                case TOP_KILLSTREAK:
+                    merged = merged.withTopKillstreak(source.topKillstreak);
+                    break;
+                case USING_SOUP:
+                    merged = merged.withUsingSoup(source.usingSoup);
+                    break;
+                case PREVIOUS_KIT:
+                    merged = merged.withPreviousKit(source.previousKit);
+                    break;
+                case OWNED_KITS:
+                    merged = merged.withOwnedKits(source.ownedKits);
+                    break;
+                case BOUNTY:
+                    merged = merged.withBounty(source.bounty).withBenefactor(source.benefactor);
+                    break;
+                case ENCHANTS:
+                    merged = merged.withEnchants(source.enchants);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return merged;
+    }
+}
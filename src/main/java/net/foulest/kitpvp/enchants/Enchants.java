@@ -17,50 +17,98 @@
  */
 package net.foulest.kitpvp.enchants;
 
+import lombok.Getter;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * Represents the enchantments available for purchase.
+ * <p>
+ * Owned enchantments are stored as a bitmask of their bits, which
+ * must never change or be reused once an enchantment is released.
  */
+@Getter
 public enum Enchants {
     /**
      * Represents the Feather Falling enchantment.
      */
-    FEATHER_FALLING,
+    FEATHER_FALLING(0),
 
     /**
      * Represents the Thorns enchantment.
      */
-    THORNS,
+    THORNS(1),
 
     /**
      * Represents the Protection enchantment.
      */
-    PROTECTION,
+    PROTECTION(2),
 
     /**
      * Represents the Knockback enchantment.
      */
-    KNOCKBACK,
+    KNOCKBACK(3),
 
     /**
      * Represents the Sharpness enchantment.
      */
-    SHARPNESS,
+    SHARPNESS(4),
 
     /**
      * Represents the Punch enchantment.
      */
-    PUNCH,
+    PUNCH(5),
 
     /**
      * Represents the Power enchantment.
      */
-    POWER;
+    POWER(6);
+
+    /**
+     * The enchantment's bit in the stored bitmask.
+     */
+    private final int bit;
+
+    Enchants(int bit) {
+        this.bit = bit;
+    }
+
+    /**
+     * Converts enchantments to a bitmask of their bits.
+     *
+     * @param enchants The enchantments.
+     * @return The enchantments bitmask.
+     */
+    public static int toMask(@NotNull Collection<Enchants> enchants) {
+        int mask = 0;
+        for (Enchants enchant : enchants) {
+            mask |= 1 << enchant.bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Converts a bitmask of bits back to enchantments.
+     * Unknown bits are ignored.
+     *
+     * @param mask The enchantments bitmask.
+     * @return The enchantments.
+     */
+    public static @NotNull Set<Enchants> fromMask(int mask) {
+        Set<Enchants> enchants = EnumSet.noneOf(Enchants.class);
+        for (Enchants enchant : values()) {
+            if ((mask & (1 << enchant.bit)) != 0) {
+                enchants.add(enchant);
+            }
+        }
+        return enchants;
+    }
 
     /**
      * Gets the name of the enchantment in a MySQL-friendly format.
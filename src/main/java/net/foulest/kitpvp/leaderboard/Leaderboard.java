@@ -0,0 +1,240 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.leaderboard;
+
+import lombok.Data;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Keeps the top scores of one stat in rank order.
+ * <p>
+ * The ranking is seeded from the database and then kept up to date
+ * incrementally as scores change, on the main thread. It tracks more
+ * players than are shown, so players falling out of the shown ranks
+ * are still ranked correctly; the periodic reseed corrects the rest.
+ * <p>
+ * Readers never see the ranking itself, only the last published copy,
+ * so any rank can be read from any thread in constant time.
+ *
+ * @author Foulest
+ */
+public class Leaderboard {
+
+    /**
+     * The stat the players are ranked by.
+     */
+    @Getter
+    private final LeaderboardType type;
+
+    /**
+     * The number of ranks shown.
+     */
+    private final int size;
+
+    /**
+     * The number of players tracked, including those below the shown ranks.
+     */
+    private final int capacity;
+
+    /**
+     * The tracked players, by score from highest to lowest.
+     */
+    private final List<Score> ranking = new ArrayList<>();
+
+    /**
+     * The tracked players, by UUID.
+     */
+    private final Map<UUID, Score> tracked = new HashMap<>();
+
+    /**
+     * Whether the ranking changed since it was last published.
+     */
+    private boolean dirty;
+
+    /**
+     * The last published ranks.
+     */
+    private volatile LeaderboardEntry[] published = new LeaderboardEntry[0];
+
+    /**
+     * Creates an empty leaderboard.
+     *
+     * @param type     The stat the players are ranked by.
+     * @param size     The number of ranks shown.
+     * @param capacity The number of players tracked.
+     */
+    public Leaderboard(@NotNull LeaderboardType type, int size, int capacity) {
+        this.type = type;
+        this.size = size;
+        this.capacity = Math.max(size, capacity);
+    }
+
+    /**
+     * Replaces the ranking with the top scores loaded from the database.
+     * Must be called on the main thread.
+     *
+     * @param scores The top scores, from highest to lowest.
+     */
+    public void seed(@NotNull Map<UUID, Integer> scores) {
+        ranking.clear();
+        tracked.clear();
+
+        for (Map.Entry<UUID, Integer> entry : scores.entrySet()) {
+            if (ranking.size() >= capacity) {
+                break;
+            }
+
+            Score score = new Score(entry.getKey(), entry.getValue());
+            ranking.add(score);
+            tracked.put(score.getUniqueId(), score);
+        }
+
+        dirty = true;
+    }
+
+    /**
+     * Updates a player's score, moving them to their new rank.
+     * Must be called on the main thread.
+     *
+     * @param uniqueId The player's UUID.
+     * @param value    The player's new score.
+     */
+    public void update(@NotNull UUID uniqueId, int value) {
+        Score score = tracked.get(uniqueId);
+
+        if (score != null) {
+            if (score.getValue() == value) {
+                return;
+            }
+
+            ranking.remove(score);
+            score.setValue(value);
+        } else {
+            // Ignores scores too low to be tracked.
+            if (ranking.size() >= capacity && value <= ranking.get(ranking.size() - 1).getValue()) {
+                return;
+            }
+
+            score = new Score(uniqueId, value);
+            tracked.put(uniqueId, score);
+        }
+
+        ranking.add(findRank(value), score);
+
+        // Stops tracking the lowest scores.
+        while (ranking.size() > capacity) {
+            Score removed = ranking.remove(ranking.size() - 1);
+            tracked.remove(removed.getUniqueId());
+        }
+
+        dirty = true;
+    }
+
+    /**
+     * Publishes the shown ranks if the ranking changed.
+     * Must be called on the main thread.
+     *
+     * @param nameResolver Resolves a player's UUID to their name.
+     */
+    public void publish(@NotNull Function<UUID, String> nameResolver) {
+        if (!dirty) {
+            return;
+        }
+
+        int shown = Math.min(size, ranking.size());
+        LeaderboardEntry[] entries = new LeaderboardEntry[shown];
+
+        for (int i = 0; i < shown; i++) {
+            Score score = ranking.get(i);
+            int value = score.getValue();
+            entries[i] = new LeaderboardEntry(i + 1, score.getUniqueId(), nameResolver.apply(score.getUniqueId()),
+                    value, type.getDisplayFunction().applyAsInt(value));
+        }
+
+        published = entries;
+        dirty = false;
+    }
+
+    /**
+     * Gets a published rank.
+     *
+     * @param rank The rank, starting at 1.
+     * @return The entry at that rank, or null if it's empty.
+     */
+    public @Nullable LeaderboardEntry getEntry(int rank) {
+        LeaderboardEntry[] entries = published;
+        return rank >= 1 && rank <= entries.length ? entries[rank - 1] : null;
+    }
+
+    /**
+     * Gets every published rank.
+     *
+     * @return The entries, from the first rank down.
+     */
+    public @NotNull List<LeaderboardEntry> getEntries() {
+        return Collections.unmodifiableList(Arrays.asList(published));
+    }
+
+    /**
+     * Finds the index a score belongs at, after any equal scores.
+     *
+     * @param value The score.
+     * @return The index in the ranking.
+     */
+    private int findRank(int value) {
+        int low = 0;
+        int high = ranking.size();
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (ranking.get(middle).getValue() >= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A tracked player's score.
+     */
+    @Data
+    private static class Score {
+
+        private final UUID uniqueId;
+        private int value;
+
+        /**
+         * Creates a tracked score.
+         *
+         * @param uniqueId The player's UUID.
+         * @param value    The player's score.
+         */
+        Score(@NotNull UUID uniqueId, int value) {
+            this.uniqueId = uniqueId;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.leaderboard;
+
+import lombok.Getter;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * Represents the stats players are ranked by.
+ *
+ * @author Foulest
+ */
+@Getter
+public enum LeaderboardType {
+    /**
+     * Ranks players by their kills.
+     */
+    KILLS("kills", "Kills", "kills", PlayerSnapshot::getKills, score -> score),
+
+    /**
+     * Ranks players by their highest killstreak.
+     */
+    KILLSTREAK("killstreak", "Killstreak", "topKillstreak", PlayerSnapshot::getTopKillstreak, score -> score),
+
+    /**
+     * Ranks players by their experience, displayed as their level.
+     */
+    LEVEL("level", "Level", "experience", PlayerSnapshot::getExperience, score -> (score / 625) + 1),
+
+    /**
+     * Ranks players by their coins.
+     */
+    COINS("coins", "Coins", "coins", PlayerSnapshot::getCoins, score -> score);
+
+    /**
+     * The name used in placeholders and commands.
+     */
+    private final String id;
+
+    /**
+     * The name shown to players.
+     */
+    private final String displayName;
+
+    /**
+     * The Players table column holding the score.
+     */
+    private final String columnName;
+
+    /**
+     * Gets a player's score from their data.
+     */
+    private final ToIntFunction<PlayerSnapshot> scoreFunction;
+
+    /**
+     * Converts a score to the value shown to players.
+     */
+    private final IntUnaryOperator displayFunction;
+
+    LeaderboardType(String id, String displayName, String columnName,
+                    ToIntFunction<PlayerSnapshot> scoreFunction, IntUnaryOperator displayFunction) {
+        this.id = id;
+        this.displayName = displayName;
+        this.columnName = columnName;
+        this.scoreFunction = scoreFunction;
+        this.displayFunction = displayFunction;
+    }
+
+    /**
+     * Gets a leaderboard type by its id.
+     *
+     * @param id The id, case-insensitive.
+     * @return The leaderboard type, or null if there is none.
+     */
+    public static @Nullable LeaderboardType fromId(@NotNull String id) {
+        String lowerId = id.toLowerCase(Locale.ROOT);
+
+        for (LeaderboardType type : values()) {
+            if (type.id.equals(lowerId)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
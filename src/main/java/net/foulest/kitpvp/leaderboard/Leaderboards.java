@@ -0,0 +1,268 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.leaderboard;
+
+import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.storage.StorageExecutor;
+import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import net.foulest.kitpvp.util.TaskUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Manages the leaderboard of every ranked stat.
+ * <p>
+ * Leaderboards are seeded from the database on startup and updated as
+ * players' data changes, so showing them never queries the database.
+ * Changes are published once per second, and every refresh interval the
+ * leaderboards are reseeded in the background to pick up players who
+ * dropped into the untracked ranks.
+ *
+ * @author Foulest
+ */
+@Data
+public class Leaderboards {
+
+    /**
+     * The leaderboard of each stat.
+     */
+    private static final Map<LeaderboardType, Leaderboard> leaderboards = new EnumMap<>(LeaderboardType.class);
+
+    /**
+     * The names of ranked players, by UUID.
+     */
+    private static final Map<UUID, String> names = new HashMap<>();
+
+    /**
+     * The task publishing changes.
+     */
+    private static @Nullable BukkitTask publishTask;
+
+    /**
+     * The task reseeding the leaderboards.
+     */
+    private static @Nullable BukkitTask refreshTask;
+
+    /**
+     * Creates and seeds the leaderboards.
+     * Must be called on the main thread, after the database is loaded.
+     */
+    public static void load() {
+        leaderboards.clear();
+
+        // Tracks extra players below the shown ranks.
+        int size = Settings.leaderboardSize;
+        int capacity = size * 2;
+
+        for (LeaderboardType type : LeaderboardType.values()) {
+            leaderboards.put(type, new Leaderboard(type, size, capacity));
+        }
+
+        Map<LeaderboardType, Map<UUID, Integer>> scores = loadTopScores(capacity);
+
+        if (scores != null) {
+            seed(scores);
+        }
+    }
+
+    /**
+     * Starts publishing and refreshing the leaderboards.
+     */
+    public static void start() {
+        if (publishTask != null) {
+            return;
+        }
+
+        publishTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                publish();
+            }
+        }.runTaskTimer(KitPvP.instance, 20L, 20L);
+
+        if (Settings.leaderboardRefreshInterval > 0) {
+            long period = Settings.leaderboardRefreshInterval * 20L;
+
+            // Skips a refresh if the storage executor is full; the next one catches up.
+            refreshTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    StorageExecutor.execute(Leaderboards::refresh);
+                }
+            }.runTaskTimer(KitPvP.instance, period, period);
+        }
+    }
+
+    /**
+     * Stops publishing and refreshing the leaderboards.
+     */
+    public static void stop() {
+        if (publishTask != null) {
+            publishTask.cancel();
+            publishTask = null;
+        }
+
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * Updates a player's ranks after their data changed.
+     * Must be called on the main thread.
+     *
+     * @param snapshot The player's data.
+     */
+    public static void update(@NotNull PlayerSnapshot snapshot) {
+        for (Leaderboard leaderboard : leaderboards.values()) {
+            LeaderboardType type = leaderboard.getType();
+            leaderboard.update(snapshot.getUniqueId(), type.getScoreFunction().applyAsInt(snapshot));
+        }
+    }
+
+    /**
+     * Gets the leaderboard of a stat.
+     *
+     * @param type The stat.
+     * @return The leaderboard, or null if the leaderboards aren't loaded.
+     */
+    public static @Nullable Leaderboard getLeaderboard(@NotNull LeaderboardType type) {
+        return leaderboards.get(type);
+    }
+
+    /**
+     * Gets a published rank of a stat's leaderboard.
+     *
+     * @param type The stat.
+     * @param rank The rank, starting at 1.
+     * @return The entry at that rank, or null if it's empty.
+     */
+    public static @Nullable LeaderboardEntry getEntry(@NotNull LeaderboardType type, int rank) {
+        Leaderboard leaderboard = leaderboards.get(type);
+        return leaderboard == null ? null : leaderboard.getEntry(rank);
+    }
+
+    /**
+     * Loads the top scores of every stat.
+     *
+     * @param limit The number of scores to load per stat.
+     * @return The scores of each stat, or null if they couldn't be loaded.
+     */
+    private static @Nullable Map<LeaderboardType, Map<UUID, Integer>> loadTopScores(int limit) {
+        Map<LeaderboardType, Map<UUID, Integer>> scores = new EnumMap<>(LeaderboardType.class);
+
+        try {
+            for (LeaderboardType type : LeaderboardType.values()) {
+                scores.put(type, DatabaseUtil.loadTopScores(type.getColumnName(), limit));
+            }
+        } catch (SQLException ex) {
+            MessageUtil.log(Level.WARNING, "Failed to load the leaderboards.");
+            ex.printStackTrace();
+            return null;
+        }
+        return scores;
+    }
+
+    /**
+     * Replaces the leaderboards with loaded scores.
+     * Must be called on the main thread.
+     *
+     * @param scores The top scores of each stat.
+     */
+    private static void seed(@NotNull Map<LeaderboardType, Map<UUID, Integer>> scores) {
+        // Forgets the names of players who are no longer ranked.
+        names.clear();
+
+        for (Map.Entry<LeaderboardType, Map<UUID, Integer>> entry : scores.entrySet()) {
+            Leaderboard leaderboard = leaderboards.get(entry.getKey());
+
+            if (leaderboard != null) {
+                leaderboard.seed(entry.getValue());
+            }
+        }
+
+        // Online players' data may be newer than what has been saved.
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (PlayerDataManager.hasPlayerData(player)) {
+                update(new PlayerSnapshot(PlayerDataManager.getPlayerData(player)));
+            }
+        }
+
+        publish();
+    }
+
+    /**
+     * Reseeds the leaderboards from the database.
+     * Runs on the storage executor; the new scores are applied on the main thread.
+     */
+    private static void refresh() {
+        Map<LeaderboardType, Map<UUID, Integer>> scores = loadTopScores(Settings.leaderboardSize * 2);
+
+        if (scores != null) {
+            TaskUtil.runTask(() -> seed(scores));
+        }
+    }
+
+    /**
+     * Publishes the changes to every leaderboard.
+     * Must be called on the main thread.
+     */
+    private static void publish() {
+        for (Leaderboard leaderboard : leaderboards.values()) {
+            leaderboard.publish(Leaderboards::getName);
+        }
+    }
+
+    /**
+     * Gets the name of a ranked player.
+     *
+     * @param uniqueId The player's UUID.
+     * @return The player's name.
+     */
+    private static @NotNull String getName(@NotNull UUID uniqueId) {
+        Player player = Bukkit.getPlayer(uniqueId);
+
+        if (player != null) {
+            names.put(uniqueId, player.getName());
+            return player.getName();
+        }
+
+        String name = names.get(uniqueId);
+
+        if (name == null) {
+            name = Bukkit.getOfflinePlayer(uniqueId).getName();
+            name = name == null ? "Unknown" : name;
+            names.put(uniqueId, name);
+        }
+        return name;
+    }
+}
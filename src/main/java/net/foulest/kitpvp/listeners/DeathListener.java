@@ -24,11 +24,10 @@ import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.listeners.kits.ReaperListener;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.region.Spawn;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
-import net.foulest.kitpvp.util.TaskUtil;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -99,7 +98,7 @@ public class DeathListener implements Listener {
             int damagerCoins = damagerData.getCoins();
 
             // Adds a Flask to the damager's inventory.
-            if (Settings.flaskEnabled && !Regions.isInSafezone(damagerLoc)) {
+            if (Settings.flaskEnabled && !damagerData.isInSafezone()) {
                 FlaskListener.addFlaskToInventory(damager, Settings.flaskAmount);
             }
 
@@ -191,9 +190,9 @@ public class DeathListener implements Listener {
 
             // Removes knockback before and after teleporting the player to spawn.
             receiver.setVelocity(new Vector());
-            TaskUtil.runTaskLater(() -> receiver.setVelocity(new Vector()), 2L);
+            TimerWheel.schedule(() -> receiver.setVelocity(new Vector()), 2L);
 
-            TaskUtil.runTaskLater(() -> {
+            TimerWheel.schedule(() -> {
                 // Respawn the player.
                 receiver.spigot().respawn();
 
@@ -22,6 +22,7 @@ import net.foulest.kitpvp.cmds.StatsCmd;
 import net.foulest.kitpvp.combattag.CombatTag;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.data.PlayerSnapshot;
 import net.foulest.kitpvp.enchants.Enchants;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.KitManager;
@@ -32,10 +33,20 @@ import net.foulest.kitpvp.menus.KitSelector;
 import net.foulest.kitpvp.menus.KitShop;
 import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.region.Spawn;
+import net.foulest.kitpvp.storage.OfflineProfileService;
+import net.foulest.kitpvp.storage.PersistenceQueue;
+import net.foulest.kitpvp.storage.ProfileBatchLoader;
+import net.foulest.kitpvp.storage.ProfileFallbackCache;
+import net.foulest.kitpvp.storage.ProfileLeases;
+import net.foulest.kitpvp.storage.ProfileSnapshotCache;
+import net.foulest.kitpvp.storage.ProfileStagingCache;
+import net.foulest.kitpvp.storage.StorageCircuitBreaker;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
 import net.foulest.kitpvp.util.TaskUtil;
 import net.foulest.kitpvp.util.item.ItemBuilder;
+import net.foulest.kitpvp.util.timer.TimerHandle;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.*;
 import org.bukkit.block.Block;
 import org.bukkit.craftbukkit.v1_8_R3.entity.CraftEntity;
@@ -57,10 +68,14 @@ import org.bukkit.event.weather.WeatherChangeEvent;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
 /**
@@ -71,6 +86,132 @@ import java.util.logging.Level;
 @Data
 public class EventListener implements Listener {
 
+    /**
+     * Loads the profiles of players logging in before they join.
+     * Players whose profile can't be loaded in time are denied.
+     *
+     * @param event AsyncPlayerPreLoginEvent
+     */
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public static void onAsyncPlayerPreLogin(@NotNull AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        UUID uniqueId = event.getUniqueId();
+
+        // Takes the player's data out of the offline cache so it isn't changed in two places.
+        OfflineProfileService.claim(uniqueId);
+
+        // Waits for the server the player came from to save their data.
+        try {
+            ProfileLeases.acquire(uniqueId);
+        } catch (SQLException ex) {
+            // Lets the player in without a lease while the database is unreachable.
+            if (StorageCircuitBreaker.isDegraded()) {
+                MessageUtil.log(Level.WARNING, "Skipped the lease of " + event.getName() + " in degraded mode.");
+            } else {
+                ex.printStackTrace();
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                        MessageUtil.colorize("&cYour data could not be loaded. Please try again."));
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                    MessageUtil.colorize("&cYour data could not be loaded. Please try again."));
+            return;
+        }
+
+        // Uses data that hasn't been written yet if the player rejoined quickly.
+        PlayerSnapshot unsaved = PersistenceQueue.getUnsavedSnapshot(uniqueId);
+        if (unsaved != null) {
+            ProfileStagingCache.stage(unsaved);
+            return;
+        }
+
+        // Uses the profile cached before the last restart, checking it against the database in the background.
+        PlayerSnapshot cached = ProfileSnapshotCache.take(uniqueId);
+        if (cached != null) {
+            ProfileStagingCache.stage(cached);
+            ProfileSnapshotCache.reconcile(cached);
+            return;
+        }
+
+        try {
+            PlayerSnapshot profile = ProfileBatchLoader.load(uniqueId).get(Settings.preLoginTimeout, TimeUnit.MILLISECONDS);
+            ProfileStagingCache.stage(profile);
+        } catch (TimeoutException ex) {
+            MessageUtil.log(Level.WARNING, "Timed out loading the data of " + event.getName() + ".");
+
+            if (!stageFallbackProfile(event)) {
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                        MessageUtil.colorize("&cYour data took too long to load. Please try again."));
+            }
+        } catch (ExecutionException ex) {
+            if (!stageFallbackProfile(event)) {
+                ex.printStackTrace();
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                        MessageUtil.colorize("&cYour data could not be loaded. Please try again."));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                    MessageUtil.colorize("&cYour data could not be loaded. Please try again."));
+        }
+    }
+
+    /**
+     * Stages the last known profile of a player whose data couldn't be loaded.
+     *
+     * @param event AsyncPlayerPreLoginEvent
+     * @return Whether a profile was staged.
+     */
+    private static boolean stageFallbackProfile(@NotNull AsyncPlayerPreLoginEvent event) {
+        PlayerSnapshot fallback = ProfileFallbackCache.load(event.getUniqueId());
+
+        if (fallback == null) {
+            return false;
+        }
+
+        MessageUtil.log(Level.WARNING, "Loaded the last known data of " + event.getName() + " in degraded mode.");
+        ProfileStagingCache.stage(fallback);
+        return true;
+    }
+
+    /**
+     * Releases the data of players denied during pre-login.
+     *
+     * @param event AsyncPlayerPreLoginEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public static void onAsyncPlayerPreLoginResult(@NotNull AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            ProfileStagingCache.discard(event.getUniqueId());
+            ProfileFallbackCache.clearDegraded(event.getUniqueId());
+            ProfileSnapshotCache.discard(event.getUniqueId());
+            OfflineProfileService.release(event.getUniqueId());
+            ProfileLeases.release(event.getUniqueId());
+        }
+    }
+
+    /**
+     * Discards the staged profiles of players denied after pre-login.
+     *
+     * @param event PlayerLoginEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public static void onPlayerLogin(@NotNull PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            UUID uniqueId = event.getPlayer().getUniqueId();
+            ProfileStagingCache.discard(uniqueId);
+            ProfileFallbackCache.clearDegraded(uniqueId);
+            ProfileSnapshotCache.discard(uniqueId);
+            OfflineProfileService.release(uniqueId);
+            ProfileLeases.release(uniqueId);
+        }
+    }
+
     /**
      * Handles players joining the server.
      *
@@ -87,32 +228,47 @@ public class EventListener implements Listener {
             return;
         }
 
-        // Load player data asynchronously
-        playerData.load().thenAccept(success -> {
-            if (!success) {
-                // If loading failed, kick the player
-                player.kickPlayer(MessageUtil.colorize("&cYour data could not be loaded. Please try again."));
-                return;
-            }
+        // Attaches the profile loaded during pre-login.
+        // A save queued since then (e.g. from a previous session) is newer, so it wins.
+        PlayerSnapshot profile = PersistenceQueue.getUnsavedSnapshot(player.getUniqueId());
+        PlayerSnapshot staged = ProfileStagingCache.take(player.getUniqueId());
 
-            // The rest of the initialization happens here only after data is loaded
-            TaskUtil.runTaskLater(() -> {
-                player.setMaxHealth(20);
-                player.setHealth(20);
-                player.setGameMode(GameMode.ADVENTURE);
-                player.getInventory().setHeldItemSlot(0);
-                playerData.calcLevel(false);
-
-                // Add free kits
-                for (Kit kit : KitManager.getKits()) {
-                    if (kit.enabled() && kit.getCost() == 0) {
-                        playerData.getOwnedKits().add(kit);
-                    }
+        if (profile == null) {
+            profile = staged;
+        }
+
+        if (profile == null) {
+            // If loading failed, kick the player
+            player.kickPlayer(MessageUtil.colorize("&cYour data could not be loaded. Please try again."));
+            return;
+        }
+
+        playerData.applyProfile(profile);
+        playerData.updateSafezone(player.getLocation());
+
+        // Lets players know their data came from the local cache.
+        if (ProfileFallbackCache.isDegraded(player.getUniqueId())) {
+            MessageUtil.messagePlayer(player, "&eOur database is having trouble, so your last known stats were loaded."
+                    + " Your progress will be saved once it recovers.");
+        }
+
+        // The rest of the initialization happens on the next tick
+        TaskUtil.runTaskLater(() -> {
+            player.setMaxHealth(20);
+            player.setHealth(20);
+            player.setGameMode(GameMode.ADVENTURE);
+            player.getInventory().setHeldItemSlot(0);
+            playerData.calcLevel(false);
+
+            // Add free kits
+            for (Kit kit : KitManager.getKits()) {
+                if (kit.enabled() && kit.getCost() == 0) {
+                    playerData.getOwnedKits().add(kit);
                 }
+            }
 
-                Spawn.teleport(player);
-            }, 1L);
-        });
+            Spawn.teleport(player);
+        }, 1L);
     }
 
     /**
@@ -134,11 +290,21 @@ public class EventListener implements Listener {
         ReaperListener.removeReaperMark(playerData, true, true);
         ReaperListener.removeReaperMark(playerData, false, true);
 
-        // Saves the player's data.
+        // Queues the player's data to be saved.
         playerData.saveAll();
 
         // Removes the player's data from the map.
         PlayerDataManager.removePlayerData(player);
+
+        // Lets the player's data be changed while they're offline.
+        OfflineProfileService.release(player.getUniqueId());
+
+        // Clears the player's degraded mark, if any.
+        ProfileFallbackCache.clearDegraded(player.getUniqueId());
+        ProfileSnapshotCache.discard(player.getUniqueId());
+
+        // Hands the player's data over to other servers once it's saved.
+        ProfileLeases.releaseWhenWritten(player.getUniqueId());
     }
 
     /**
@@ -175,10 +341,10 @@ public class EventListener implements Listener {
     public static void onBowShoot(@NotNull EntityShootBowEvent event) {
         if (event.getEntity() instanceof Player) {
             Player player = (Player) event.getEntity();
-            Location location = player.getLocation();
+            PlayerData playerData = PlayerDataManager.getPlayerData(player);
 
             // Cancels the event if the player is in a safezone.
-            if (Regions.isInSafezone(location)) {
+            if (playerData.isInSafezone()) {
                 event.setCancelled(true);
                 player.updateInventory();
             }
@@ -218,7 +384,7 @@ public class EventListener implements Listener {
                         + String.format("%.01f", Math.max(receiverHealth - finalDamage, 0.0)) + "\u2764&e.");
 
                 // Removes arrows from the receiver's body.
-                TaskUtil.runTaskLater(() -> {
+                TimerWheel.schedule(() -> {
                     net.minecraft.server.v1_8_R3.Entity entity = ((CraftEntity) receiver).getHandle();
                     entity.getDataWatcher().watch(9, (byte) 0);
                 }, 100L);
@@ -299,7 +465,7 @@ public class EventListener implements Listener {
         if (event.getEntity() instanceof Player) {
             Player player = (Player) event.getEntity();
             PlayerData playerData = PlayerDataManager.getPlayerData(player);
-            BukkitTask teleportToSpawnTask = playerData.getTeleportToSpawnTask();
+            TimerHandle teleportToSpawnTask = playerData.getTeleportToSpawnTask();
 
             // Cancels pending teleportation when taking damage.
             if (teleportToSpawnTask != null) {
@@ -426,7 +592,7 @@ public class EventListener implements Listener {
 
                     if (itemName.equals(enchantName)) {
                         // Checks if the player is in spawn.
-                        if (!Regions.isInSafezone(playerLocation)) {
+                        if (!playerData.isInSafezone()) {
                             player.playSound(playerLocation, Sound.VILLAGER_NO, 1.0F, 1.0F);
                             MessageUtil.messagePlayer(player, "&cYou need to be in spawn to do this.");
                             event.setCancelled(true);
@@ -604,7 +770,7 @@ public class EventListener implements Listener {
             switch (item.getType()) {
                 case FISHING_ROD:
                     // Cancels using the fishing rod in spawn.
-                    if (Regions.isInSafezone(playerLoc)) {
+                    if (playerData.isInSafezone()) {
                         event.setCancelled(true);
                     }
                     break;
@@ -623,7 +789,7 @@ public class EventListener implements Listener {
                     }
 
                     // Cancels using potions in spawn.
-                    if (Regions.isInSafezone(playerLoc)) {
+                    if (playerData.isInSafezone()) {
                         event.setCancelled(true);
                         player.updateInventory();
                     }
@@ -643,7 +809,7 @@ public class EventListener implements Listener {
                     }
 
                     // Cancels using soup in spawn.
-                    if (Regions.isInSafezone(playerLoc)) {
+                    if (playerData.isInSafezone()) {
                         event.setCancelled(true);
                         break;
                     }
@@ -754,6 +920,10 @@ public class EventListener implements Listener {
 
         boolean playerMoved = (deltaXZ > 0.05 || Math.abs(deltaY) > 0.05);
 
+        // Updates the player's cached safe zone status, keeping whether they came from one.
+        boolean fromSafezone = playerData.isInSafezone();
+        playerData.updateSafezone(to);
+
         Vector velocity = player.getVelocity();
         double velocityY = velocity.getY();
 
@@ -788,7 +958,7 @@ public class EventListener implements Listener {
 
         // Equips the player's previously used kit when they leave spawn without a kit equipped.
         if (playerData.getActiveKit() == null && !player.isDead()
-                && !player.getAllowFlight() && !Regions.isInSafezone(from)) {
+                && !player.getAllowFlight() && !fromSafezone) {
             player.closeInventory();
 
             if (playerData.getPreviousKit() == null) {
@@ -802,9 +972,11 @@ public class EventListener implements Listener {
 
         // Denies entry into spawn while combat tagged.
         // Also heals the player whilst in a safe zone.
-        if (Regions.isInSafezone(to)) {
+        if (playerData.isInSafezone()) {
             if (Settings.combatTagDenyEnteringSpawn && CombatTag.isInCombat(player)) {
-                player.teleport(from);
+                // Cancelling sends the player back, so their cached status goes back with them.
+                event.setCancelled(true);
+                playerData.updateSafezone(from);
                 MessageUtil.messagePlayer(player, "&cYou can't enter spawn while combat tagged.");
             } else {
                 double maxHealth = player.getMaxHealth();
@@ -849,11 +1021,27 @@ public class EventListener implements Listener {
         boolean noFall = playerData.isNoFall();
         long onGroundTicks = playerData.getOnGroundTicks();
 
-        if (noFall && !Regions.isInSafezone(to) && !Regions.isInSafezone(from) && onGroundTicks == 1) {
+        // The cached safe zone status is still the one for where the player came from.
+        if (noFall && onGroundTicks == 1 && !playerData.isInSafezone() && !Regions.isInSafezone(to)) {
             playerData.setNoFall(false);
         }
     }
 
+    /**
+     * Handles players teleporting.
+     *
+     * @param event PlayerTeleportEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public static void onPlayerTeleport(@NotNull PlayerTeleportEvent event) {
+        PlayerData playerData = PlayerDataManager.getPlayerDataIfPresent(event.getPlayer().getUniqueId());
+
+        // Updates the player's cached safe zone status.
+        if (playerData != null) {
+            playerData.updateSafezone(event.getTo());
+        }
+    }
+
     /**
      * Handles players taking fall damage.
      *
@@ -864,11 +1052,10 @@ public class EventListener implements Listener {
         if (event.getEntity() instanceof Player) {
             Player player = (Player) event.getEntity();
             PlayerData playerData = PlayerDataManager.getPlayerData(player);
-            Location playerLoc = player.getLocation();
 
             // Cancels fall damage if the player has no-fall.
             if (event.getCause() == EntityDamageEvent.DamageCause.FALL) {
-                if (Regions.isInSafezone(playerLoc)) {
+                if (playerData.isInSafezone()) {
                     event.setCancelled(true);
                     return;
                 }
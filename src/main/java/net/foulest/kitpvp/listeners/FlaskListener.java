@@ -18,13 +18,13 @@
 package net.foulest.kitpvp.listeners;
 
 import lombok.Data;
-import net.foulest.kitpvp.KitPvP;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
 import net.foulest.kitpvp.util.item.ItemBuilder;
+import net.foulest.kitpvp.util.timer.TimerHandle;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
@@ -38,8 +38,6 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 
 @Data
@@ -59,29 +57,26 @@ public class FlaskListener implements Listener {
     private static void setFlaskCooldown(@NotNull PlayerData playerData) {
         Player player = playerData.getPlayer();
 
-        BukkitTask cooldownTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                // Set the player's flask back to a potion.
-                for (ItemStack item : player.getInventory().getContents()) {
-                    if (item == null
-                            || item.getItemMeta() == null
-                            || item.getItemMeta().getDisplayName() == null) {
-                        continue;
-                    }
+        TimerHandle cooldownTask = TimerWheel.schedule(() -> {
+            // Set the player's flask back to a potion.
+            for (ItemStack item : player.getInventory().getContents()) {
+                if (item == null
+                        || item.getItemMeta() == null
+                        || item.getItemMeta().getDisplayName() == null) {
+                    continue;
+                }
 
-                    int itemAmount = item.getAmount();
+                int itemAmount = item.getAmount();
 
-                    if (item.getItemMeta().getDisplayName().contains("Flask")) {
-                        FLASK.setAmount(itemAmount);
-                        player.getInventory().remove(item);
-                        player.getInventory().addItem(FLASK);
-                        player.updateInventory();
-                        return;
-                    }
+                if (item.getItemMeta().getDisplayName().contains("Flask")) {
+                    FLASK.setAmount(itemAmount);
+                    player.getInventory().remove(item);
+                    player.getInventory().addItem(FLASK);
+                    player.updateInventory();
+                    return;
                 }
             }
-        }.runTaskLater(KitPvP.instance, Settings.flaskCooldown * 20L);
+        }, Settings.flaskCooldown * 20L);
 
         // Set the Flask cooldown and regeneration tasks.
         playerData.setFlaskCooldownTask(cooldownTask);
@@ -141,7 +136,7 @@ public class FlaskListener implements Listener {
             switch (item.getType()) {
                 case POTION:
                     // Cancels using potions in spawn.
-                    if (Regions.isInSafezone(playerLoc)) {
+                    if (playerData.isInSafezone()) {
                         if (item.hasItemMeta() && item.getItemMeta().getDisplayName().contains("Flask")) {
                             MessageUtil.messagePlayer(player, "&cYou cannot use Flasks in spawn.");
                         }
@@ -18,15 +18,15 @@
 package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Archer;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
-import net.foulest.kitpvp.util.TaskUtil;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
@@ -77,13 +77,13 @@ public class ArcherListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
 
         // Ignores the event if the player's ability is on cooldown.
-        if (playerData.hasCooldown(abilityItem, true)) {
+        if (playerData.hasCooldown(Ability.ARCHER, true)) {
             return;
         }
 
@@ -101,7 +101,7 @@ public class ArcherListener implements Listener {
 
         // Gives the kit's default potion effects back after the ability duration.
         int changeCount = playerData.getChangeCount();
-        TaskUtil.runTaskLater(() -> {
+        TimerWheel.schedule(() -> {
             if (playerData.getChangeCount() == changeCount) {
                 for (PotionEffect effect : playerKit.getPotionEffects()) {
                     player.addPotionEffect(effect);
@@ -111,6 +111,6 @@ public class ArcherListener implements Listener {
 
         // Sets the player's ability cooldown.
         MessageUtil.messagePlayer(player, "&aYour ability has been used.");
-        playerData.setCooldown(playerKit, abilityItem, Settings.archerKitCooldown, true);
+        playerData.setCooldown(Ability.ARCHER, Settings.archerKitCooldown, true);
     }
 }
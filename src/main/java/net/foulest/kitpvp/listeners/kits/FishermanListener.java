@@ -19,11 +19,11 @@ package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
 import net.foulest.kitpvp.combattag.CombatTag;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Fisherman;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
@@ -55,8 +55,6 @@ public class FishermanListener implements Listener {
         Location playerLoc = player.getLocation();
         Kit playerKit = playerData.getActiveKit();
         PlayerFishEvent.State state = event.getState();
-        Material rodSpamItem = Material.RAW_FISH;
-        Material abilityItem = Material.FISHING_ROD;
 
         // Ignores the event if the player isn't using the Fisherman kit.
         if (!(playerKit instanceof Fisherman)) {
@@ -64,7 +62,7 @@ public class FishermanListener implements Listener {
         }
 
         // Ignores the event if the player is in spawn.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             event.setCancelled(true);
             return;
@@ -72,14 +70,14 @@ public class FishermanListener implements Listener {
 
         // Checks if the player has an active rod cooldown.
         if (state == PlayerFishEvent.State.FISHING
-                && playerData.hasCooldown(rodSpamItem, true)) {
+                && playerData.hasCooldown(Ability.FISHERMAN_ROD, true)) {
             event.setCancelled(true);
             return;
         }
 
         // Sets the player's rod cooldown if the state is FISHING.
         if (state == PlayerFishEvent.State.FISHING) {
-            playerData.setCooldown(playerKit, rodSpamItem, Settings.fishermanKitRodCooldown, false);
+            playerData.setCooldown(Ability.FISHERMAN_ROD, Settings.fishermanKitRodCooldown, false);
         }
 
         // Handles hooking players with the Fishing Rod.
@@ -98,7 +96,7 @@ public class FishermanListener implements Listener {
             Location targetLoc = target.getLocation();
 
             // Ignores ineligible players.
-            if (targetData.getActiveKit() == null || Regions.isInSafezone(targetLoc)) {
+            if (targetData.getActiveKit() == null || targetData.isInSafezone()) {
                 MessageUtil.messagePlayer(player, "&cYou can't hook this player.");
                 event.setCancelled(true);
                 event.getHook().remove();
@@ -111,7 +109,7 @@ public class FishermanListener implements Listener {
             // Handles players reeling other players in.
             if (event.getState() == PlayerFishEvent.State.CAUGHT_ENTITY) {
                 // Checks if the player's ability is on cooldown.
-                if (playerData.hasCooldown(abilityItem, true)) {
+                if (playerData.hasCooldown(Ability.FISHERMAN, true)) {
                     event.setCancelled(true);
                     return;
                 }
@@ -128,7 +126,7 @@ public class FishermanListener implements Listener {
 
                 // Sets the player's ability cooldown.
                 MessageUtil.messagePlayer(player, "&aYour ability has been used.");
-                playerData.setCooldown(playerKit, abilityItem, Settings.fishermanKitCooldown, true);
+                playerData.setCooldown(Ability.FISHERMAN, Settings.fishermanKitCooldown, true);
             }
         }
     }
@@ -149,7 +147,6 @@ public class FishermanListener implements Listener {
         // Player data
         Player player = (Player) event.getDamager();
         PlayerData playerData = PlayerDataManager.getPlayerData(player);
-        Location playerLoc = player.getLocation();
 
         // Target data
         Player target = (Player) event.getEntity();
@@ -159,8 +156,8 @@ public class FishermanListener implements Listener {
         // Ignores the event if the damager is not using the Jester kit.
         if (!(playerData.getActiveKit() instanceof Fisherman)
                 || targetData.getActiveKit() == null
-                || Regions.isInSafezone(playerLoc)
-                || Regions.isInSafezone(targetLoc)) {
+                || playerData.isInSafezone()
+                || targetData.isInSafezone()) {
             return;
         }
 
@@ -19,11 +19,11 @@ package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
 import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Jester;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
@@ -84,13 +84,13 @@ public class JesterListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
 
         // Ignores the event if the player's ability is on cooldown.
-        if (playerData.hasCooldown(abilityItem, true)) {
+        if (playerData.hasCooldown(Ability.JESTER, true)) {
             return;
         }
 
@@ -107,7 +107,7 @@ public class JesterListener implements Listener {
 
         // Sets the player's ability cooldown.
         MessageUtil.messagePlayer(player, "&aYour ability has been used.");
-        playerData.setCooldown(playerKit, abilityItem, Settings.jesterKitCooldown, true);
+        playerData.setCooldown(Ability.JESTER, Settings.jesterKitCooldown, true);
     }
 
     /**
@@ -190,7 +190,6 @@ public class JesterListener implements Listener {
         // Player data
         Player player = (Player) event.getDamager();
         PlayerData playerData = PlayerDataManager.getPlayerData(player);
-        Location playerLoc = player.getLocation();
 
         // Target data
         Player target = (Player) event.getEntity();
@@ -200,8 +199,8 @@ public class JesterListener implements Listener {
         // Ignores the event if the damager is not using the Jester kit.
         if (!(playerData.getActiveKit() instanceof Jester)
                 || targetData.getActiveKit() == null
-                || Regions.isInSafezone(playerLoc)
-                || Regions.isInSafezone(targetLoc)) {
+                || playerData.isInSafezone()
+                || targetData.isInSafezone()) {
             return;
         }
 
@@ -18,11 +18,11 @@
 package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Kangaroo;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
@@ -76,13 +76,13 @@ public class KangarooListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
 
         // Ignores the event if the player's ability is on cooldown.
-        if (playerData.hasCooldown(abilityItem, true)) {
+        if (playerData.hasCooldown(Ability.KANGAROO, true)) {
             return;
         }
 
@@ -106,7 +106,7 @@ public class KangarooListener implements Listener {
 
         // Sets the player's ability cooldown.
         MessageUtil.messagePlayer(player, "&aYour ability has been used.");
-        playerData.setCooldown(playerKit, abilityItem, Settings.kangarooKitCooldown, true);
+        playerData.setCooldown(Ability.KANGAROO, Settings.kangarooKitCooldown, true);
     }
 
     /**
@@ -127,19 +127,17 @@ public class KangarooListener implements Listener {
         PlayerData playerData = PlayerDataManager.getPlayerData(player);
         Location playerLoc = player.getLocation();
         ItemStack itemInHand = player.getItemInHand();
-        Material abilityItem = Material.FIREWORK;
 
         // Target data
         Player target = (Player) event.getEntity();
         PlayerData targetData = PlayerDataManager.getPlayerData(target);
-        Location targetLoc = target.getLocation();
         String targetName = target.getName();
 
         // Ignores the event if the damager is not using the Kangaroo kit.
         if (!(playerData.getActiveKit() instanceof Kangaroo)
                 || targetData.getActiveKit() == null
-                || Regions.isInSafezone(playerLoc)
-                || Regions.isInSafezone(targetLoc)) {
+                || playerData.isInSafezone()
+                || targetData.isInSafezone()) {
             return;
         }
 
@@ -156,7 +154,7 @@ public class KangarooListener implements Listener {
         // 1a. Deal +150% damage to the target.
 
         // 1. If the player is airborne and has a cooldown...
-        if (playerData.isNoFall() && playerData.hasCooldown(abilityItem, false)) {
+        if (playerData.isNoFall() && playerData.hasCooldown(Ability.KANGAROO, false)) {
             // 1a. Deal +200% damage to the target.
             MessageUtil.messagePlayer(player, "&aYou landed a critical hit on &e" + targetName + "&a!");
             player.getWorld().playSound(playerLoc, Sound.ITEM_BREAK, 1, 1);
@@ -18,13 +18,14 @@
 package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Mage;
 import net.foulest.kitpvp.kits.type.Pyro;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.*;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.Effect;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -80,13 +81,13 @@ public class MageListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
 
         // Ignores the event if the player's ability is on cooldown.
-        if (playerData.hasCooldown(abilityItem, true)) {
+        if (playerData.hasCooldown(Ability.MAGE, true)) {
             return;
         }
 
@@ -97,7 +98,7 @@ public class MageListener implements Listener {
         if (nearbyPlayers.isEmpty()) {
             player.playSound(playerLoc, Sound.VILLAGER_NO, 1, 1);
             MessageUtil.messagePlayer(player, "&cAbility failed: no players nearby.");
-            playerData.setCooldown(playerKit, abilityItem, 3, true);
+            playerData.setCooldown(Ability.MAGE, 3, true);
             return;
         }
 
@@ -118,7 +119,7 @@ public class MageListener implements Listener {
 
             // Gives the kit's default potion effects back after the ability duration.
             int changeCount = targetData.getChangeCount();
-            TaskUtil.runTaskLater(() -> {
+            TimerWheel.schedule(() -> {
                 if (targetData.getChangeCount() == changeCount) {
                     for (PotionEffect effect : targetKit.getPotionEffects()) {
                         target.addPotionEffect(effect);
@@ -130,7 +131,7 @@ public class MageListener implements Listener {
         // Sets the player's ability cooldown.
         player.playSound(playerLoc, Sound.FIZZ, 1, 1);
         MessageUtil.messagePlayer(player, "&aYour ability has been used.");
-        playerData.setCooldown(playerKit, abilityItem, Settings.mageKitCooldown, true);
+        playerData.setCooldown(Ability.MAGE, Settings.mageKitCooldown, true);
     }
 
     /**
@@ -19,11 +19,11 @@ package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
 import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Pyro;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
@@ -85,13 +85,13 @@ public class PyroListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
 
         // Ignores the event if the player's ability is on cooldown.
-        if (playerData.hasCooldown(abilityItem, true)) {
+        if (playerData.hasCooldown(Ability.PYRO, true)) {
             return;
         }
 
@@ -111,7 +111,7 @@ public class PyroListener implements Listener {
 
         // Sets the player's ability cooldown.
         MessageUtil.messagePlayer(player, "&aYour ability has been used.");
-        playerData.setCooldown(playerKit, abilityItem, Settings.pyroKitCooldown, true);
+        playerData.setCooldown(Ability.PYRO, Settings.pyroKitCooldown, true);
     }
 
     /**
@@ -259,7 +259,6 @@ public class PyroListener implements Listener {
         // Player data
         Player player = (Player) event.getDamager();
         PlayerData playerData = PlayerDataManager.getPlayerData(player);
-        Location playerLoc = player.getLocation();
 
         // Target data
         Player target = (Player) event.getEntity();
@@ -270,8 +269,8 @@ public class PyroListener implements Listener {
         // Ignores the event if the damager is not using the Pyro kit.
         if (!(playerData.getActiveKit() instanceof Pyro)
                 || targetData.getActiveKit() == null
-                || Regions.isInSafezone(playerLoc)
-                || Regions.isInSafezone(targetLoc)) {
+                || playerData.isInSafezone()
+                || targetData.isInSafezone()) {
             return;
         }
 
@@ -19,15 +19,15 @@ package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
 import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Reaper;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
-import net.foulest.kitpvp.util.TaskUtil;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
@@ -81,13 +81,13 @@ public class ReaperListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
 
         // Ignores the event if the player's ability is on cooldown.
-        if (playerData.hasCooldown(abilityItem, true)) {
+        if (playerData.hasCooldown(Ability.REAPER, true)) {
             return;
         }
 
@@ -105,7 +105,7 @@ public class ReaperListener implements Listener {
 
         // Sets the player's ability cooldown.
         MessageUtil.messagePlayer(player, "&aYour active mark has been cleared.");
-        playerData.setCooldown(playerKit, abilityItem, Settings.reaperKitCooldown, false);
+        playerData.setCooldown(Ability.REAPER, Settings.reaperKitCooldown, false);
     }
 
     /**
@@ -124,7 +124,6 @@ public class ReaperListener implements Listener {
         // Player data
         Player player = (Player) event.getDamager();
         PlayerData playerData = PlayerDataManager.getPlayerData(player);
-        Location playerLoc = player.getLocation();
 
         // Target data
         Player target = (Player) event.getEntity();
@@ -135,8 +134,8 @@ public class ReaperListener implements Listener {
         // Ignores the event if the damager is not using the Reaper kit.
         if (!(playerData.getActiveKit() instanceof Reaper)
                 || targetData.getActiveKit() == null
-                || Regions.isInSafezone(playerLoc)
-                || Regions.isInSafezone(targetLoc)) {
+                || playerData.isInSafezone()
+                || targetData.isInSafezone()) {
             return;
         }
 
@@ -174,7 +173,7 @@ public class ReaperListener implements Listener {
         target.setMetadata("reaperMark", new FixedMetadataValue(KitPvP.getInstance(), true));
 
         // Remove the mark after the designated time.
-        TaskUtil.runTaskLater(() -> {
+        TimerWheel.schedule(() -> {
             if (target.hasMetadata("reaperMark")) {
                 MessageUtil.messagePlayer(player, "&aYour mark on &e" + targetName + " &ahas expired.");
                 removeReaperMark(targetData, false, true);
@@ -252,7 +251,7 @@ public class ReaperListener implements Listener {
             playerData.setActiveReaperMark(null);
 
             if (messageTarget) {
-                if (!Regions.isInSafezone(location)) {
+                if (!PlayerDataManager.getPlayerData(reaperMark).isInSafezone()) {
                     MessageUtil.messagePlayer(reaperMark, "&aYou are no longer marked by a Reaper.");
                 }
 
@@ -266,7 +265,7 @@ public class ReaperListener implements Listener {
             player.getWorld().playSound(location, Sound.FIZZ, 1, 1);
             player.removeMetadata("reaperMark", KitPvP.getInstance());
 
-            if (messageTarget && !Regions.isInSafezone(location)) {
+            if (messageTarget && !playerData.isInSafezone()) {
                 MessageUtil.messagePlayer(player, "&aYou are no longer marked by a Reaper.");
             }
 
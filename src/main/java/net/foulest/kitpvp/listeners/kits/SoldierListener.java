@@ -23,11 +23,10 @@ import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Soldier;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
-import net.foulest.kitpvp.util.TaskUtil;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
@@ -176,7 +175,7 @@ public class SoldierListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
@@ -199,7 +198,7 @@ public class SoldierListener implements Listener {
         player.setMetadata("buffBanner", new FixedMetadataValue(KitPvP.getInstance(), true));
 
         // Remove the metadata after the designated time.
-        TaskUtil.runTaskLater(() -> {
+        TimerWheel.schedule(() -> {
             if (player.hasMetadata("buffBanner")) {
                 player.removeMetadata("buffBanner", KitPvP.getInstance());
                 player.playSound(playerLoc, Sound.CREEPER_DEATH, 1, 1);
@@ -242,7 +241,7 @@ public class SoldierListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
@@ -267,7 +266,7 @@ public class SoldierListener implements Listener {
 
         // Gives the kit's default potion effects back after the ability duration.
         int changeCount = playerData.getChangeCount();
-        TaskUtil.runTaskLater(() -> {
+        TimerWheel.schedule(() -> {
             player.playSound(playerLoc, Sound.CREEPER_DEATH, 1, 1);
             MessageUtil.messagePlayer(player, "&cYour rage meter is back to normal.");
 
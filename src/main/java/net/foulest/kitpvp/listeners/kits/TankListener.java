@@ -18,15 +18,15 @@
 package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Tank;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
-import net.foulest.kitpvp.util.TaskUtil;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
@@ -80,13 +80,13 @@ public class TankListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
 
         // Ignores the event if the player's ability is on cooldown.
-        if (playerData.hasCooldown(abilityItem, true)) {
+        if (playerData.hasCooldown(Ability.TANK, true)) {
             return;
         }
 
@@ -108,7 +108,7 @@ public class TankListener implements Listener {
         player.addPotionEffect(new PotionEffect(PotionEffectType.DAMAGE_RESISTANCE, Settings.tankKitDuration * 20, 2));
 
         // 3. Create a task that restores the Tank's slowness.
-        TaskUtil.runTaskLater(() -> {
+        TimerWheel.schedule(() -> {
             if (playerData.getActiveKit() instanceof Tank) {
                 MessageUtil.messagePlayer(player, "&cYour effects have been restored.");
                 player.removePotionEffect(PotionEffectType.SLOW);
@@ -118,7 +118,7 @@ public class TankListener implements Listener {
 
         // 4. Sets the player's ability cooldown.
         MessageUtil.messagePlayer(player, "&aYour ability has been used.");
-        playerData.setCooldown(playerKit, abilityItem, Settings.tankKitCooldown, true);
+        playerData.setCooldown(Ability.TANK, Settings.tankKitCooldown, true);
     }
 
     /**
@@ -18,15 +18,15 @@
 package net.foulest.kitpvp.listeners.kits;
 
 import lombok.Data;
+import net.foulest.kitpvp.cooldown.Ability;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Vampire;
-import net.foulest.kitpvp.region.Regions;
 import net.foulest.kitpvp.util.ConstantUtil;
 import net.foulest.kitpvp.util.MessageUtil;
 import net.foulest.kitpvp.util.Settings;
-import net.foulest.kitpvp.util.TaskUtil;
+import net.foulest.kitpvp.util.timer.TimerWheel;
 import org.bukkit.*;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
@@ -184,13 +184,13 @@ public class VampireListener implements Listener {
         }
 
         // Ignores the event if the player is in a safe zone.
-        if (Regions.isInSafezone(playerLoc)) {
+        if (playerData.isInSafezone()) {
             MessageUtil.messagePlayer(player, ConstantUtil.ABILITY_IN_SPAWN);
             return;
         }
 
         // Ignores the event if the player's ability is on cooldown.
-        if (playerData.hasCooldown(abilityItem, true)) {
+        if (playerData.hasCooldown(Ability.VAMPIRE, true)) {
             return;
         }
 
@@ -216,7 +216,7 @@ public class VampireListener implements Listener {
 
         // Create a task that restores the player's visibility.
         int changeCount = playerData.getChangeCount();
-        TaskUtil.runTaskLater(() -> {
+        TimerWheel.schedule(() -> {
             if (playerData.getChangeCount() == changeCount) {
                 player.getWorld().playSound(playerLoc, Sound.BAT_IDLE, 1, 1);
                 player.removePotionEffect(PotionEffectType.INVISIBILITY);
@@ -238,7 +238,7 @@ public class VampireListener implements Listener {
         playerData.setNoFall(true);
         player.getWorld().playSound(playerLoc, Sound.BAT_DEATH, 1, 1);
         MessageUtil.messagePlayer(player, "&aYou are now invisible.");
-        playerData.setCooldown(playerKit, abilityItem, Settings.vampireKitCooldown, true);
+        playerData.setCooldown(Ability.VAMPIRE, Settings.vampireKitCooldown, true);
     }
 
     /**
@@ -17,27 +17,32 @@
  */
 package net.foulest.kitpvp.region;
 
-import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldguard.bukkit.RegionContainer;
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
-import com.sk89q.worldguard.protection.flags.DefaultFlag;
-import com.sk89q.worldguard.protection.flags.StateFlag;
 import com.sk89q.worldguard.protection.managers.RegionManager;
-import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.data.PlayerData;
+import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.util.MessageUtil;
-import net.minecraft.server.v1_8_R3.AxisAlignedBB;
-import net.minecraft.server.v1_8_R3.BlockPosition;
-import net.minecraft.server.v1_8_R3.Vec3D;
+import net.foulest.kitpvp.util.Settings;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.Level;
 
 /**
  * Utility class for handling WorldGuard regions.
+ * <p>
+ * The spawn world's safe zones are compiled into a {@link SafezoneIndex},
+ * which is rebuilt periodically to pick up regions that were changed.
+ * Players' own status is cached in their {@link PlayerData}.
  *
  * @author Foulest
  */
@@ -45,59 +50,127 @@ import java.util.logging.Level;
 public class Regions {
 
     private static final WorldGuardPlugin worldGuard = WorldGuardPlugin.inst();
-    private static Map<String, ProtectedRegion> regionMap = new HashMap<>();
+
+    /**
+     * The current safe zone index.
+     */
+    private static volatile SafezoneIndex safezones = SafezoneIndex.EMPTY;
+
+    /**
+     * The task rebuilding the safe zone index.
+     */
+    private static @Nullable BukkitTask refreshTask;
 
     /**
      * Caches WorldGuard regions for later use.
      */
     static void cacheRegions() {
-        World world = Spawn.getLocation().getWorld();
-        RegionContainer container = worldGuard.getRegionContainer();
-        RegionManager regionManager = container.get(world);
-
-        if (regionManager == null) {
+        if (!rebuildIndex()) {
             MessageUtil.log(Level.WARNING, "ERROR: No regions found.");
+        }
+    }
+
+    /**
+     * Starts rebuilding the safe zone index periodically.
+     * Rebuilding is disabled if the interval is zero.
+     */
+    public static void start() {
+        if (refreshTask != null || Settings.safezoneRefreshInterval <= 0) {
             return;
         }
 
-        regionMap = regionManager.getRegions();
+        long period = Settings.safezoneRefreshInterval * 20L;
+
+        refreshTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                rebuildIndex();
+            }
+        }.runTaskTimer(KitPvP.instance, period, period);
+    }
+
+    /**
+     * Stops rebuilding the safe zone index.
+     */
+    public static void stop() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
     }
 
     /**
      * Checks if a location is inside a safe zone (as defined by WorldGuard regions).
+     * The center of the location's block is checked, like {@link #getSafezoneId(Location)}.
      *
      * @param loc The location to check.
      * @return True if the location is in a safe zone, false otherwise.
      */
-    public static boolean isInSafezone(Location loc) {
-        for (Map.Entry<String, ProtectedRegion> regions : regionMap.entrySet()) {
-            ProtectedRegion region = regions.getValue();
-            BlockVector regionMin = region.getMinimumPoint();
-            BlockVector regionMax = region.getMaximumPoint();
+    public static boolean isInSafezone(@NotNull Location loc) {
+        return getSafezoneId(loc) != null;
+    }
 
-            double minX = regionMin.getX();
-            double minY = regionMin.getY();
-            double minZ = regionMin.getZ();
+    /**
+     * Gets the id of the safe zone region containing a location.
+     * <p>
+     * The center of the location's block is checked, so every position in
+     * a block gets the same answer as a player's cached safe zone status.
+     *
+     * @param loc The location to check.
+     * @return The region id, or null if the location isn't in a safe zone.
+     */
+    public static @Nullable String getSafezoneId(@NotNull Location loc) {
+        return getSafezoneId(loc.getBlockX() + 0.5, loc.getBlockY() + 0.5, loc.getBlockZ() + 0.5);
+    }
 
-            double maxX = regionMax.getX();
-            double maxY = regionMax.getY();
-            double maxZ = regionMax.getZ();
+    /**
+     * Gets the id of the safe zone region containing a position.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param z The z coordinate.
+     * @return The region id, or null if the position isn't in a safe zone.
+     */
+    public static @Nullable String getSafezoneId(double x, double y, double z) {
+        SafezoneIndex index = safezones;
+        int zone = index.find(x, y, z);
+        return zone == -1 ? null : index.getRegionId(zone);
+    }
 
-            AxisAlignedBB regionZone = new AxisAlignedBB(
-                    new BlockPosition(minX, minY, minZ),
-                    new BlockPosition((maxX + 1), maxY, (maxZ + 1))
-            );
+    /**
+     * Gets the number of safe zones in the index.
+     *
+     * @return The safe zone count.
+     */
+    public static int getSafezoneCount() {
+        return safezones.size();
+    }
+
+    /**
+     * Compiles the spawn world's regions into a new safe zone index.
+     *
+     * @return Whether the spawn world's regions were found.
+     */
+    private static boolean rebuildIndex() {
+        World world = Spawn.getLocation().getWorld();
+        RegionContainer container = worldGuard.getRegionContainer();
+        RegionManager regionManager = container.get(world);
+
+        if (regionManager == null) {
+            safezones = SafezoneIndex.EMPTY;
+            return false;
+        }
 
-            double locX = loc.getX();
-            double locY = loc.getY();
-            double locZ = loc.getZ();
+        safezones = new SafezoneIndex(regionManager.getRegions().values());
 
-            Vec3D vec3D = new Vec3D(locX, locY, locZ);
+        // Updates the cached safe zone status of online players.
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            PlayerData playerData = PlayerDataManager.getPlayerDataIfPresent(player.getUniqueId());
 
-            if (regionZone.a(vec3D) && region.getFlag(DefaultFlag.PVP) == StateFlag.State.DENY) {
-                return true;
+            if (playerData != null) {
+                playerData.refreshSafezone(player.getLocation());
             }
         }
-        return false;
+        return true;
     }
 }
@@ -0,0 +1,267 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.region;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldguard.protection.flags.DefaultFlag;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * An immutable index of the safe zones (regions denying PVP).
+ * <p>
+ * Each safe zone's bounds are stored in a primitive array and bucketed by
+ * chunk in an open-addressing table, so a lookup only compares against the
+ * safe zones overlapping the location's chunk and allocates nothing.
+ * Safe zones spanning too many chunks to bucket are checked on every lookup.
+ *
+ * @author Foulest
+ */
+final class SafezoneIndex {
+
+    /**
+     * An index without any safe zones.
+     */
+    static final SafezoneIndex EMPTY = new SafezoneIndex(Collections.emptyList());
+
+    /**
+     * The most chunks a safe zone can span and still be bucketed.
+     */
+    private static final int MAX_BUCKETED_CHUNKS = 1024;
+
+    /**
+     * The number of bounds stored per safe zone (min x, y, z and max x, y, z).
+     */
+    private static final int BOUNDS_SIZE = 6;
+
+    /**
+     * The region id of each safe zone.
+     */
+    private final String[] regionIds;
+
+    /**
+     * The bounds of each safe zone, {@link #BOUNDS_SIZE} values apiece.
+     */
+    private final double[] bounds;
+
+    /**
+     * The chunk key of each table slot.
+     */
+    private final long[] cellKeys;
+
+    /**
+     * The safe zones overlapping each table slot's chunk, or null if the slot is empty.
+     */
+    private final int[][] cellZones;
+
+    /**
+     * The mask turning a hash into a table slot.
+     */
+    private final int cellMask;
+
+    /**
+     * The safe zones too large to bucket.
+     */
+    private final int[] largeZones;
+
+    /**
+     * Compiles the safe zones out of a world's regions.
+     *
+     * @param regions The world's regions.
+     */
+    SafezoneIndex(@NotNull Collection<ProtectedRegion> regions) {
+        List<String> ids = new ArrayList<>();
+        List<double[]> boxes = new ArrayList<>();
+
+        for (ProtectedRegion region : regions) {
+            if (region.getFlag(DefaultFlag.PVP) != StateFlag.State.DENY) {
+                continue;
+            }
+
+            BlockVector regionMin = region.getMinimumPoint();
+            BlockVector regionMax = region.getMaximumPoint();
+
+            // Covers the region's blocks horizontally, and up to its top block's base vertically.
+            double[] box = {
+                    regionMin.getX(), regionMin.getY(), regionMin.getZ(),
+                    regionMax.getX() + 1, regionMax.getY(), regionMax.getZ() + 1
+            };
+
+            // Skips regions that can't contain anything, such as the global region.
+            if (box[0] >= box[3] || box[1] >= box[4] || box[2] >= box[5]) {
+                continue;
+            }
+
+            ids.add(region.getId());
+            boxes.add(box);
+        }
+
+        regionIds = ids.toArray(new String[0]);
+        bounds = new double[boxes.size() * BOUNDS_SIZE];
+
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        List<Integer> large = new ArrayList<>();
+
+        for (int zone = 0; zone < boxes.size(); zone++) {
+            double[] box = boxes.get(zone);
+            System.arraycopy(box, 0, bounds, zone * BOUNDS_SIZE, BOUNDS_SIZE);
+
+            int minChunkX = (int) Math.floor(box[0]) >> 4;
+            int minChunkZ = (int) Math.floor(box[2]) >> 4;
+            int maxChunkX = (int) Math.floor(box[3]) >> 4;
+            int maxChunkZ = (int) Math.floor(box[5]) >> 4;
+            long chunkCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+
+            if (chunkCount > MAX_BUCKETED_CHUNKS) {
+                large.add(zone);
+                continue;
+            }
+
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    cells.computeIfAbsent(getChunkKey(chunkX, chunkZ), key -> new ArrayList<>()).add(zone);
+                }
+            }
+        }
+
+        // Keeps the table at most half full, so every probe reaches an empty slot.
+        int capacity = Integer.highestOneBit(Math.max(1, cells.size() * 2 - 1)) << 1;
+        cellKeys = new long[capacity];
+        cellZones = new int[capacity][];
+        cellMask = capacity - 1;
+
+        for (Map.Entry<Long, List<Integer>> cell : cells.entrySet()) {
+            long key = cell.getKey();
+            int slot = hash(key) & cellMask;
+
+            while (cellZones[slot] != null) {
+                slot = (slot + 1) & cellMask;
+            }
+
+            cellKeys[slot] = key;
+            cellZones[slot] = toArray(cell.getValue());
+        }
+
+        largeZones = toArray(large);
+    }
+
+    /**
+     * Finds the safe zone containing a position.
+     * Positions on a safe zone's edge are outside it.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param z The z coordinate.
+     * @return The safe zone's index, or -1 if the position isn't in a safe zone.
+     */
+    int find(double x, double y, double z) {
+        long key = getChunkKey((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+
+        for (int slot = hash(key) & cellMask; cellZones[slot] != null; slot = (slot + 1) & cellMask) {
+            if (cellKeys[slot] == key) {
+                int zone = findIn(cellZones[slot], x, y, z);
+
+                if (zone != -1) {
+                    return zone;
+                }
+                break;
+            }
+        }
+        return findIn(largeZones, x, y, z);
+    }
+
+    /**
+     * Gets the region id of a safe zone.
+     *
+     * @param zone The safe zone's index.
+     * @return The region id.
+     */
+    @NotNull String getRegionId(int zone) {
+        return regionIds[zone];
+    }
+
+    /**
+     * Gets the number of safe zones.
+     *
+     * @return The safe zone count.
+     */
+    int size() {
+        return regionIds.length;
+    }
+
+    /**
+     * Finds the safe zone containing a position among some safe zones.
+     *
+     * @param zones The safe zones to check.
+     * @param x     The x coordinate.
+     * @param y     The y coordinate.
+     * @param z     The z coordinate.
+     * @return The safe zone's index, or -1 if none contain the position.
+     */
+    private int findIn(int @NotNull [] zones, double x, double y, double z) {
+        for (int zone : zones) {
+            int offset = zone * BOUNDS_SIZE;
+
+            if (x > bounds[offset] && x < bounds[offset + 3]
+                    && y > bounds[offset + 1] && y < bounds[offset + 4]
+                    && z > bounds[offset + 2] && z < bounds[offset + 5]) {
+                return zone;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the key of a chunk.
+     *
+     * @param chunkX The chunk's x coordinate.
+     * @param chunkZ The chunk's z coordinate.
+     * @return The chunk key.
+     */
+    private static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Spreads a chunk key's bits for the table.
+     *
+     * @param key The chunk key.
+     * @return The hash.
+     */
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * Converts a list of indexes to an array.
+     *
+     * @param indexes The indexes.
+     * @return The index array.
+     */
+    private static int @NotNull [] toArray(@NotNull List<Integer> indexes) {
+        int[] array = new int[indexes.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = indexes.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.region;
+
+import lombok.Getter;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Called when a player leaves a safe zone.
+ * <p>
+ * Fired from the player's cached safe zone status, which is updated when
+ * they move into another block or teleport.
+ *
+ * @author Foulest
+ */
+@Getter
+public class SafezoneLeaveEvent extends PlayerEvent {
+
+    private static final HandlerList handlers = new HandlerList();
+
+    /**
+     * The id of the safe zone region the player left.
+     */
+    private final String regionId;
+
+    /**
+     * Creates a new safe zone leave event.
+     *
+     * @param player   The player.
+     * @param regionId The id of the safe zone region the player left.
+     */
+    public SafezoneLeaveEvent(@NotNull Player player, @NotNull String regionId) {
+        super(player);
+        this.regionId = regionId;
+    }
+
+    /**
+     * Gets the handlers of this event.
+     *
+     * @return The handler list.
+     */
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Gets the handlers of this event type.
+     *
+     * @return The handler list.
+     */
+    public static @NotNull HandlerList getHandlerList() {
+        return handlers;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.data.PlayerData;
+import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Periodically saves the data of online players.
+ * <p>
+ * Each cycle spreads the online players evenly across the autosave
+ * interval, saving a small slice every second instead of everyone at once.
+ * Players whose data hasn't changed since their last save are skipped,
+ * and the writes themselves go through the {@link PersistenceQueue}.
+ *
+ * @author Foulest
+ */
+@Data
+public class AutoSaveScheduler {
+
+    /**
+     * The players left to save in the current cycle.
+     */
+    private static final Deque<UUID> remaining = new ArrayDeque<>();
+
+    /**
+     * The task saving each slice.
+     */
+    private static @Nullable BukkitTask task;
+
+    /**
+     * The number of players saved per second in the current cycle.
+     */
+    private static int sliceSize;
+
+    // Current cycle
+    private static long cycleStartTime;
+    private static long cycleMainThreadNanos;
+    private static int cycleSaved;
+    private static int cycleUnchanged;
+
+    // Metrics
+    private static long cycles;
+    private static long lastCycleMillis;
+    private static final LatencyStats mainThreadLatency = new LatencyStats();
+
+    /**
+     * Starts the autosave task.
+     * Autosaving is disabled if the interval is zero.
+     */
+    public static void start() {
+        if (task != null || Settings.autoSaveInterval <= 0) {
+            return;
+        }
+
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                saveSlice();
+            }
+        }.runTaskTimer(KitPvP.instance, 20L, 20L);
+    }
+
+    /**
+     * Stops the autosave task and discards the current cycle.
+     */
+    public static void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        remaining.clear();
+    }
+
+    /**
+     * Gets the number of completed autosave cycles.
+     *
+     * @return The cycle count.
+     */
+    public static long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * Gets how long the last cycle took from start to finish.
+     *
+     * @return The cycle duration in milliseconds.
+     */
+    public static long getLastCycleMillis() {
+        return lastCycleMillis;
+    }
+
+    /**
+     * Gets the main thread time spent on each cycle.
+     *
+     * @return The main thread latency stats.
+     */
+    public static LatencyStats getMainThreadLatency() {
+        return mainThreadLatency;
+    }
+
+    /**
+     * Saves the next slice of players, starting a new cycle when the last one has finished.
+     */
+    private static void saveSlice() {
+        if (remaining.isEmpty()) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                remaining.add(player.getUniqueId());
+            }
+
+            if (remaining.isEmpty()) {
+                return;
+            }
+
+            // Spreads the players across the interval, saving at least one per second.
+            sliceSize = (int) Math.max(1, (remaining.size() + Settings.autoSaveInterval - 1) / Settings.autoSaveInterval);
+            cycleStartTime = System.currentTimeMillis();
+            cycleMainThreadNanos = 0;
+            cycleSaved = 0;
+            cycleUnchanged = 0;
+        }
+
+        long startTime = System.nanoTime();
+
+        for (int i = 0; i < sliceSize && !remaining.isEmpty(); i++) {
+            Player player = Bukkit.getPlayer(remaining.poll());
+
+            // Skips players who left or whose data hasn't loaded yet.
+            if (player == null || !PlayerDataManager.hasPlayerData(player)) {
+                continue;
+            }
+
+            PlayerData playerData = PlayerDataManager.getPlayerData(player);
+
+            if (playerData.getSavedSnapshot() == null) {
+                continue;
+            }
+
+            if (playerData.saveIfChanged()) {
+                cycleSaved++;
+            } else {
+                cycleUnchanged++;
+            }
+        }
+
+        cycleMainThreadNanos += System.nanoTime() - startTime;
+
+        if (remaining.isEmpty()) {
+            finishCycle();
+        }
+    }
+
+    /**
+     * Records and reports the metrics of the finished cycle.
+     */
+    private static void finishCycle() {
+        cycles++;
+        lastCycleMillis = System.currentTimeMillis() - cycleStartTime;
+        mainThreadLatency.record(cycleMainThreadNanos);
+
+        MessageUtil.log(Level.INFO, "Autosave finished: " + cycleSaved + " saved, " + cycleUnchanged
+                + " unchanged in " + lastCycleMillis + "ms (" + String.format("%.2f", cycleMainThreadNanos / 1_000_000.0)
+                + "ms on the main thread).");
+    }
+}
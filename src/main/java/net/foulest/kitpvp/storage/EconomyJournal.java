@@ -0,0 +1,503 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of balance changes, kept in a memory-mapped file.
+ * <p>
+ * Every balance change handed to the {@link PersistenceQueue} is appended
+ * as a numbered entry, tagged with the key of the save that will write it. Appending only
+ * copies the entry into the mapped file, so it survives a crash of the
+ * server without a system call; the file is forced to disk in the
+ * background every commit interval (group commit).
+ * <p>
+ * Whenever the persistence queue is idle, every journaled balance is in
+ * the database, so the last entry's number is stored as the checkpoint
+ * and the journal starts over. Only the entries of dropped saves are
+ * carried over, until a later save writes the player's balance.
+ * After a crash, the entries newer than the checkpoint are replayed
+ * into the database on startup: the newest balance of each player,
+ * or in delta mode, the changes of every save whose key wasn't recorded.
+ *
+ * @author Foulest
+ */
+@Data
+public class EconomyJournal {
+
+    /**
+     * Identifies the file as an economy journal ("KPJ1").
+     */
+    private static final int MAGIC = 0x4B504A31;
+
+    /**
+     * The version of the entry layout.
+     */
+    private static final int VERSION = 3;
+
+    // Header layout
+    private static final int CHECKPOINT_OFFSET = 8;
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * The size of an entry: sequence, UUID, write key, balance, change and checksum, padded.
+     */
+    static final int ENTRY_SIZE = 64;
+
+    /**
+     * The number of bytes covered by an entry's checksum, which is stored right after them.
+     */
+    private static final int CHECKSUMMED_SIZE = 48;
+
+    /**
+     * Guards the mapped file and the write offset.
+     */
+    private static final Object lock = new Object();
+
+    /**
+     * The buffer each entry is assembled and checksummed in.
+     */
+    private static final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+    private static final CRC32 checksum = new CRC32();
+
+    private static @Nullable FileChannel channel;
+    private static @Nullable MappedByteBuffer buffer;
+    private static @Nullable ScheduledExecutorService committer;
+
+    /**
+     * Where the next entry is written.
+     */
+    private static int writeOffset;
+
+    /**
+     * The sequence number of the last entry.
+     */
+    private static volatile long sequence;
+
+    /**
+     * The sequence number of the last entry known to be in the database.
+     */
+    private static long checkpoint;
+
+    /**
+     * The sequence number of the last entry carried over by the last checkpoint.
+     */
+    private static long carriedSequence;
+
+    // Metrics
+    private static final AtomicLong appendedEntries = new AtomicLong();
+    private static final AtomicLong droppedEntries = new AtomicLong();
+    private static final AtomicLong commits = new AtomicLong();
+    private static final AtomicLong replayedEntries = new AtomicLong();
+
+    /**
+     * Opens the journal, replaying it into the database if the server didn't shut down cleanly.
+     * Must be called after the database is loaded and before players can join.
+     */
+    public static void open() {
+        if (!Settings.economyJournalEnabled || channel != null) {
+            return;
+        }
+
+        File file = new File(Settings.economyJournalPath);
+        int size = HEADER_SIZE + Math.max(1, Settings.economyJournalSize * 1024 / ENTRY_SIZE) * ENTRY_SIZE;
+
+        try {
+            boolean created = file.createNewFile();
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+
+            if (created || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(CHECKPOINT_OFFSET, 0L);
+            } else {
+                replay();
+            }
+
+            // Starts over now that every entry is in the database.
+            synchronized (lock) {
+                buffer.putLong(CHECKPOINT_OFFSET, checkpoint);
+                writeOffset = HEADER_SIZE;
+                carriedSequence = sequence;
+            }
+
+            buffer.force();
+        } catch (IOException | SQLException ex) {
+            MessageUtil.log(Level.SEVERE, "Failed to open the economy journal; balances are not journaled.");
+            ex.printStackTrace();
+            closeChannel();
+            return;
+        }
+
+        committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KitPvP Economy Journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = Math.max(1, Settings.economyJournalCommitInterval);
+        committer.scheduleWithFixedDelay(EconomyJournal::commit, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends a balance change to the journal.
+     * Called by the persistence queue while holding its lock.
+     *
+     * @param uniqueId The player's UUID.
+     * @param writeKey The key of the save that will write the change.
+     * @param coins    The player's new balance.
+     * @param delta    The change in the player's balance.
+     */
+    static void append(@NotNull UUID uniqueId, @NotNull UUID writeKey, int coins, int delta) {
+        synchronized (lock) {
+            if (buffer == null) {
+                return;
+            }
+
+            if (writeOffset + ENTRY_SIZE > buffer.capacity()) {
+                // Starts over if every entry is already in the database.
+                if (checkpoint == sequence) {
+                    writeOffset = HEADER_SIZE;
+                } else {
+                    if (droppedEntries.getAndIncrement() == 0) {
+                        MessageUtil.log(Level.WARNING, "The economy journal is full; balance changes aren't journaled until the database catches up.");
+                    }
+                    return;
+                }
+            }
+
+            long entrySequence = sequence + 1;
+            writeEntry(buffer, writeOffset, entrySequence, uniqueId, writeKey, coins, delta);
+
+            writeOffset += ENTRY_SIZE;
+            sequence = entrySequence;
+            appendedEntries.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes an entry into the journal.
+     *
+     * @param target        The journal's buffer.
+     * @param offset        Where to write the entry.
+     * @param entrySequence The entry's sequence number.
+     * @param uniqueId      The player's UUID.
+     * @param writeKey      The key of the save that will write the change.
+     * @param coins         The player's new balance.
+     * @param delta         The change in the player's balance.
+     */
+    static void writeEntry(@NotNull ByteBuffer target, int offset, long entrySequence, @NotNull UUID uniqueId,
+                           @NotNull UUID writeKey, int coins, int delta) {
+        synchronized (lock) {
+            entry.clear();
+            entry.putLong(0, entrySequence);
+            entry.putLong(8, uniqueId.getMostSignificantBits());
+            entry.putLong(16, uniqueId.getLeastSignificantBits());
+            entry.putLong(24, writeKey.getMostSignificantBits());
+            entry.putLong(32, writeKey.getLeastSignificantBits());
+            entry.putInt(40, coins);
+            entry.putInt(44, delta);
+
+            checksum.reset();
+            checksum.update(entry.array(), 0, CHECKSUMMED_SIZE);
+            entry.putInt(CHECKSUMMED_SIZE, (int) checksum.getValue());
+
+            for (int i = 0; i < CHECKSUMMED_SIZE + 4; i++) {
+                target.put(offset + i, entry.get(i));
+            }
+        }
+    }
+
+    /**
+     * Forces the journal to disk, then checkpoints it if everything has been written.
+     * Runs on the journal thread every commit interval.
+     */
+    private static void commit() {
+        MappedByteBuffer mapped = buffer;
+
+        if (mapped == null) {
+            return;
+        }
+
+        try {
+            mapped.force();
+            commits.incrementAndGet();
+
+            if (PersistenceQueue.runIfIdle(EconomyJournal::markCheckpoint)) {
+                mapped.force();
+            }
+        } catch (RuntimeException ex) {
+            MessageUtil.log(Level.WARNING, "Failed to commit the economy journal.");
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Stores the last entry as the checkpoint and starts the journal over,
+     * carrying over the entries of dropped saves.
+     * Only called while the persistence queue is idle.
+     */
+    private static void markCheckpoint() {
+        synchronized (lock) {
+            if (buffer == null || sequence == carriedSequence) {
+                return;
+            }
+
+            // Copies out the entries of dropped saves, as the database doesn't hold them.
+            Set<UUID> droppedKeys = PersistenceQueue.getDroppedKeys();
+            ByteBuffer carried = ByteBuffer.allocate(writeOffset - HEADER_SIZE);
+
+            for (int offset = HEADER_SIZE; offset < writeOffset; offset += ENTRY_SIZE) {
+                UUID writeKey = new UUID(buffer.getLong(offset + 24), buffer.getLong(offset + 32));
+
+                if (droppedKeys.contains(writeKey)) {
+                    for (int i = 0; i < ENTRY_SIZE; i++) {
+                        carried.put(buffer.get(offset + i));
+                    }
+                }
+            }
+
+            // Writes them at the start before moving the checkpoint, so a crash in between still replays them.
+            long entrySequence = sequence;
+            int offset = HEADER_SIZE;
+
+            for (int position = 0; position < carried.position(); position += ENTRY_SIZE) {
+                entrySequence++;
+                writeEntry(buffer, offset, entrySequence,
+                        new UUID(carried.getLong(position + 8), carried.getLong(position + 16)),
+                        new UUID(carried.getLong(position + 24), carried.getLong(position + 32)),
+                        carried.getInt(position + 40), carried.getInt(position + 44));
+                offset += ENTRY_SIZE;
+            }
+
+            checkpoint = sequence;
+            buffer.putLong(CHECKPOINT_OFFSET, checkpoint);
+            sequence = entrySequence;
+            carriedSequence = entrySequence;
+            writeOffset = offset;
+        }
+    }
+
+    /**
+     * Closes the journal.
+     * Must be called after the persistence queue has shut down; the entries
+     * of dropped saves are kept, so their balances are replayed on the next startup.
+     */
+    public static void close() {
+        if (committer != null) {
+            committer.shutdown();
+
+            try {
+                committer.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            committer = null;
+        }
+
+        if (buffer == null) {
+            return;
+        }
+
+        PersistenceQueue.runIfIdle(EconomyJournal::markCheckpoint);
+
+        if (sequence != checkpoint) {
+            MessageUtil.log(Level.WARNING, "Kept " + (sequence - checkpoint)
+                    + " economy journal entries to replay on the next startup.");
+        }
+
+        buffer.force();
+        closeChannel();
+
+        MessageUtil.log(Level.INFO, "Economy journal closed: " + appendedEntries.get() + " appended, "
+                + commits.get() + " commits, " + droppedEntries.get() + " dropped.");
+    }
+
+    /**
+     * Gets the number of entries appended since startup.
+     *
+     * @return The appended entry count.
+     */
+    public static long getAppendedEntries() {
+        return appendedEntries.get();
+    }
+
+    /**
+     * Gets the number of balance changes not journaled because the journal was full.
+     *
+     * @return The dropped entry count.
+     */
+    public static long getDroppedEntries() {
+        return droppedEntries.get();
+    }
+
+    /**
+     * Gets the number of times the journal was forced to disk.
+     *
+     * @return The commit count.
+     */
+    public static long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * Gets the number of entries replayed on startup.
+     *
+     * @return The replayed entry count.
+     */
+    public static long getReplayedEntries() {
+        return replayedEntries.get();
+    }
+
+    /**
+     * Gets the number of entries not yet known to be in the database.
+     *
+     * @return The number of uncheckpointed entries.
+     */
+    public static long getPendingEntries() {
+        synchronized (lock) {
+            return sequence - checkpoint;
+        }
+    }
+
+    /**
+     * Replays the entries newer than the checkpoint into the database.
+     * <p>
+     * Entries are read until one is torn (bad checksum) or older than the
+     * one before it, which marks where the last run's entries end.
+     *
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void replay() throws SQLException {
+        MappedByteBuffer mapped = buffer;
+
+        if (mapped == null) {
+            return;
+        }
+
+        checkpoint = mapped.getLong(CHECKPOINT_OFFSET);
+        sequence = checkpoint;
+
+        Map<UUID, Integer> balances = new LinkedHashMap<>();
+        Map<UUID, Map<UUID, Integer>> deltas = new LinkedHashMap<>();
+        long lastSequence = readEntries(mapped, checkpoint, balances, deltas);
+
+        if (lastSequence > checkpoint) {
+            MessageUtil.log(Level.WARNING, "The server didn't shut down cleanly; replaying "
+                    + replayedEntries.get() + " economy journal entries for " + balances.size() + " players...");
+
+            if (Settings.deltaWrites) {
+                int applied = DatabaseUtil.replayBalanceDeltas(deltas);
+                MessageUtil.log(Level.INFO, "Replayed " + applied + " of " + deltas.size()
+                        + " journaled saves; the rest were already saved.");
+            } else {
+                DatabaseUtil.saveBalances(balances);
+            }
+
+            checkpoint = lastSequence;
+            sequence = lastSequence;
+        }
+    }
+
+    /**
+     * Reads the entries newer than a checkpoint out of the journal.
+     *
+     * @param source     The journal's buffer.
+     * @param checkpoint The sequence number of the last entry already in the database.
+     * @param balances   Receives the newest balance of each player.
+     * @param deltas     Receives the balance changes of each save, keyed by write key.
+     * @return The sequence number of the last intact entry, or zero if there are none.
+     */
+    static long readEntries(@NotNull ByteBuffer source, long checkpoint, @NotNull Map<UUID, Integer> balances,
+                            @NotNull Map<UUID, Map<UUID, Integer>> deltas) {
+        synchronized (lock) {
+            long lastSequence = 0;
+
+            for (int offset = HEADER_SIZE; offset + ENTRY_SIZE <= source.capacity(); offset += ENTRY_SIZE) {
+                for (int i = 0; i < CHECKSUMMED_SIZE + 4; i++) {
+                    entry.put(i, source.get(offset + i));
+                }
+
+                checksum.reset();
+                checksum.update(entry.array(), 0, CHECKSUMMED_SIZE);
+
+                long entrySequence = entry.getLong(0);
+
+                if (entry.getInt(CHECKSUMMED_SIZE) != (int) checksum.getValue() || entrySequence <= lastSequence) {
+                    break;
+                }
+
+                lastSequence = entrySequence;
+
+                if (entrySequence > checkpoint) {
+                    UUID uniqueId = new UUID(entry.getLong(8), entry.getLong(16));
+                    UUID writeKey = new UUID(entry.getLong(24), entry.getLong(32));
+
+                    balances.put(uniqueId, entry.getInt(40));
+                    deltas.computeIfAbsent(writeKey, key -> new LinkedHashMap<>())
+                            .merge(uniqueId, entry.getInt(44), Integer::sum);
+                    replayedEntries.incrementAndGet();
+                }
+            }
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Closes the journal file.
+     */
+    private static void closeChannel() {
+        synchronized (lock) {
+            buffer = null;
+        }
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Maps kit names to the stable bit ids used by the owned kits bitmask.
+ * <p>
+ * Ids are stored in the KitIds table and never reused, so a kit keeps
+ * its bit even if kits are added, removed or reordered later.
+ *
+ * @author Foulest
+ */
+@Data
+public class KitIndex {
+
+    /**
+     * The number of bits in the owned kits column.
+     */
+    private static final int MAX_KITS = Long.SIZE;
+
+    /**
+     * The kit names by id.
+     */
+    private static final String[] names = new String[MAX_KITS];
+
+    /**
+     * The kit ids by name.
+     */
+    private static final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * The statements used to read and assign ids, kept for reloads.
+     */
+    private static @Nullable StatementRegistry statements;
+
+    /**
+     * Loads the assigned kit ids.
+     *
+     * @param connection The connection to use.
+     * @param registry   The statements for the database dialect.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static synchronized void load(@NotNull Connection connection,
+                                         @NotNull StatementRegistry registry) throws SQLException {
+        statements = registry;
+        load(connection);
+    }
+
+    /**
+     * Reloads the assigned kit ids.
+     *
+     * @param connection The connection to use.
+     * @throws SQLException If a database access error occurs or the ids were never loaded.
+     */
+    private static void load(@NotNull Connection connection) throws SQLException {
+        StatementRegistry registry = getStatements();
+        Arrays.fill(names, null);
+        ids.clear();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(registry.getSelectKitIds());
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                int id = resultSet.getInt(1);
+                String kitName = resultSet.getString(2);
+
+                if (id >= 0 && id < MAX_KITS) {
+                    names[id] = kitName;
+                    ids.put(kitName, id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns ids to kits that don't have one yet.
+     * Must be called after the ids are loaded, and not inside a transaction,
+     * as new ids are committed right away.
+     *
+     * @param connection The connection to use.
+     * @param kitNames   The kit names.
+     * @throws SQLException If a database access error occurs or every id is taken.
+     */
+    public static synchronized void register(@NotNull Connection connection,
+                                             @NotNull Collection<String> kitNames) throws SQLException {
+        for (String kitName : kitNames) {
+            if (!ids.containsKey(kitName)) {
+                assign(connection, kitName);
+            }
+        }
+    }
+
+    /**
+     * Converts kit names to a bitmask.
+     * Kits must be registered first; unregistered kits are ignored.
+     *
+     * @param kitNames The kit names.
+     * @return The owned kits bitmask.
+     */
+    public static synchronized long toMask(@NotNull Collection<String> kitNames) {
+        long mask = 0L;
+
+        for (String kitName : kitNames) {
+            Integer id = ids.get(kitName);
+
+            if (id != null) {
+                mask |= 1L << id;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Converts a bitmask back to kit names, reloading the kit ids
+     * first if the mask has bits assigned by another server.
+     *
+     * @param connection The connection to use.
+     * @param mask       The owned kits bitmask.
+     * @return The kit names.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static synchronized @NotNull Set<String> fromMask(@NotNull Connection connection,
+                                                             long mask) throws SQLException {
+        for (long bits = mask; bits != 0L; bits &= bits - 1) {
+            if (names[Long.numberOfTrailingZeros(bits)] == null) {
+                load(connection);
+                break;
+            }
+        }
+        return fromMask(mask);
+    }
+
+    /**
+     * Converts a bitmask back to kit names.
+     * Bits without a known kit are ignored.
+     *
+     * @param mask The owned kits bitmask.
+     * @return The kit names.
+     */
+    public static synchronized @NotNull Set<String> fromMask(long mask) {
+        Set<String> kitNames = new HashSet<>();
+
+        for (long bits = mask; bits != 0L; bits &= bits - 1) {
+            String kitName = names[Long.numberOfTrailingZeros(bits)];
+
+            if (kitName != null) {
+                kitNames.add(kitName);
+            }
+        }
+        return kitNames;
+    }
+
+    /**
+     * Assigns the next free id to a kit.
+     * If another server takes the id first, the next free one is tried.
+     *
+     * @param connection The connection to use.
+     * @param kitName    The kit name.
+     * @throws SQLException If a database access error occurs or every id is taken.
+     */
+    private static void assign(@NotNull Connection connection, @NotNull String kitName) throws SQLException {
+        String insert = getStatements().getInsertKitId();
+
+        while (true) {
+            int id = 0;
+            while (id < MAX_KITS && names[id] != null) {
+                id++;
+            }
+
+            if (id == MAX_KITS) {
+                throw new SQLException("Cannot store more than " + MAX_KITS + " kits.");
+            }
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(insert)) {
+                preparedStatement.setInt(1, id);
+                preparedStatement.setString(2, kitName);
+                preparedStatement.executeUpdate();
+            } catch (SQLException ex) {
+                // Another server may have assigned the kit or taken the id first.
+                load(connection);
+
+                if (ids.containsKey(kitName)) {
+                    return;
+                }
+
+                // Fails if the id is still free, as the insert failed for another reason.
+                if (names[id] == null) {
+                    throw ex;
+                }
+                continue;
+            }
+
+            names[id] = kitName;
+            ids.put(kitName, id);
+            return;
+        }
+    }
+
+    /**
+     * Gets the statements the ids were loaded with.
+     *
+     * @return The statement registry.
+     * @throws SQLException If the ids were never loaded.
+     */
+    private static @NotNull StatementRegistry getStatements() throws SQLException {
+        if (statements == null) {
+            throw new SQLException("The kit ids haven't been loaded.");
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe latency counter for storage operations.
+ * <p>
+ * Latencies are also counted in a histogram with four buckets per
+ * power of two microseconds, so percentiles are accurate to within
+ * about 20% while recording stays a single atomic increment.
+ *
+ * @author Foulest
+ */
+public class LatencyStats {
+
+    /**
+     * The number of buckets per power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /**
+     * The number of histogram buckets, covering up to 2^48 microseconds.
+     */
+    private static final int BUCKET_COUNT = 48 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private volatile long lastNanos;
+
+    /**
+     * Records the latency of an operation.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        buckets.incrementAndGet(getBucket(nanos));
+        lastNanos = nanos;
+    }
+
+    /**
+     * Gets the number of recorded operations.
+     *
+     * @return The operation count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the latency of the most recent operation.
+     *
+     * @return The latency in milliseconds.
+     */
+    public double getLastMillis() {
+        return lastNanos / 1_000_000.0;
+    }
+
+    /**
+     * Gets the highest latency of any operation.
+     *
+     * @return The latency in milliseconds.
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Gets the average latency of all operations.
+     *
+     * @return The latency in milliseconds.
+     */
+    public double getAverageMillis() {
+        long operations = count.get();
+        return (operations == 0) ? 0.0 : (totalNanos.get() / (double) operations) / 1_000_000.0;
+    }
+
+    /**
+     * Gets the latency below which a share of the operations finished.
+     * The result is the upper edge of the matching histogram bucket, capped at the maximum.
+     *
+     * @param percentile The share of operations, from 0 to 100.
+     * @return The latency in milliseconds.
+     */
+    public double getPercentileMillis(double percentile) {
+        long operations = count.get();
+
+        if (operations == 0) {
+            return 0.0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(operations * percentile / 100.0));
+        long seen = 0;
+
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += buckets.get(bucket);
+
+            if (seen >= target) {
+                return Math.min(getBucketLimitNanos(bucket), maxNanos.get()) / 1_000_000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Gets the histogram bucket of a latency.
+     *
+     * @param nanos The latency in nanoseconds.
+     * @return The bucket index.
+     */
+    private static int getBucket(long nanos) {
+        long micros = Math.max(1L, nanos / 1000L);
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+
+        // Takes the bits after the leading one as the sub-bucket.
+        int subBucket = (exponent < SUB_BUCKET_BITS)
+                ? (int) (micros << (SUB_BUCKET_BITS - exponent)) & ((1 << SUB_BUCKET_BITS) - 1)
+                : (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return Math.min(BUCKET_COUNT - 1, (exponent << SUB_BUCKET_BITS) + subBucket);
+    }
+
+    /**
+     * Gets the highest latency counted in a histogram bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The bucket's upper edge in nanoseconds.
+     */
+    private static long getBucketLimitNanos(int bucket) {
+        int exponent = bucket >>> SUB_BUCKET_BITS;
+        int subBucket = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+        double micros = Math.pow(2, exponent) * (1 + (subBucket + 1) / (double) (1 << SUB_BUCKET_BITS));
+        return (long) (micros * 1000L);
+    }
+}
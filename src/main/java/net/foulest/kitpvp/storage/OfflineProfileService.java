@@ -0,0 +1,304 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.data.PlayerData;
+import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.leaderboard.Leaderboards;
+import net.foulest.kitpvp.util.Settings;
+import net.foulest.kitpvp.util.TaskUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads and changes the data of any player, online or not.
+ * <p>
+ * Changes are applied on the main thread to wherever the player's newest
+ * data lives: their {@link PlayerData} if they're online, their staged
+ * profile if they're logging in, or a cached profile if they're offline.
+ * <p>
+ * Offline profiles are kept in a size-bounded LRU cache, so repeated changes
+ * don't reload them. Changes are written through the {@link PersistenceQueue}
+ * right away, like any other save. A player logging in claims their profile,
+ * which removes it from the cache.
+ *
+ * @author Foulest
+ */
+@Data
+public class OfflineProfileService {
+
+    /**
+     * How many ticks to wait for a player who is logging in before giving up.
+     */
+    private static final int MAX_LOGIN_WAIT_TICKS = 200;
+
+    /**
+     * Guards the cache and claimed players.
+     */
+    private static final Object lock = new Object();
+
+    /**
+     * The cached offline profiles, in access order.
+     */
+    private static final LinkedHashMap<UUID, PlayerSnapshot> cache = new LinkedHashMap<UUID, PlayerSnapshot>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, PlayerSnapshot> eldest) {
+            if (size() <= Settings.offlineCacheSize) {
+                return false;
+            }
+
+            evictions.incrementAndGet();
+            return true;
+        }
+    };
+
+    /**
+     * The players who are logging in or online; their data isn't cached here.
+     */
+    private static final Set<UUID> claimed = new HashSet<>();
+
+    // Metrics
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Gets a player's newest data.
+     * The future is completed on the main thread.
+     *
+     * @param uniqueId The player's UUID.
+     * @return A future completed with the player's data.
+     */
+    public static @NotNull CompletableFuture<PlayerSnapshot> get(@NotNull UUID uniqueId) {
+        return update(uniqueId, UnaryOperator.identity());
+    }
+
+    /**
+     * Atomically applies a change to a player's data.
+     * The future is completed on the main thread.
+     *
+     * @param uniqueId The player's UUID.
+     * @param mutation The change to apply; it receives the newest data and returns the changed copy.
+     * @return A future completed with the changed data.
+     */
+    public static @NotNull CompletableFuture<PlayerSnapshot> update(@NotNull UUID uniqueId,
+                                                                    @NotNull UnaryOperator<PlayerSnapshot> mutation) {
+        CompletableFuture<PlayerSnapshot> result = new CompletableFuture<>();
+
+        if (Bukkit.isPrimaryThread()) {
+            apply(uniqueId, mutation, result, 0);
+        } else {
+            TaskUtil.runTask(() -> apply(uniqueId, mutation, result, 0));
+        }
+        return result;
+    }
+
+    /**
+     * Claims a player who is logging in, removing their cached profile.
+     * Called from the async pre-login thread, before the player's profile is loaded.
+     *
+     * @param uniqueId The player's UUID.
+     */
+    public static void claim(@NotNull UUID uniqueId) {
+        synchronized (lock) {
+            claimed.add(uniqueId);
+            cache.remove(uniqueId);
+        }
+    }
+
+    /**
+     * Releases a player who has quit or was denied login.
+     * Their data may be cached again afterward.
+     *
+     * @param uniqueId The player's UUID.
+     */
+    public static void release(@NotNull UUID uniqueId) {
+        synchronized (lock) {
+            claimed.remove(uniqueId);
+        }
+    }
+
+    /**
+     * Discards the cached profiles so they are read again from the database.
+     * Used after the stored data was replaced, e.g. by an import.
+     */
+    public static void clear() {
+        synchronized (lock) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Discards every cached profile.
+     */
+    public static void shutdown() {
+        synchronized (lock) {
+            cache.clear();
+            claimed.clear();
+        }
+    }
+
+    /**
+     * Gets the number of cached profiles.
+     *
+     * @return The cache size.
+     */
+    public static int getCacheSize() {
+        synchronized (lock) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return The hit count.
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to load the profile.
+     *
+     * @return The miss count.
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of profiles evicted from the cache.
+     *
+     * @return The eviction count.
+     */
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Applies a change to wherever the player's newest data lives.
+     * Must be called on the main thread.
+     *
+     * @param uniqueId The player's UUID.
+     * @param mutation The change to apply.
+     * @param result   The future to complete.
+     * @param attempt  The number of ticks spent waiting on a player who is logging in.
+     */
+    private static void apply(@NotNull UUID uniqueId, @NotNull UnaryOperator<PlayerSnapshot> mutation,
+                              @NotNull CompletableFuture<PlayerSnapshot> result, int attempt) {
+        try {
+            // Changes an online player's data directly.
+            Player player = Bukkit.getPlayer(uniqueId);
+
+            if (player != null && PlayerDataManager.hasPlayerData(player)) {
+                PlayerData playerData = PlayerDataManager.getPlayerData(player);
+
+                if (playerData.getSavedSnapshot() != null) {
+                    PlayerSnapshot changed = mutation.apply(new PlayerSnapshot(playerData));
+                    playerData.applySnapshot(changed);
+                    result.complete(changed);
+                    return;
+                }
+            }
+
+            // Changes the profile of a player who is about to join.
+            PlayerSnapshot staged = ProfileStagingCache.update(uniqueId, mutation);
+
+            if (staged != null) {
+                Leaderboards.update(staged);
+                result.complete(staged);
+                return;
+            }
+
+            synchronized (lock) {
+                if (claimed.contains(uniqueId)) {
+                    // Waits for the player's profile to finish loading.
+                    if (attempt >= MAX_LOGIN_WAIT_TICKS) {
+                        result.completeExceptionally(new IllegalStateException("Timed out waiting for " + uniqueId + " to log in."));
+                    } else {
+                        TaskUtil.runTaskLater(() -> apply(uniqueId, mutation, result, attempt + 1), 1L);
+                    }
+                    return;
+                }
+
+                PlayerSnapshot cached = cache.get(uniqueId);
+
+                if (cached != null) {
+                    hits.incrementAndGet();
+                    PlayerSnapshot changed = mutation.apply(cached);
+
+                    if (!changed.equals(cached)) {
+                        cache.put(uniqueId, changed);
+                        Leaderboards.update(changed);
+                        PersistenceQueue.enqueue(cached, changed);
+                    }
+
+                    result.complete(changed);
+                    return;
+                }
+            }
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+            return;
+        }
+
+        // Loads the offline profile, then applies the change on the main thread.
+        misses.incrementAndGet();
+
+        load(uniqueId).whenComplete((profile, ex) -> TaskUtil.runTask(() -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+                return;
+            }
+
+            synchronized (lock) {
+                if (!claimed.contains(uniqueId) && !cache.containsKey(uniqueId)) {
+                    cache.put(uniqueId, profile);
+                }
+            }
+
+            apply(uniqueId, mutation, result, attempt);
+        }));
+    }
+
+    /**
+     * Loads an offline player's newest data.
+     *
+     * @param uniqueId The player's UUID.
+     * @return A future completed with the player's data.
+     */
+    private static @NotNull CompletableFuture<PlayerSnapshot> load(@NotNull UUID uniqueId) {
+        // Data that hasn't been written yet is newer than the database.
+        PlayerSnapshot unsaved = PersistenceQueue.getUnsavedSnapshot(uniqueId);
+
+        if (unsaved != null) {
+            return CompletableFuture.completedFuture(unsaved);
+        }
+        return ProfileBatchLoader.load(uniqueId);
+    }
+}
@@ -0,0 +1,896 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.data.PlayerField;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Write-behind queue for saving player data.
+ * <p>
+ * Saves are queued as snapshots and written on the {@link StorageExecutor}.
+ * Only the newest pending snapshot of each player is kept, and a player
+ * is never written by two workers at the same time.
+ * <p>
+ * Each save carries the snapshot that was last persisted, so only the
+ * fields that changed since then are written. Saves without changes
+ * are skipped, and failed saves are retried with the next save.
+ * <p>
+ * Every save has a unique write key. A failed save is kept as an
+ * unconfirmed attempt of the save retrying it, so in delta mode the
+ * retry can tell whether the failed write was applied after all.
+ * <p>
+ * While the {@link StorageCircuitBreaker} is open, saves are held in a
+ * bounded buffer, one per player, and written once the database recovers.
+ * <p>
+ * The main thread never writes to the database itself. If the queue or
+ * the storage executor is full, the save stays pending and is scheduled
+ * once a worker frees up.
+ *
+ * @author Foulest
+ */
+@Data
+public class PersistenceQueue {
+
+    /**
+     * Guards the pending and in-flight collections.
+     */
+    private static final Object lock = new Object();
+
+    /**
+     * The newest save waiting to be written for each player.
+     */
+    private static final Map<UUID, PendingSave> pending = new HashMap<>();
+
+    /**
+     * The saves that failed to be written, kept until the player's next save.
+     */
+    private static final Map<UUID, PendingSave> failed = new HashMap<>();
+
+    /**
+     * The saves held back while the database is unreachable, never attempted.
+     */
+    private static final Map<UUID, PendingSave> buffered = new HashMap<>();
+
+    /**
+     * The saves currently being written by a worker.
+     */
+    private static final Map<UUID, PendingSave> inFlight = new HashMap<>();
+
+    /**
+     * The players with a pending save that couldn't be scheduled yet, oldest first.
+     */
+    private static final Set<UUID> unscheduled = new LinkedHashSet<>();
+
+    /**
+     * The write keys of each player's dropped saves, whose balance changes only the economy journal holds.
+     */
+    private static final Map<UUID, Set<UUID>> droppedKeys = new HashMap<>();
+
+    /**
+     * The futures waiting for each player's saves to be written.
+     */
+    private static final Map<UUID, List<CompletableFuture<Boolean>>> waiters = new HashMap<>();
+
+    /**
+     * The random half of every write key made by this server run.
+     */
+    private static final long WRITE_KEY_PREFIX = new SecureRandom().nextLong();
+
+    /**
+     * The counting half of every write key.
+     */
+    private static final AtomicLong writeKeyCounter = new AtomicLong();
+
+    /**
+     * Whether the queue is running.
+     */
+    private static boolean running;
+
+    /**
+     * The task scheduling the saves that couldn't be scheduled right away.
+     */
+    private static @Nullable BukkitTask overflowTask;
+
+    // Metrics
+    private static final AtomicLong completedWrites = new AtomicLong();
+    private static final AtomicLong coalescedWrites = new AtomicLong();
+    private static final AtomicLong skippedWrites = new AtomicLong();
+    private static final AtomicLong overflowWrites = new AtomicLong();
+    private static final AtomicLong failedWrites = new AtomicLong();
+    private static final AtomicLong droppedWrites = new AtomicLong();
+    private static final LatencyStats flushLatency = new LatencyStats();
+
+    /**
+     * Starts the queue.
+     * Must be called after the {@link StorageExecutor} has started.
+     */
+    public static void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+
+            running = true;
+        }
+
+        overflowTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                scheduleOverflow();
+            }
+        }.runTaskTimerAsynchronously(KitPvP.instance, 5L, 5L);
+    }
+
+    /**
+     * Queues a snapshot to be written to the database.
+     * <p>
+     * If the queue or the storage executor is full, the save stays pending
+     * and is scheduled once there is room; off the main thread, it is
+     * written on the calling thread instead. If the queue isn't running,
+     * the snapshot is written on the calling thread. Balance changes are
+     * appended to the {@link EconomyJournal} first.
+     *
+     * @param baseline The snapshot last handed to the queue, or null if there is none.
+     * @param snapshot The snapshot to write.
+     */
+    public static void enqueue(@Nullable PlayerSnapshot baseline, @NotNull PlayerSnapshot snapshot) {
+        UUID uniqueId = snapshot.getUniqueId();
+        PendingSave save = new PendingSave(baseline, snapshot, newWriteKey(), Collections.emptyList());
+
+        synchronized (lock) {
+            // Adds the changes held back during an outage.
+            PendingSave bufferedSave = buffered.remove(uniqueId);
+            if (bufferedSave != null) {
+                save = bufferedSave.merge(save);
+            }
+
+            // Retries the changes of a previously failed save.
+            PendingSave failedSave = failed.remove(uniqueId);
+            if (failedSave != null) {
+                save = failedSave.mergeAttempted(save);
+            }
+
+            // Replaces the pending save; its drain task is already scheduled.
+            PendingSave pendingSave = pending.get(uniqueId);
+            if (pendingSave != null) {
+                pendingSave = pendingSave.merge(save);
+                pending.put(uniqueId, pendingSave);
+                coalescedWrites.incrementAndGet();
+                journal(baseline, snapshot, pendingSave.getWriteKey());
+                return;
+            }
+
+            // Skips saves without any changes.
+            if (save.getChangedFields().isEmpty() && save.getUnconfirmed().isEmpty()) {
+                skippedWrites.incrementAndGet();
+                return;
+            }
+
+            journal(baseline, snapshot, save.getWriteKey());
+
+            if (running) {
+                pending.put(uniqueId, save);
+
+                // Players being written are re-scheduled once their write finishes,
+                // so they are never written on the calling thread at the same time.
+                if (inFlight.containsKey(uniqueId)) {
+                    return;
+                }
+
+                if (pending.size() <= Settings.writeBehindQueueCapacity && schedule(uniqueId)) {
+                    return;
+                }
+
+                overflowWrites.incrementAndGet();
+
+                // Keeps the main thread off the database; the overflow task schedules the save later.
+                if (Bukkit.isPrimaryThread()) {
+                    unscheduled.add(uniqueId);
+                    return;
+                }
+
+                pending.remove(uniqueId);
+            }
+
+            // Holds the save while the database is unreachable.
+            if (!StorageCircuitBreaker.allowRequest()) {
+                buffer(uniqueId, save);
+                return;
+            }
+
+            // Falls back to writing on the calling thread.
+            inFlight.put(uniqueId, save);
+        }
+
+        boolean success = false;
+
+        try {
+            success = write(save);
+        } finally {
+            finishWrite(uniqueId, save, success);
+        }
+    }
+
+    /**
+     * Flushes and stops the queue.
+     * Must be called before the {@link StorageExecutor} is shut down.
+     *
+     * @param timeoutMillis The maximum time to wait for pending writes.
+     */
+    public static void shutdown(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        List<UUID> drainNow = new ArrayList<>();
+        List<CompletableFuture<Boolean>> unwritten = new ArrayList<>();
+
+        if (overflowTask != null) {
+            overflowTask.cancel();
+            overflowTask = null;
+        }
+
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+
+            // Schedules the saves still waiting for room, keeping the rest for this thread.
+            for (UUID uniqueId : unscheduled) {
+                if (pending.containsKey(uniqueId) && !inFlight.containsKey(uniqueId) && !schedule(uniqueId)) {
+                    drainNow.add(uniqueId);
+                }
+            }
+
+            unscheduled.clear();
+        }
+
+        // Writes on this thread whatever the storage executor couldn't take.
+        for (UUID uniqueId : drainNow) {
+            drain(uniqueId);
+        }
+
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+
+            // Waits for pending and in-flight writes to finish.
+            while (!pending.isEmpty() || !inFlight.isEmpty()) {
+                long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0) {
+                    break;
+                }
+
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            // Drops anything that couldn't be written in time.
+            if (!pending.isEmpty()) {
+                MessageUtil.log(Level.WARNING, "Dropped " + pending.size()
+                        + " pending player data saves after " + timeoutMillis + "ms.");
+                pending.forEach(PersistenceQueue::drop);
+                pending.clear();
+            }
+
+            // Drops failed saves that were never retried.
+            if (!failed.isEmpty()) {
+                MessageUtil.log(Level.WARNING, "Dropped " + failed.size() + " failed player data saves.");
+                failed.forEach(PersistenceQueue::drop);
+                failed.clear();
+            }
+
+            // Drops saves held back by an outage that hasn't ended.
+            if (!buffered.isEmpty()) {
+                MessageUtil.log(Level.WARNING, "Dropped " + buffered.size()
+                        + " player data saves buffered while the database was unreachable.");
+                buffered.forEach(PersistenceQueue::drop);
+                buffered.clear();
+            }
+
+            // The saves being waited on were dropped.
+            for (List<CompletableFuture<Boolean>> futures : waiters.values()) {
+                unwritten.addAll(futures);
+            }
+
+            waiters.clear();
+            running = false;
+        }
+
+        // Completes the waiters outside the lock, as they may run database calls.
+        for (CompletableFuture<Boolean> future : unwritten) {
+            future.complete(false);
+        }
+
+        MessageUtil.log(Level.INFO, "Persistence queue stopped: " + completedWrites.get() + " written, "
+                + coalescedWrites.get() + " coalesced, " + skippedWrites.get() + " skipped, "
+                + failedWrites.get() + " failed, "
+                + droppedWrites.get() + " dropped, " + String.format("%.2f", flushLatency.getAverageMillis())
+                + "ms average flush latency.");
+    }
+
+    /**
+     * Gets the number of snapshots waiting to be written.
+     *
+     * @return The queue depth.
+     */
+    public static int getQueueDepth() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Gets the newest snapshot of a player that hasn't been written yet.
+     * <p>
+     * This is newer than what the database holds, so it should be used
+     * instead of loading the player when they rejoin quickly.
+     *
+     * @param uniqueId The player's UUID.
+     * @return The unsaved snapshot, or null if everything has been written.
+     */
+    public static @Nullable PlayerSnapshot getUnsavedSnapshot(UUID uniqueId) {
+        synchronized (lock) {
+            PendingSave save = pending.get(uniqueId);
+
+            if (save == null) {
+                save = inFlight.get(uniqueId);
+            }
+
+            if (save == null) {
+                save = failed.get(uniqueId);
+            }
+
+            if (save == null) {
+                save = buffered.get(uniqueId);
+            }
+            return (save == null) ? null : save.getSnapshot();
+        }
+    }
+
+    /**
+     * Waits for every queued save of a player to be written.
+     * <p>
+     * The future completes with false if the last write failed, as the
+     * database then doesn't hold the player's newest data. It also
+     * completes with false if the queue stops before the saves are written.
+     *
+     * @param uniqueId The player's UUID.
+     * @return A future completing once the player has no queued saves.
+     */
+    public static @NotNull CompletableFuture<Boolean> whenWritten(UUID uniqueId) {
+        synchronized (lock) {
+            if (!pending.containsKey(uniqueId) && !inFlight.containsKey(uniqueId)) {
+                return CompletableFuture.completedFuture(!failed.containsKey(uniqueId)
+                        && !buffered.containsKey(uniqueId));
+            }
+
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            waiters.computeIfAbsent(uniqueId, key -> new ArrayList<>()).add(future);
+            return future;
+        }
+    }
+
+    /**
+     * Runs a task only if every queued save has been written or dropped.
+     * The task runs while holding the lock, so no save can be queued meanwhile.
+     * <p>
+     * Dropped saves don't keep the queue busy; their write keys are
+     * available from {@link #getDroppedKeys()} instead.
+     *
+     * @param task The task to run.
+     * @return Whether the queue was idle and the task ran.
+     */
+    public static boolean runIfIdle(@NotNull Runnable task) {
+        synchronized (lock) {
+            if (!pending.isEmpty() || !inFlight.isEmpty() || !failed.isEmpty() || !buffered.isEmpty()) {
+                return false;
+            }
+
+            task.run();
+            return true;
+        }
+    }
+
+    /**
+     * Writes the saves held back or failed during an outage.
+     * Called once the database has recovered.
+     */
+    public static void replayBuffered() {
+        List<UUID> drainNow = new ArrayList<>();
+
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+
+            // Failed saves are retried under a new key, like any retry.
+            Map<UUID, PendingSave> replayed = new HashMap<>(buffered);
+            failed.forEach((uniqueId, save) -> replayed.put(uniqueId, save.retry(newWriteKey())));
+            failed.clear();
+            buffered.clear();
+
+            for (Map.Entry<UUID, PendingSave> entry : replayed.entrySet()) {
+                UUID uniqueId = entry.getKey();
+                PendingSave pendingSave = pending.get(uniqueId);
+                pending.put(uniqueId, (pendingSave == null) ? entry.getValue() : entry.getValue().merge(pendingSave));
+
+                // Players being written are re-scheduled once their write finishes.
+                if (pendingSave == null && !inFlight.containsKey(uniqueId) && !schedule(uniqueId)) {
+                    drainNow.add(uniqueId);
+                }
+            }
+
+            if (!replayed.isEmpty()) {
+                MessageUtil.log(Level.INFO, "Replaying " + replayed.size() + " player data saves held during the outage.");
+            }
+        }
+
+        // Writes on this thread whatever the storage executor couldn't take.
+        for (UUID uniqueId : drainNow) {
+            drain(uniqueId);
+        }
+    }
+
+    /**
+     * Gets the number of saves held back while the database is unreachable.
+     *
+     * @return The buffered save count.
+     */
+    public static int getBufferedSaves() {
+        synchronized (lock) {
+            return buffered.size();
+        }
+    }
+
+    /**
+     * Checks if a player has a failed save waiting to be retried.
+     *
+     * @param uniqueId The player's UUID.
+     * @return Whether the player has a failed save.
+     */
+    public static boolean hasFailedSave(UUID uniqueId) {
+        synchronized (lock) {
+            return failed.containsKey(uniqueId);
+        }
+    }
+
+    /**
+     * Gets the number of snapshots written successfully.
+     *
+     * @return The completed write count.
+     */
+    public static long getCompletedWrites() {
+        return completedWrites.get();
+    }
+
+    /**
+     * Gets the number of snapshots replaced by a newer one before being written.
+     *
+     * @return The coalesced write count.
+     */
+    public static long getCoalescedWrites() {
+        return coalescedWrites.get();
+    }
+
+    /**
+     * Gets the number of snapshots skipped because nothing changed.
+     *
+     * @return The skipped write count.
+     */
+    public static long getSkippedWrites() {
+        return skippedWrites.get();
+    }
+
+    /**
+     * Gets the number of snapshots that couldn't be scheduled right away because the queue was full.
+     *
+     * @return The overflow write count.
+     */
+    public static long getOverflowWrites() {
+        return overflowWrites.get();
+    }
+
+    /**
+     * Gets the number of snapshots that failed to be written.
+     *
+     * @return The failed write count.
+     */
+    public static long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * Gets the number of snapshots dropped on shutdown.
+     *
+     * @return The dropped write count.
+     */
+    public static long getDroppedWrites() {
+        return droppedWrites.get();
+    }
+
+    /**
+     * Gets the write keys of the dropped saves whose balance hasn't been written since.
+     *
+     * @return The dropped write keys.
+     */
+    static @NotNull Set<UUID> getDroppedKeys() {
+        synchronized (lock) {
+            Set<UUID> keys = new HashSet<>();
+            for (Set<UUID> playerKeys : droppedKeys.values()) {
+                keys.addAll(playerKeys);
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Gets the latency of each snapshot write.
+     *
+     * @return The flush latency stats.
+     */
+    public static LatencyStats getFlushLatency() {
+        return flushLatency;
+    }
+
+    /**
+     * Schedules a drain task for a player.
+     * Must be called while holding the lock.
+     *
+     * @param uniqueId The player's UUID.
+     * @return Whether the task was scheduled; false if the storage executor is full or not running.
+     */
+    private static boolean schedule(UUID uniqueId) {
+        return running && StorageExecutor.execute(() -> drain(uniqueId));
+    }
+
+    /**
+     * Schedules the pending saves that couldn't be scheduled right away, oldest first.
+     * Stops at the first one the storage executor can't take.
+     */
+    private static void scheduleOverflow() {
+        synchronized (lock) {
+            Iterator<UUID> iterator = unscheduled.iterator();
+
+            while (iterator.hasNext()) {
+                UUID uniqueId = iterator.next();
+
+                // Players being written are re-scheduled once their write finishes.
+                if (pending.containsKey(uniqueId) && !inFlight.containsKey(uniqueId) && !schedule(uniqueId)) {
+                    return;
+                }
+
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Writes the newest pending save of a player.
+     *
+     * @param uniqueId The player's UUID.
+     */
+    private static void drain(UUID uniqueId) {
+        PendingSave save;
+        List<CompletableFuture<Boolean>> held = null;
+
+        synchronized (lock) {
+            save = pending.remove(uniqueId);
+            unscheduled.remove(uniqueId);
+
+            if (save == null) {
+                return;
+            }
+
+            // Holds the save while the database is unreachable.
+            if (!StorageCircuitBreaker.allowRequest()) {
+                buffer(uniqueId, save);
+                held = waiters.remove(uniqueId);
+                lock.notifyAll();
+                save = null;
+            } else {
+                inFlight.put(uniqueId, save);
+            }
+        }
+
+        if (save == null) {
+            if (held != null) {
+                for (CompletableFuture<Boolean> future : held) {
+                    future.complete(false);
+                }
+            }
+            return;
+        }
+
+        boolean success = false;
+
+        try {
+            success = write(save);
+        } finally {
+            finishWrite(uniqueId, save, success);
+        }
+    }
+
+    /**
+     * Finishes an in-flight write, keeping its changes if it failed.
+     *
+     * @param uniqueId The player's UUID.
+     * @param save     The save that was written.
+     * @param success  Whether the save was written successfully.
+     */
+    private static void finishWrite(UUID uniqueId, @NotNull PendingSave save, boolean success) {
+        List<CompletableFuture<Boolean>> written = null;
+        boolean drainNow = false;
+
+        synchronized (lock) {
+            inFlight.remove(uniqueId);
+
+            // The player's dropped balance changes are now in the database.
+            if (success && save.writesBalance()) {
+                droppedKeys.remove(uniqueId);
+            }
+
+            // Keeps the failed changes so the next save retries them.
+            if (!success) {
+                PendingSave pendingSave = pending.get(uniqueId);
+
+                if (pendingSave == null) {
+                    failed.put(uniqueId, save);
+                } else {
+                    pending.put(uniqueId, save.mergeAttempted(pendingSave));
+                }
+            }
+
+            // Re-schedules the player if a newer snapshot arrived mid-write.
+            if (pending.containsKey(uniqueId)) {
+                drainNow = !schedule(uniqueId);
+            } else {
+                written = waiters.remove(uniqueId);
+            }
+
+            lock.notifyAll();
+        }
+
+        // Completes the waiters outside the lock, as they may run database calls.
+        if (written != null) {
+            for (CompletableFuture<Boolean> future : written) {
+                future.complete(success);
+            }
+        }
+
+        // Writes the newer snapshot on this thread if it couldn't be scheduled.
+        if (drainNow) {
+            drain(uniqueId);
+        }
+
+        // Hands the freed worker to the saves waiting for room.
+        scheduleOverflow();
+    }
+
+    /**
+     * Holds a save until the database recovers.
+     * If the buffer is full, the save is dropped instead.
+     * Must be called while holding the lock.
+     *
+     * @param uniqueId The player's UUID.
+     * @param save     The save to hold.
+     */
+    private static void buffer(UUID uniqueId, @NotNull PendingSave save) {
+        if (buffered.size() >= Settings.storageBufferSize) {
+            if (droppedWrites.get() == 0) {
+                MessageUtil.log(Level.WARNING, "The storage buffer is full; dropping player data saves."
+                        + " The economy journal keeps their balance changes for the next start.");
+            }
+
+            drop(uniqueId, save);
+            return;
+        }
+
+        buffered.put(uniqueId, save);
+    }
+
+    /**
+     * Drops a save, remembering its write keys so the economy journal keeps its balance changes.
+     * Must be called while holding the lock.
+     *
+     * @param uniqueId The player's UUID.
+     * @param save     The save to drop.
+     */
+    private static void drop(UUID uniqueId, @NotNull PendingSave save) {
+        Set<UUID> keys = droppedKeys.computeIfAbsent(uniqueId, key -> new HashSet<>());
+        keys.add(save.getWriteKey());
+
+        for (WriteAttempt attempt : save.getUnconfirmed()) {
+            keys.add(attempt.getWriteKey());
+        }
+
+        droppedWrites.incrementAndGet();
+    }
+
+    /**
+     * Appends a balance change to the economy journal.
+     * Must be called while holding the lock.
+     *
+     * @param baseline The snapshot before the change, or null if there is none.
+     * @param snapshot The snapshot after the change.
+     * @param writeKey The key of the save the change will be written with.
+     */
+    private static void journal(@Nullable PlayerSnapshot baseline, @NotNull PlayerSnapshot snapshot,
+                                @NotNull UUID writeKey) {
+        if (baseline == null || baseline.getCoins() != snapshot.getCoins()) {
+            int delta = (baseline == null) ? 0 : snapshot.getCoins() - baseline.getCoins();
+            EconomyJournal.append(snapshot.getUniqueId(), writeKey, snapshot.getCoins(), delta);
+        }
+    }
+
+    /**
+     * Creates a key identifying a write.
+     * Keys are unique across servers and restarts.
+     *
+     * @return The write key.
+     */
+    private static @NotNull UUID newWriteKey() {
+        return new UUID(WRITE_KEY_PREFIX, writeKeyCounter.incrementAndGet());
+    }
+
+    /**
+     * Writes a save to the database and records its latency.
+     *
+     * @param save The save to write.
+     * @return Whether the save was written successfully.
+     */
+    private static boolean write(@NotNull PendingSave save) {
+        long startTime = System.nanoTime();
+        PlayerSnapshot snapshot = save.getSnapshot();
+
+        try {
+            DatabaseUtil.savePlayerSnapshot(save.getBaseline(), snapshot, save.getWriteKey(), save.getUnconfirmed());
+            completedWrites.incrementAndGet();
+            ProfileFallbackCache.put(snapshot);
+            return true;
+        } catch (SQLException ex) {
+            failedWrites.incrementAndGet();
+            MessageUtil.log(Level.WARNING, "Failed to save player data for " + snapshot.getUniqueId() + ".");
+            ex.printStackTrace();
+            return false;
+        } finally {
+            flushLatency.record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * A save waiting to be written.
+     */
+    @Data
+    private static class PendingSave {
+
+        /**
+         * The last persisted snapshot, or null if nothing has been persisted.
+         */
+        private final @Nullable PlayerSnapshot baseline;
+
+        /**
+         * The snapshot to write.
+         */
+        private final PlayerSnapshot snapshot;
+
+        /**
+         * The key the save is written with.
+         */
+        private final UUID writeKey;
+
+        /**
+         * The earlier attempts at writing these changes that failed, oldest first.
+         */
+        private final List<WriteAttempt> unconfirmed;
+
+        /**
+         * Gets the fields changed since the baseline.
+         *
+         * @return The changed fields.
+         */
+        Set<PlayerField> getChangedFields() {
+            return snapshot.getChangedFields(baseline);
+        }
+
+        /**
+         * Checks if the save writes the player's balance itself rather than a change to it.
+         *
+         * @return Whether the save writes the balance.
+         */
+        boolean writesBalance() {
+            if (Settings.deltaWrites && baseline != null) {
+                return false;
+            }
+            return !unconfirmed.isEmpty() || getChangedFields().contains(PlayerField.COINS);
+        }
+
+        /**
+         * Merges a newer save into this one, which hasn't been attempted yet.
+         * The older baseline and key are kept so no change is lost.
+         *
+         * @param newer The newer save.
+         * @return The merged save.
+         */
+        PendingSave merge(@NotNull PendingSave newer) {
+            return new PendingSave(baseline, newer.snapshot, writeKey, concat(unconfirmed, newer.unconfirmed));
+        }
+
+        /**
+         * Merges a newer save into this one, which failed to be written.
+         * This save becomes an unconfirmed attempt of the merged save.
+         *
+         * @param newer The newer save.
+         * @return The merged save.
+         */
+        PendingSave mergeAttempted(@NotNull PendingSave newer) {
+            List<WriteAttempt> attempts = new ArrayList<>(unconfirmed);
+            attempts.add(new WriteAttempt(writeKey, snapshot));
+            return new PendingSave(baseline, newer.snapshot, newer.writeKey,
+                    concat(Collections.unmodifiableList(attempts), newer.unconfirmed));
+        }
+
+        /**
+         * Turns this failed save into a new attempt at the same changes.
+         *
+         * @param writeKey The key of the new attempt.
+         * @return The retried save.
+         */
+        PendingSave retry(@NotNull UUID writeKey) {
+            return mergeAttempted(new PendingSave(baseline, snapshot, writeKey, Collections.emptyList()));
+        }
+
+        /**
+         * Joins two lists of attempts.
+         *
+         * @param first  The older attempts.
+         * @param second The newer attempts.
+         * @return The joined attempts.
+         */
+        private static List<WriteAttempt> concat(@NotNull List<WriteAttempt> first, @NotNull List<WriteAttempt> second) {
+            if (second.isEmpty()) {
+                return first;
+            }
+
+            List<WriteAttempt> attempts = new ArrayList<>(first);
+            attempts.addAll(second);
+            return Collections.unmodifiableList(attempts);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A snapshot of the usage of a connection pool.
+ *
+ * @author Foulest
+ */
+@Data
+@AllArgsConstructor
+public class PoolStats {
+
+    /**
+     * The name of the pool.
+     */
+    private final String name;
+
+    /**
+     * The number of connections in use.
+     */
+    private final int active;
+
+    /**
+     * The number of connections waiting to be used.
+     */
+    private final int idle;
+
+    /**
+     * The number of threads waiting for a connection.
+     */
+    private final int waiting;
+
+    /**
+     * The maximum number of connections.
+     */
+    private final int maximum;
+}
@@ -0,0 +1,219 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.util.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Groups profile loads into short windows and loads each window together.
+ * <p>
+ * When many players join at once, each window costs one query
+ * instead of one query per player.
+ *
+ * @author Foulest
+ */
+@Data
+public class ProfileBatchLoader {
+
+    /**
+     * Guards the pending loads.
+     */
+    private static final Object lock = new Object();
+
+    /**
+     * The loads waiting for the current window to close.
+     */
+    private static final Map<UUID, CompletableFuture<PlayerSnapshot>> pending = new LinkedHashMap<>();
+
+    /**
+     * The thread closing windows.
+     */
+    private static @Nullable ScheduledExecutorService scheduler;
+
+    /**
+     * Whether a flush is scheduled for the current window.
+     */
+    private static boolean flushScheduled;
+
+    // Metrics
+    private static final AtomicLong batches = new AtomicLong();
+    private static final AtomicLong profiles = new AtomicLong();
+
+    /**
+     * Starts the loader thread, which closes windows.
+     * The queries themselves run on the {@link StorageExecutor}.
+     */
+    public static void start() {
+        synchronized (lock) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "KitPvP Profile Loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+    /**
+     * Stops the loader thread and fails any pending loads.
+     */
+    public static void shutdown() {
+        synchronized (lock) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+
+            IllegalStateException ex = new IllegalStateException("The profile loader has been shut down.");
+            pending.values().forEach(future -> future.completeExceptionally(ex));
+            pending.clear();
+            flushScheduled = false;
+        }
+    }
+
+    /**
+     * Queues a player's profile to be loaded in the current window.
+     *
+     * @param uniqueId The player's UUID.
+     * @return A future completed with the player's profile.
+     */
+    public static @NotNull CompletableFuture<PlayerSnapshot> load(@NotNull UUID uniqueId) {
+        synchronized (lock) {
+            if (scheduler == null) {
+                CompletableFuture<PlayerSnapshot> future = new CompletableFuture<>();
+                future.completeExceptionally(new IllegalStateException("The profile loader is not running."));
+                return future;
+            }
+
+            // Joins an already pending load for the same player.
+            CompletableFuture<PlayerSnapshot> future = pending.get(uniqueId);
+            if (future != null) {
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+            pending.put(uniqueId, future);
+
+            // Opens a new window with the first load.
+            if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(ProfileBatchLoader::flush, Settings.joinBatchWindow, TimeUnit.MILLISECONDS);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Gets the number of windows loaded.
+     *
+     * @return The batch count.
+     */
+    public static long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Gets the number of profiles loaded.
+     *
+     * @return The profile count.
+     */
+    public static long getProfiles() {
+        return profiles.get();
+    }
+
+    /**
+     * Gets the average number of profiles loaded per window.
+     *
+     * @return The average batch size.
+     */
+    public static double getAverageBatchSize() {
+        long batchCount = batches.get();
+        return (batchCount == 0) ? 0.0 : profiles.get() / (double) batchCount;
+    }
+
+    /**
+     * Closes the current window and loads its profiles.
+     */
+    private static void flush() {
+        List<Map.Entry<UUID, CompletableFuture<PlayerSnapshot>>> window;
+
+        synchronized (lock) {
+            window = new ArrayList<>(pending.entrySet());
+            pending.clear();
+            flushScheduled = false;
+        }
+
+        // Splits the window to keep the IN (...) list bounded.
+        for (int start = 0; start < window.size(); start += Settings.joinBatchMaxSize) {
+            int end = Math.min(window.size(), start + Settings.joinBatchMaxSize);
+            List<Map.Entry<UUID, CompletableFuture<PlayerSnapshot>>> batch = window.subList(start, end);
+
+            // Loads the batch on this thread if the storage executor is full.
+            if (!StorageExecutor.execute(() -> loadBatch(batch))) {
+                loadBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Loads a batch of profiles and completes their futures.
+     *
+     * @param batch The pending loads in the batch.
+     */
+    private static void loadBatch(@NotNull List<Map.Entry<UUID, CompletableFuture<PlayerSnapshot>>> batch) {
+        List<UUID> uniqueIds = new ArrayList<>(batch.size());
+        for (Map.Entry<UUID, CompletableFuture<PlayerSnapshot>> entry : batch) {
+            uniqueIds.add(entry.getKey());
+        }
+
+        try {
+            Map<UUID, PlayerSnapshot> loaded = DatabaseUtil.loadPlayerProfiles(uniqueIds);
+            batches.incrementAndGet();
+            profiles.addAndGet(loaded.size());
+
+            for (Map.Entry<UUID, CompletableFuture<PlayerSnapshot>> entry : batch) {
+                PlayerSnapshot profile = loaded.get(entry.getKey());
+
+                if (profile == null) {
+                    entry.getValue().completeExceptionally(new SQLException("No profile was loaded for " + entry.getKey() + "."));
+                } else {
+                    ProfileFallbackCache.put(profile);
+                    entry.getValue().complete(profile);
+                }
+            }
+        } catch (SQLException | RuntimeException ex) {
+            for (Map.Entry<UUID, CompletableFuture<PlayerSnapshot>> entry : batch) {
+                entry.getValue().completeExceptionally(ex);
+            }
+        }
+    }
+}
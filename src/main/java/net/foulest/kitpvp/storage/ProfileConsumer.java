@@ -0,0 +1,40 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Receives the profiles streamed out of the database.
+ *
+ * @author Foulest
+ */
+@FunctionalInterface
+public interface ProfileConsumer {
+
+    /**
+     * Receives a profile.
+     *
+     * @param profile The profile.
+     * @throws IOException If the profile couldn't be written.
+     */
+    void accept(@NotNull PlayerSnapshot profile) throws IOException;
+}
@@ -0,0 +1,156 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.util.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last known profiles of recent players for degraded mode.
+ * <p>
+ * Every profile loaded from or written to the database is remembered,
+ * up to the configured size. When the database can't be reached, a
+ * joining player gets their remembered profile instead of being kicked,
+ * and is marked as degraded until they leave.
+ *
+ * @author Foulest
+ */
+@Data
+public class ProfileFallbackCache {
+
+    /**
+     * The last known profiles, least recently used first.
+     */
+    private static final Map<UUID, PlayerSnapshot> profiles = new LinkedHashMap<UUID, PlayerSnapshot>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, PlayerSnapshot> eldest) {
+            return size() > Settings.fallbackCacheSize;
+        }
+    };
+
+    /**
+     * The players who joined with a remembered profile.
+     */
+    private static final Set<UUID> degraded = ConcurrentHashMap.newKeySet();
+
+    // Metrics
+    private static long fallbackLoads;
+
+    /**
+     * Remembers a profile that matches the database.
+     *
+     * @param profile The profile.
+     */
+    public static void put(@NotNull PlayerSnapshot profile) {
+        synchronized (profiles) {
+            profiles.put(profile.getUniqueId(), profile);
+        }
+    }
+
+    /**
+     * Gets a player's remembered profile and marks them as degraded.
+     *
+     * @param uniqueId The player's UUID.
+     * @return The remembered profile, or null if there is none.
+     */
+    public static @Nullable PlayerSnapshot load(@NotNull UUID uniqueId) {
+        PlayerSnapshot profile;
+
+        synchronized (profiles) {
+            profile = profiles.get(uniqueId);
+
+            if (profile == null) {
+                return null;
+            }
+
+            fallbackLoads++;
+        }
+
+        degraded.add(uniqueId);
+        return profile;
+    }
+
+    /**
+     * Checks if a player joined with a remembered profile.
+     *
+     * @param uniqueId The player's UUID.
+     * @return Whether the player is degraded.
+     */
+    public static boolean isDegraded(@NotNull UUID uniqueId) {
+        return degraded.contains(uniqueId);
+    }
+
+    /**
+     * Clears a player's degraded mark.
+     *
+     * @param uniqueId The player's UUID.
+     */
+    public static void clearDegraded(@NotNull UUID uniqueId) {
+        degraded.remove(uniqueId);
+    }
+
+    /**
+     * Gets a copy of the remembered profiles.
+     *
+     * @return The remembered profiles.
+     */
+    public static @NotNull List<PlayerSnapshot> getProfiles() {
+        synchronized (profiles) {
+            return new ArrayList<>(profiles.values());
+        }
+    }
+
+    /**
+     * Gets the number of remembered profiles.
+     *
+     * @return The cache size.
+     */
+    public static int getSize() {
+        synchronized (profiles) {
+            return profiles.size();
+        }
+    }
+
+    /**
+     * Gets the number of players who joined with a remembered profile.
+     *
+     * @return The fallback load count.
+     */
+    public static long getFallbackLoads() {
+        synchronized (profiles) {
+            return fallbackLoads;
+        }
+    }
+
+    /**
+     * Forgets every remembered profile.
+     */
+    public static void clear() {
+        synchronized (profiles) {
+            profiles.clear();
+        }
+
+        degraded.clear();
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Hands player data over between servers sharing one database.
+ * <p>
+ * A server takes a lease on a player's data before loading it and
+ * releases it once their quit save has been written. A server the
+ * player switches to waits for that release instead of loading data
+ * that is about to be overwritten, and takes the lease anyway after
+ * the handoff timeout. Leases are renewed while the server runs, so
+ * those of a crashed server expire on their own.
+ * <p>
+ * Each holding of a lease has its own token, so a late release never
+ * frees a lease that was taken again since.
+ *
+ * @author Foulest
+ */
+@Data
+public class ProfileLeases {
+
+    /**
+     * How often to check if a lease has been released, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 50L;
+
+    /**
+     * Generates lease tokens.
+     */
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * The tokens of the leases held by this server.
+     */
+    private static final Map<UUID, Long> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * The id of this server.
+     */
+    private static volatile String nodeId;
+
+    /**
+     * The thread scheduling lease renewals.
+     */
+    private static volatile @Nullable ScheduledExecutorService scheduler;
+
+    // Metrics
+    private static final AtomicLong acquiredLeases = new AtomicLong();
+    private static final AtomicLong contendedLeases = new AtomicLong();
+    private static final AtomicLong forcedLeases = new AtomicLong();
+    private static final LatencyStats handoffLatency = new LatencyStats();
+
+    /**
+     * Starts renewing leases, if leases are enabled.
+     */
+    public static synchronized void start() {
+        if (!Settings.leasesEnabled || scheduler != null) {
+            return;
+        }
+
+        nodeId = Settings.leaseNodeId.isEmpty() ? UUID.randomUUID().toString() : Settings.leaseNodeId;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KitPvP Profile Leases");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Renews well before the leases expire, so a slow renewal doesn't lose them.
+        long renewInterval = TimeUnit.SECONDS.toMillis(Settings.leaseDuration) / 3;
+        scheduler.scheduleAtFixedRate(() -> StorageExecutor.execute(ProfileLeases::renew),
+                renewInterval, renewInterval, TimeUnit.MILLISECONDS);
+
+        MessageUtil.log(Level.INFO, "Profile leases enabled as node " + nodeId + ".");
+    }
+
+    /**
+     * Releases every lease held by this server and stops renewing them.
+     * Must be called after the persistence queue has been flushed, and
+     * before the connection pool is closed.
+     */
+    public static synchronized void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdownNow();
+        scheduler = null;
+
+        // Keeps the leases of dropped saves, letting them expire instead.
+        if (PersistenceQueue.getDroppedWrites() > 0) {
+            MessageUtil.log(Level.WARNING, "Kept the profile leases of node " + nodeId
+                    + " as some player data saves were dropped.");
+        } else {
+            try {
+                DatabaseUtil.releaseLeases(nodeId);
+            } catch (SQLException ex) {
+                MessageUtil.log(Level.WARNING, "Failed to release the profile leases of node " + nodeId + ".");
+                ex.printStackTrace();
+            }
+        }
+
+        tokens.clear();
+
+        MessageUtil.log(Level.INFO, "Profile leases stopped: " + acquiredLeases.get() + " acquired, "
+                + contendedLeases.get() + " waited for, " + forcedLeases.get() + " taken by force, "
+                + String.format("%.2f", handoffLatency.getAverageMillis()) + "ms average handoff.");
+    }
+
+    /**
+     * Takes the lease on a player's data, waiting for the server
+     * holding it to release it for up to the handoff timeout.
+     * Blocks the calling thread, so must not be called on the main thread.
+     *
+     * @param uniqueId The player's UUID.
+     * @throws SQLException         If a database access error occurs.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public static void acquire(@NotNull UUID uniqueId) throws SQLException, InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+
+        long token = random.nextLong();
+        long startTime = System.nanoTime();
+        long deadline = System.currentTimeMillis() + Settings.leaseHandoffTimeout;
+        boolean waited = false;
+
+        while (!DatabaseUtil.tryAcquireLease(uniqueId, nodeId, token, getExpiry())) {
+            // Takes the lease from a server that didn't release it in time.
+            if (System.currentTimeMillis() >= deadline) {
+                DatabaseUtil.forceLease(uniqueId, nodeId, token, getExpiry());
+                forcedLeases.incrementAndGet();
+                MessageUtil.log(Level.WARNING, "Took the lease of " + uniqueId + " after waiting "
+                        + Settings.leaseHandoffTimeout + "ms for its previous server.");
+                break;
+            }
+
+            waited = true;
+            Thread.sleep(POLL_INTERVAL);
+        }
+
+        if (waited) {
+            contendedLeases.incrementAndGet();
+            handoffLatency.record(System.nanoTime() - startTime);
+        }
+
+        tokens.put(uniqueId, token);
+        acquiredLeases.incrementAndGet();
+    }
+
+    /**
+     * Releases the lease on a player's data once their queued saves have been written.
+     * <p>
+     * If the last save failed, the lease is kept, so another server
+     * only loads the player's stale data after the handoff timeout.
+     *
+     * @param uniqueId The player's UUID.
+     */
+    public static void releaseWhenWritten(@NotNull UUID uniqueId) {
+        Long token = tokens.get(uniqueId);
+
+        if (token == null) {
+            return;
+        }
+
+        PersistenceQueue.whenWritten(uniqueId).thenAccept(written -> {
+            if (written) {
+                release(uniqueId, token);
+            } else {
+                MessageUtil.log(Level.WARNING, "Kept the lease of " + uniqueId + " as their data failed to save.");
+            }
+        });
+    }
+
+    /**
+     * Releases the lease on a player's data right away.
+     * Used when a player is denied before anything was changed.
+     *
+     * @param uniqueId The player's UUID.
+     */
+    public static void release(@NotNull UUID uniqueId) {
+        Long token = tokens.get(uniqueId);
+
+        if (token != null) {
+            release(uniqueId, token);
+        }
+    }
+
+    /**
+     * Gets the id of this server.
+     *
+     * @return The node id, or null if leases are disabled.
+     */
+    public static @Nullable String getNodeId() {
+        return (scheduler == null) ? null : nodeId;
+    }
+
+    /**
+     * Gets the number of leases held by this server.
+     *
+     * @return The held lease count.
+     */
+    public static int getHeldLeases() {
+        return tokens.size();
+    }
+
+    /**
+     * Gets the number of leases taken.
+     *
+     * @return The acquired lease count.
+     */
+    public static long getAcquiredLeases() {
+        return acquiredLeases.get();
+    }
+
+    /**
+     * Gets the number of leases that had to be waited for.
+     *
+     * @return The contended lease count.
+     */
+    public static long getContendedLeases() {
+        return contendedLeases.get();
+    }
+
+    /**
+     * Gets the number of leases taken after the handoff timeout.
+     *
+     * @return The forced lease count.
+     */
+    public static long getForcedLeases() {
+        return forcedLeases.get();
+    }
+
+    /**
+     * Gets how long leases held by another server took to be handed over.
+     *
+     * @return The handoff latency stats.
+     */
+    public static LatencyStats getHandoffLatency() {
+        return handoffLatency;
+    }
+
+    /**
+     * Releases a lease on the storage executor, unless it has been taken again since.
+     *
+     * @param uniqueId The player's UUID.
+     * @param token    The token the lease was taken with.
+     */
+    private static synchronized void release(@NotNull UUID uniqueId, long token) {
+        if (scheduler == null || !tokens.remove(uniqueId, token)) {
+            return;
+        }
+
+        StorageExecutor.submit(() -> {
+            DatabaseUtil.releaseLease(uniqueId, token);
+            return null;
+        }).exceptionally(ex -> {
+            // Another server takes the lease after the handoff timeout.
+            MessageUtil.log(Level.WARNING, "Failed to release the lease of " + uniqueId + ".");
+            ex.printStackTrace();
+            return null;
+        });
+    }
+
+    /**
+     * Extends the leases held by this server.
+     */
+    private static void renew() {
+        try {
+            DatabaseUtil.renewLeases(nodeId, getExpiry());
+        } catch (SQLException ex) {
+            MessageUtil.log(Level.WARNING, "Failed to renew the profile leases of node " + nodeId + ".");
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets when a lease taken or renewed now expires.
+     *
+     * @return The expiry time in epoch milliseconds.
+     */
+    private static long getExpiry() {
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Settings.leaseDuration);
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.data.PlayerData;
+import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.enchants.Enchants;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import net.foulest.kitpvp.util.TaskUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps recently active profiles in a local file for warm restarts.
+ * <p>
+ * The profiles remembered by the {@link ProfileFallbackCache} are written
+ * to the file every interval and on shutdown. On startup the file is
+ * memory-mapped, and returning players join with their profile from it
+ * instead of waiting on the database. Each profile served this way is
+ * loaded from the database in the background and any values that changed
+ * in the meantime are applied to the player.
+ * <p>
+ * The file holds a header (magic, version, write time and the kit names
+ * used by the records), fixed-size records sorted by UUID so a profile
+ * can be found with a binary search, and a CRC32 of everything before it.
+ * The file is ignored if the server didn't shut down cleanly, as the
+ * economy journal replay changes balances it doesn't know about.
+ *
+ * @author Foulest
+ */
+@Data
+public class ProfileSnapshotCache {
+
+    /**
+     * Identifies a profile snapshot file ("KPS1").
+     */
+    private static final int MAGIC = 0x4B505331;
+
+    /**
+     * The version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of a profile record in bytes.
+     */
+    private static final int RECORD_SIZE = 74;
+
+    /**
+     * The number of kits a file can name; owned kits are stored as a bitmask.
+     */
+    private static final int MAX_KITS = Long.SIZE;
+
+    // Record flags
+    private static final int USING_SOUP = 1;
+    private static final int HAS_BENEFACTOR = 1 << 1;
+
+    /**
+     * The file loaded on startup, or null if there is none.
+     */
+    private static volatile @Nullable SnapshotFile snapshotFile;
+
+    /**
+     * The players who already joined with a profile from the file.
+     */
+    private static final Set<UUID> served = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The profiles served from the file that are being checked against the database.
+     */
+    private static final Map<UUID, PlayerSnapshot> reconciling = new ConcurrentHashMap<>();
+
+    /**
+     * The task writing the file.
+     */
+    private static @Nullable BukkitTask writeTask;
+
+    // Metrics
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong outdated = new AtomicLong();
+
+    /**
+     * Loads the file and starts writing it, if enabled.
+     */
+    public static void start() {
+        if (writeTask != null || Settings.snapshotCacheFile.isEmpty()) {
+            return;
+        }
+
+        if (EconomyJournal.getReplayedEntries() > 0) {
+            MessageUtil.log(Level.WARNING, "Ignored the profile snapshot file, as the server didn't shut down cleanly.");
+        } else {
+            load();
+        }
+
+        if (Settings.snapshotCacheInterval > 0) {
+            long period = Settings.snapshotCacheInterval * 20L;
+
+            writeTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    write();
+                }
+            }.runTaskTimerAsynchronously(KitPvP.instance, period, period);
+        }
+    }
+
+    /**
+     * Stops writing the file and writes it one last time.
+     * Must be called after the persistence queue is flushed, so the file matches the database.
+     */
+    public static void stop() {
+        if (writeTask != null) {
+            writeTask.cancel();
+            writeTask = null;
+        }
+
+        if (!Settings.snapshotCacheFile.isEmpty()) {
+            write();
+        }
+
+        snapshotFile = null;
+        served.clear();
+        reconciling.clear();
+    }
+
+    /**
+     * Takes a returning player's profile from the file.
+     * A profile is only served once, as it is outdated after the player's first session.
+     *
+     * @param uniqueId The player's UUID.
+     * @return The player's profile, or null if the file doesn't have it.
+     */
+    public static @Nullable PlayerSnapshot take(@NotNull UUID uniqueId) {
+        SnapshotFile file = snapshotFile;
+
+        if (file == null) {
+            return null;
+        }
+
+        int index = file.find(uniqueId);
+
+        if (index < 0 || !served.add(uniqueId)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        PlayerSnapshot profile = file.read(index);
+        hits.incrementAndGet();
+        reconciling.put(uniqueId, profile);
+        return profile;
+    }
+
+    /**
+     * Loads a profile served from the file from the database in the background,
+     * applying any values that changed since the file was written.
+     *
+     * @param cached The profile served from the file.
+     */
+    public static void reconcile(@NotNull PlayerSnapshot cached) {
+        UUID uniqueId = cached.getUniqueId();
+
+        ProfileBatchLoader.load(uniqueId).whenComplete((stored, ex) -> {
+            if (ex != null) {
+                reconciling.remove(uniqueId, cached);
+                MessageUtil.log(Level.WARNING, "Failed to check the cached profile of " + uniqueId + " against the database.");
+                return;
+            }
+
+            if (stored.getChangedFields(cached).isEmpty()) {
+                reconciling.remove(uniqueId, cached);
+                return;
+            }
+
+            outdated.incrementAndGet();
+            TaskUtil.runTask(() -> apply(cached, stored));
+        });
+    }
+
+    /**
+     * Stops checking a player's cached profile, e.g. when they leave.
+     *
+     * @param uniqueId The player's UUID.
+     */
+    public static void discard(@NotNull UUID uniqueId) {
+        reconciling.remove(uniqueId);
+    }
+
+    /**
+     * Gets the number of profiles in the loaded file.
+     *
+     * @return The profile count.
+     */
+    public static int getSize() {
+        SnapshotFile file = snapshotFile;
+        return file == null ? 0 : file.getRecordCount();
+    }
+
+    /**
+     * Gets the number of players who joined with a profile from the file.
+     *
+     * @return The hit count.
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of players who joined without a profile from the file.
+     *
+     * @return The miss count.
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of served profiles that differed from the database.
+     *
+     * @return The outdated profile count.
+     */
+    public static long getOutdated() {
+        return outdated.get();
+    }
+
+    /**
+     * Applies the stored profile of a player who joined with a cached one.
+     * Must be called on the main thread.
+     *
+     * @param cached The profile served from the file.
+     * @param stored The profile stored in the database.
+     */
+    private static void apply(@NotNull PlayerSnapshot cached, @NotNull PlayerSnapshot stored) {
+        UUID uniqueId = stored.getUniqueId();
+
+        // Skips players who left since.
+        if (!reconciling.remove(uniqueId, cached)) {
+            return;
+        }
+
+        // Replaces the profile of a player who hasn't joined yet.
+        if (ProfileStagingCache.replace(cached, stored)) {
+            return;
+        }
+
+        Player player = Bukkit.getPlayer(uniqueId);
+
+        if (player != null && PlayerDataManager.hasPlayerData(player)) {
+            PlayerData playerData = PlayerDataManager.getPlayerData(player);
+
+            if (playerData.getSavedSnapshot() != null) {
+                playerData.reconcileProfile(cached, stored);
+            }
+        }
+    }
+
+    /**
+     * Maps the file and checks that it is complete.
+     * A missing or invalid file is ignored.
+     */
+    private static void load() {
+        Path path = Paths.get(Settings.snapshotCacheFile);
+
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size < Long.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid file size: " + size);
+            }
+
+            // The mapping stays valid after the channel is closed.
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size - Long.BYTES;
+
+            ByteBuffer body = buffer.duplicate();
+            body.limit(end);
+            CRC32 checksum = new CRC32();
+            checksum.update(body);
+
+            if (checksum.getValue() != buffer.getLong(end)) {
+                throw new IOException("The checksum doesn't match.");
+            }
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a KitPvP profile snapshot file.");
+            }
+
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported profile snapshot file version: " + version);
+            }
+
+            long writtenAt = buffer.getLong();
+            String[] kitNames = new String[buffer.get() & 0xFF];
+
+            for (int i = 0; i < kitNames.length; i++) {
+                byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(bytes);
+                kitNames[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int recordCount = buffer.getInt();
+            int recordsOffset = buffer.position();
+
+            if (recordCount < 0 || recordsOffset + (long) recordCount * RECORD_SIZE != end) {
+                throw new IOException("The record count doesn't match the file size.");
+            }
+
+            snapshotFile = new SnapshotFile(buffer, recordsOffset, recordCount, kitNames);
+            MessageUtil.log(Level.INFO, "Loaded " + recordCount + " cached profiles written "
+                    + TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - writtenAt) + " minutes ago.");
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException ex) {
+            MessageUtil.log(Level.WARNING, "Ignored the profile snapshot file: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Writes the remembered profiles to the file.
+     * The file is written next to the target and moved into place once complete.
+     */
+    private static synchronized void write() {
+        List<PlayerSnapshot> profiles = ProfileFallbackCache.getProfiles();
+        profiles.sort(Comparator.comparing(PlayerSnapshot::getUniqueId));
+
+        // Numbers the kits used by the profiles, skipping profiles that don't fit.
+        Map<String, Integer> kitIds = new LinkedHashMap<>();
+        List<PlayerSnapshot> records = new ArrayList<>(profiles.size());
+
+        for (PlayerSnapshot profile : profiles) {
+            Set<String> kitNames = new HashSet<>(profile.getOwnedKits());
+            if (profile.getPreviousKit() != null) {
+                kitNames.add(profile.getPreviousKit());
+            }
+
+            kitNames.removeAll(kitIds.keySet());
+            if (kitIds.size() + kitNames.size() > MAX_KITS) {
+                continue;
+            }
+
+            for (String kitName : kitNames) {
+                kitIds.put(kitName, kitIds.size());
+            }
+            records.add(profile);
+        }
+
+        Path path = Paths.get(Settings.snapshotCacheFile);
+        Path temporary = Paths.get(Settings.snapshotCacheFile + ".tmp");
+        CRC32 checksum = new CRC32();
+
+        try (DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)), checksum))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(System.currentTimeMillis());
+
+            output.writeByte(kitIds.size());
+            for (String kitName : kitIds.keySet()) {
+                byte[] bytes = kitName.getBytes(StandardCharsets.UTF_8);
+                output.writeShort(bytes.length);
+                output.write(bytes);
+            }
+
+            output.writeInt(records.size());
+            for (PlayerSnapshot profile : records) {
+                writeRecord(output, profile, kitIds);
+            }
+
+            output.flush();
+            output.writeLong(checksum.getValue());
+        } catch (IOException ex) {
+            MessageUtil.log(Level.WARNING, "Failed to write the profile snapshot file.");
+            ex.printStackTrace();
+            return;
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            MessageUtil.log(Level.WARNING, "Failed to replace the profile snapshot file.");
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes a profile record.
+     *
+     * @param output  The stream to write to.
+     * @param profile The profile.
+     * @param kitIds  The file's kit ids by name.
+     * @throws IOException If the record couldn't be written.
+     */
+    private static void writeRecord(@NotNull DataOutputStream output, @NotNull PlayerSnapshot profile,
+                                    @NotNull Map<String, Integer> kitIds) throws IOException {
+        UUID benefactor = profile.getBenefactor();
+        int flags = (profile.isUsingSoup() ? USING_SOUP : 0) | (benefactor != null ? HAS_BENEFACTOR : 0);
+
+        long ownedKits = 0L;
+        for (String kitName : profile.getOwnedKits()) {
+            ownedKits |= 1L << kitIds.get(kitName);
+        }
+
+        output.writeLong(profile.getUniqueId().getMostSignificantBits());
+        output.writeLong(profile.getUniqueId().getLeastSignificantBits());
+        output.writeInt(profile.getCoins());
+        output.writeInt(profile.getExperience());
+        output.writeInt(profile.getKills());
+        output.writeInt(profile.getDeaths());
+        output.writeInt(profile.getKillstreak());
+        output.writeInt(profile.getTopKillstreak());
+        output.writeByte(flags);
+        output.writeByte(profile.getPreviousKit() == null ? -1 : kitIds.get(profile.getPreviousKit()));
+        output.writeLong(ownedKits);
+        output.writeInt(profile.getBounty());
+        output.writeLong(benefactor == null ? 0L : benefactor.getMostSignificantBits());
+        output.writeLong(benefactor == null ? 0L : benefactor.getLeastSignificantBits());
+        output.writeInt(Enchants.toMask(profile.getEnchants()));
+    }
+
+    /**
+     * A mapped snapshot file.
+     */
+    @Data
+    private static class SnapshotFile {
+
+        /**
+         * The mapped file; only read with absolute gets, so it can be shared between threads.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * The position of the first record.
+         */
+        private final int recordsOffset;
+
+        /**
+         * The number of records.
+         */
+        private final int recordCount;
+
+        /**
+         * The kit names by file kit id.
+         */
+        private final String[] kitNames;
+
+        /**
+         * Finds a player's record with a binary search.
+         *
+         * @param uniqueId The player's UUID.
+         * @return The record index, or -1 if the player isn't in the file.
+         */
+        int find(@NotNull UUID uniqueId) {
+            long most = uniqueId.getMostSignificantBits();
+            long least = uniqueId.getLeastSignificantBits();
+            int low = 0;
+            int high = recordCount - 1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int position = recordsOffset + middle * RECORD_SIZE;
+
+                // Compares the same way as UUID#compareTo, which the records are sorted by.
+                int comparison = Long.compare(buffer.getLong(position), most);
+                if (comparison == 0) {
+                    comparison = Long.compare(buffer.getLong(position + 8), least);
+                }
+
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Reads a profile record.
+         *
+         * @param index The record index.
+         * @return The profile.
+         */
+        @NotNull PlayerSnapshot read(int index) {
+            int position = recordsOffset + index * RECORD_SIZE;
+            UUID uniqueId = new UUID(buffer.getLong(position), buffer.getLong(position + 8));
+            int flags = buffer.get(position + 40);
+            int previousKit = buffer.get(position + 41);
+
+            Set<String> ownedKits = new HashSet<>();
+            for (long bits = buffer.getLong(position + 42); bits != 0L; bits &= bits - 1) {
+                int kitId = Long.numberOfTrailingZeros(bits);
+
+                if (kitId < kitNames.length) {
+                    ownedKits.add(kitNames[kitId]);
+                }
+            }
+
+            UUID benefactor = (flags & HAS_BENEFACTOR) == 0 ? null
+                    : new UUID(buffer.getLong(position + 54), buffer.getLong(position + 62));
+
+            return new PlayerSnapshot(uniqueId,
+                    buffer.getInt(position + 16),
+                    buffer.getInt(position + 20),
+                    buffer.getInt(position + 24),
+                    buffer.getInt(position + 28),
+                    buffer.getInt(position + 32),
+                    buffer.getInt(position + 36),
+                    (flags & USING_SOUP) != 0,
+                    previousKit >= 0 && previousKit < kitNames.length ? kitNames[previousKit] : null,
+                    Collections.unmodifiableSet(ownedKits),
+                    buffer.getInt(position + 50),
+                    benefactor,
+                    Collections.unmodifiableSet(Enchants.fromMask(buffer.getInt(position + 70))));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds profiles loaded during pre-login until their players join.
+ * <p>
+ * Profiles are staged from the async pre-login thread and taken
+ * on the main thread when the player joins, so joining never waits
+ * on the database. Profiles of players who never join expire.
+ *
+ * @author Foulest
+ */
+@Data
+public class ProfileStagingCache {
+
+    /**
+     * How long a staged profile is kept if its player never joins.
+     */
+    private static final long EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * The staged profiles.
+     */
+    private static final Map<UUID, StagedProfile> staged = new ConcurrentHashMap<>();
+
+    /**
+     * Stages a player's profile until they join.
+     *
+     * @param profile The player's profile.
+     */
+    public static void stage(@NotNull PlayerSnapshot profile) {
+        long now = System.nanoTime();
+
+        // Drops profiles of players who never joined.
+        staged.values().removeIf(entry -> now - entry.getStagedAt() > EXPIRY_NANOS);
+        staged.put(profile.getUniqueId(), new StagedProfile(profile, now));
+    }
+
+    /**
+     * Takes a player's staged profile.
+     *
+     * @param uniqueId The player's UUID.
+     * @return The player's profile, or null if none was staged.
+     */
+    public static @Nullable PlayerSnapshot take(@NotNull UUID uniqueId) {
+        StagedProfile entry = staged.remove(uniqueId);
+        return (entry == null) ? null : entry.getProfile();
+    }
+
+    /**
+     * Applies a change to a player's staged profile and queues it to be saved.
+     *
+     * @param uniqueId The player's UUID.
+     * @param mutation The change to apply.
+     * @return The changed profile, or null if none was staged.
+     */
+    public static @Nullable PlayerSnapshot update(@NotNull UUID uniqueId,
+                                                  @NotNull UnaryOperator<PlayerSnapshot> mutation) {
+        StagedProfile entry = staged.computeIfPresent(uniqueId, (key, current) -> {
+            PlayerSnapshot changed = mutation.apply(current.getProfile());
+            PersistenceQueue.enqueue(current.getProfile(), changed);
+            return new StagedProfile(changed, current.getStagedAt());
+        });
+        return (entry == null) ? null : entry.getProfile();
+    }
+
+    /**
+     * Replaces a player's staged profile if it hasn't changed since it was staged.
+     *
+     * @param expected The profile that was staged.
+     * @param profile  The profile to stage instead.
+     * @return Whether the profile was replaced.
+     */
+    public static boolean replace(@NotNull PlayerSnapshot expected, @NotNull PlayerSnapshot profile) {
+        boolean[] replaced = {false};
+
+        staged.computeIfPresent(profile.getUniqueId(), (key, current) -> {
+            if (current.getProfile() != expected) {
+                return current;
+            }
+
+            replaced[0] = true;
+            return new StagedProfile(profile, current.getStagedAt());
+        });
+        return replaced[0];
+    }
+
+    /**
+     * Discards a player's staged profile.
+     *
+     * @param uniqueId The player's UUID.
+     */
+    public static void discard(@NotNull UUID uniqueId) {
+        staged.remove(uniqueId);
+    }
+
+    /**
+     * Discards every staged profile.
+     */
+    public static void clear() {
+        staged.clear();
+    }
+
+    /**
+     * A profile waiting for its player to join.
+     */
+    @Data
+    private static class StagedProfile {
+
+        /**
+         * The player's profile.
+         */
+        private final PlayerSnapshot profile;
+
+        /**
+         * When the profile was staged, in nanoseconds.
+         */
+        private final long stagedAt;
+    }
+}
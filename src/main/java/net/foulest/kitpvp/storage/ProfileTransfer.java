@@ -0,0 +1,421 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.enchants.Enchants;
+import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves player data between a database and a compact binary file.
+ * <p>
+ * Exports stream the Players table through a forward-only cursor, and
+ * imports write the file back in batches of the fetch size, so memory
+ * use stays constant however many players are moved. Kits and enchants
+ * are stored by name, so a file can be imported into a database whose
+ * kit ids differ (e.g. moving from SQLite to MariaDB).
+ * <p>
+ * Transfers run one at a time on their own thread, so a long transfer
+ * never holds up the storage executor.
+ * <p>
+ * The file is GZIP-compressed and holds a header (magic, version),
+ * one record per player, each prefixed with a marker byte, then an
+ * end marker and the number of records.
+ *
+ * @author Foulest
+ */
+@Data
+public class ProfileTransfer {
+
+    /**
+     * Identifies a player data file ("KPX1").
+     */
+    private static final int MAGIC = 0x4B505831;
+
+    /**
+     * The version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Marks a player record.
+     */
+    private static final byte RECORD = 1;
+
+    /**
+     * Marks the end of the records.
+     */
+    private static final byte END = 0;
+
+    /**
+     * How often progress is reported, in milliseconds.
+     */
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * The characters allowed in transfer file names.
+     */
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    /**
+     * Whether a transfer is running.
+     */
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Starts exporting every player's data to a file.
+     *
+     * @param path     The file to write.
+     * @param progress Receives progress messages; called on the transfer thread.
+     * @return Whether the export started; false if another transfer is running.
+     */
+    public static boolean startExport(@NotNull Path path, @NotNull Consumer<String> progress) {
+        return start("export", progress, () -> {
+            long startTime = System.currentTimeMillis();
+            long count = export(path, progress);
+            progress.accept("&aExported " + count + " players to " + path.getFileName()
+                    + " in " + getElapsedSeconds(startTime) + "s.");
+        });
+    }
+
+    /**
+     * Starts importing player data from a file, replacing the rows of the same players.
+     *
+     * @param path     The file to read.
+     * @param progress Receives progress messages; called on the transfer thread.
+     * @return Whether the import started; false if another transfer is running.
+     */
+    public static boolean startImport(@NotNull Path path, @NotNull Consumer<String> progress) {
+        return start("import", progress, () -> {
+            long startTime = System.currentTimeMillis();
+            long count = importFile(path, progress);
+
+            // Drops cached profiles that the import replaced.
+            OfflineProfileService.clear();
+            ProfileFallbackCache.clear();
+
+            progress.accept("&aImported " + count + " players from " + path.getFileName()
+                    + " in " + getElapsedSeconds(startTime) + "s.");
+        });
+    }
+
+    /**
+     * Gets a file in the exports folder, creating the folder if needed.
+     * Names are limited to letters, digits, dots, dashes and underscores,
+     * so a file can't be read or written outside the folder.
+     *
+     * @param fileName The file name.
+     * @return The file, or null if the name isn't allowed.
+     * @throws IOException If the folder couldn't be created.
+     */
+    public static @Nullable Path getFile(@NotNull String fileName) throws IOException {
+        if (!FILE_NAME.matcher(fileName).matches() || fileName.startsWith(".")) {
+            return null;
+        }
+
+        Path folder = KitPvP.getInstance().getDataFolder().toPath().resolve("exports");
+        Files.createDirectories(folder);
+        return folder.resolve(fileName);
+    }
+
+    /**
+     * Checks if a transfer is running.
+     *
+     * @return Whether a transfer is running.
+     */
+    public static boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Runs a transfer on its own thread.
+     *
+     * @param name     The name of the transfer.
+     * @param progress Receives progress messages.
+     * @param transfer The transfer.
+     * @return Whether the transfer started.
+     */
+    private static boolean start(@NotNull String name, @NotNull Consumer<String> progress, @NotNull Transfer transfer) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                transfer.run();
+            } catch (IOException | SQLException | RuntimeException ex) {
+                MessageUtil.log(Level.WARNING, "The player data " + name + " failed.");
+                ex.printStackTrace();
+                progress.accept("&cThe " + name + " failed: " + ex.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, "KitPvP Profile Transfer");
+
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Writes every player's data to a file.
+     * The file is written next to the target and moved into place once complete.
+     *
+     * @param path     The file to write.
+     * @param progress Receives progress messages.
+     * @return The number of players exported.
+     * @throws IOException  If the file couldn't be written.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static long export(@NotNull Path path, @NotNull Consumer<String> progress) throws IOException, SQLException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long[] lastReport = {System.currentTimeMillis()};
+        long count;
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temporary))))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            long[] written = {0};
+
+            count = DatabaseUtil.streamProfiles(Settings.transferFetchSize, profile -> {
+                output.writeByte(RECORD);
+                writeProfile(output, profile);
+                written[0]++;
+
+                // Reports progress every few seconds.
+                if (System.currentTimeMillis() - lastReport[0] >= PROGRESS_INTERVAL) {
+                    lastReport[0] = System.currentTimeMillis();
+                    progress.accept("&7Exported " + written[0] + " players...");
+                }
+            });
+
+            output.writeByte(END);
+            output.writeLong(count);
+        } catch (IOException | SQLException ex) {
+            Files.deleteIfExists(temporary);
+            throw ex;
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    /**
+     * Writes the players in a file to the database, a batch at a time.
+     *
+     * @param path     The file to read.
+     * @param progress Receives progress messages.
+     * @return The number of players imported.
+     * @throws IOException  If the file couldn't be read or is invalid.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static long importFile(@NotNull Path path, @NotNull Consumer<String> progress) throws IOException, SQLException {
+        long lastReport = System.currentTimeMillis();
+        long count = 0;
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path))))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a KitPvP player data file.");
+            }
+
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported player data file version: " + version);
+            }
+
+            List<PlayerSnapshot> batch = new ArrayList<>(Settings.transferFetchSize);
+
+            while (input.readByte() == RECORD) {
+                batch.add(readProfile(input));
+
+                if (batch.size() >= Settings.transferFetchSize) {
+                    DatabaseUtil.importProfiles(batch);
+                    count += batch.size();
+                    batch.clear();
+
+                    // Reports progress every few seconds.
+                    if (System.currentTimeMillis() - lastReport >= PROGRESS_INTERVAL) {
+                        lastReport = System.currentTimeMillis();
+                        progress.accept("&7Imported " + count + " players...");
+                    }
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                DatabaseUtil.importProfiles(batch);
+                count += batch.size();
+            }
+
+            // Catches files that were cut short.
+            long expected = input.readLong();
+            if (expected != count) {
+                throw new IOException("The file lists " + expected + " players, but " + count + " were read.");
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes a player's profile.
+     *
+     * @param output  The stream to write to.
+     * @param profile The profile.
+     * @throws IOException If the profile couldn't be written.
+     */
+    private static void writeProfile(@NotNull DataOutputStream output, @NotNull PlayerSnapshot profile) throws IOException {
+        writeUuid(output, profile.getUniqueId());
+        output.writeInt(profile.getCoins());
+        output.writeInt(profile.getExperience());
+        output.writeInt(profile.getKills());
+        output.writeInt(profile.getDeaths());
+        output.writeInt(profile.getKillstreak());
+        output.writeInt(profile.getTopKillstreak());
+        output.writeBoolean(profile.isUsingSoup());
+        output.writeUTF(profile.getPreviousKit() == null ? "" : profile.getPreviousKit());
+
+        output.writeShort(profile.getOwnedKits().size());
+        for (String kitName : profile.getOwnedKits()) {
+            output.writeUTF(kitName);
+        }
+
+        UUID benefactor = profile.getBenefactor();
+        output.writeInt(profile.getBounty());
+        output.writeBoolean(benefactor != null);
+        if (benefactor != null) {
+            writeUuid(output, benefactor);
+        }
+
+        output.writeShort(profile.getEnchants().size());
+        for (Enchants enchant : profile.getEnchants()) {
+            output.writeUTF(enchant.name());
+        }
+    }
+
+    /**
+     * Reads a player's profile.
+     * Enchants that no longer exist are skipped.
+     *
+     * @param input The stream to read from.
+     * @return The profile.
+     * @throws IOException If the profile couldn't be read.
+     */
+    private static @NotNull PlayerSnapshot readProfile(@NotNull DataInputStream input) throws IOException {
+        UUID uniqueId = readUuid(input);
+        int coins = input.readInt();
+        int experience = input.readInt();
+        int kills = input.readInt();
+        int deaths = input.readInt();
+        int killstreak = input.readInt();
+        int topKillstreak = input.readInt();
+        boolean usingSoup = input.readBoolean();
+        String previousKit = input.readUTF();
+
+        Set<String> ownedKits = new HashSet<>();
+        for (int i = input.readShort(); i > 0; i--) {
+            ownedKits.add(input.readUTF());
+        }
+
+        int bounty = input.readInt();
+        UUID benefactor = input.readBoolean() ? readUuid(input) : null;
+
+        Set<Enchants> enchants = EnumSet.noneOf(Enchants.class);
+        for (int i = input.readShort(); i > 0; i--) {
+            String enchantName = input.readUTF();
+
+            try {
+                enchants.add(Enchants.valueOf(enchantName));
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+
+        return new PlayerSnapshot(uniqueId, coins, experience, kills, deaths, killstreak, topKillstreak,
+                usingSoup, previousKit.isEmpty() ? null : previousKit, Collections.unmodifiableSet(ownedKits),
+                bounty, benefactor, Collections.unmodifiableSet(enchants));
+    }
+
+    /**
+     * Writes a UUID.
+     *
+     * @param output   The stream to write to.
+     * @param uniqueId The UUID.
+     * @throws IOException If the UUID couldn't be written.
+     */
+    private static void writeUuid(@NotNull DataOutputStream output, @NotNull UUID uniqueId) throws IOException {
+        output.writeLong(uniqueId.getMostSignificantBits());
+        output.writeLong(uniqueId.getLeastSignificantBits());
+    }
+
+    /**
+     * Reads a UUID.
+     *
+     * @param input The stream to read from.
+     * @return The UUID.
+     * @throws IOException If the UUID couldn't be read.
+     */
+    private static @NotNull UUID readUuid(@NotNull DataInputStream input) throws IOException {
+        return new UUID(input.readLong(), input.readLong());
+    }
+
+    /**
+     * Gets the seconds passed since a time.
+     *
+     * @param startTime The start time in epoch milliseconds.
+     * @return The elapsed seconds.
+     */
+    private static long getElapsedSeconds(long startTime) {
+        return (System.currentTimeMillis() - startTime) / 1000L;
+    }
+
+    /**
+     * A transfer run on the transfer thread.
+     */
+    @FunctionalInterface
+    private interface Transfer {
+
+        /**
+         * Runs the transfer.
+         *
+         * @throws IOException  If a file couldn't be read or written.
+         * @throws SQLException If a database access error occurs.
+         */
+        void run() throws IOException, SQLException;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.foulest.kitpvp.data.PlayerField;
+import net.foulest.kitpvp.data.PlayerSnapshot;
+import net.foulest.kitpvp.enchants.Enchants;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the SQL of every player data statement for one database dialect.
+ * <p>
+ * Fixed statements are built once when the registry is created. Statements
+ * that vary in shape (the profile select by batch size and the profile update
+ * by changed columns) are built once per shape and cached, so the driver
+ * always sees the same SQL strings and can reuse its prepared statements.
+ *
+ * @author Foulest
+ */
+@Getter
+public class StatementRegistry {
+
+    /**
+     * The Players table columns, in the order they are bound by the full upsert.
+     */
+    private static final List<String> PROFILE_COLUMNS;
+
+    static {
+        List<String> columns = new ArrayList<>();
+        columns.add("uuid");
+        for (PlayerField field : PlayerField.values()) {
+            columns.addAll(field.getColumnNames());
+        }
+        PROFILE_COLUMNS = Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Maps a row of the profile select to a player's profile.
+     */
+    public static final RowMapper<PlayerSnapshot> PROFILE_MAPPER = resultSet -> {
+        UUID uniqueId = UuidCodec.fromBytes(resultSet.getBytes(1));
+
+        if (uniqueId == null) {
+            throw new SQLException("Invalid player UUID in the Players table.");
+        }
+
+        int coins = resultSet.getInt(2);
+        int experience = resultSet.getInt(3);
+        int kills = resultSet.getInt(4);
+        int deaths = resultSet.getInt(5);
+        int killstreak = resultSet.getInt(6);
+        int topKillstreak = resultSet.getInt(7);
+        boolean usingSoup = resultSet.getInt(8) == 1;
+        String previousKit = resultSet.getString(9);
+        Set<String> ownedKits = KitIndex.fromMask(resultSet.getStatement().getConnection(), resultSet.getLong(10));
+        int bounty = resultSet.getInt(11);
+        UUID benefactor = UuidCodec.fromBytes(resultSet.getBytes(12));
+        Set<Enchants> enchants = Enchants.fromMask(resultSet.getInt(13));
+
+        return new PlayerSnapshot(uniqueId, coins, experience, kills, deaths, killstreak, topKillstreak,
+                usingSoup, previousKit, Collections.unmodifiableSet(ownedKits),
+                bounty, benefactor, Collections.unmodifiableSet(enchants));
+    };
+
+    /**
+     * Whether the statements use the SQLite dialect.
+     */
+    private final boolean sqlite;
+
+    // Players statements
+    private final String insertDefaultProfile;
+    private final String upsertProfile;
+    private final String selectAllProfiles;
+    private final String updateCoins;
+    private final String addCoins;
+
+    // AppliedWrites statements
+    private final String insertAppliedWrite;
+    private final String selectAppliedWrite;
+    private final String deleteExpiredWrites;
+
+    // KitIds statements
+    private final String selectKitIds;
+    private final String insertKitId;
+
+    // ProfileLeases statements
+    private final String insertLease;
+    private final String takeLease;
+    private final String forceLease;
+    private final String renewLeases;
+    private final String deleteLease;
+    private final String deleteOwnedLeases;
+
+    /**
+     * The profile select for each batch size.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<Integer, String> profileSelects = new ConcurrentHashMap<>();
+
+    /**
+     * The profile update for each set of changed fields, keyed by field bitmask.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<Integer, String> profileUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * The delta profile update for each set of changed fields, keyed by field bitmask.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<Integer, String> profileDeltaUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * The top score select for each ranked column.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<String, String> topScoreSelects = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the statements for a database dialect.
+     *
+     * @param sqlite Whether to use the SQLite dialect; otherwise MariaDB.
+     */
+    public StatementRegistry(boolean sqlite) {
+        this.sqlite = sqlite;
+
+        insertDefaultProfile = (sqlite ? "INSERT OR IGNORE" : "INSERT IGNORE")
+                + " INTO Players (uuid, coins) VALUES (?, ?)";
+        upsertProfile = buildUpsert("Players", PROFILE_COLUMNS);
+        selectAllProfiles = "SELECT " + String.join(", ", PROFILE_COLUMNS) + " FROM Players";
+        updateCoins = "UPDATE Players SET coins = ? WHERE uuid = ?";
+        addCoins = "UPDATE Players SET coins = " + max("coins + ?", "0") + " WHERE uuid = ?";
+
+        insertAppliedWrite = "INSERT INTO AppliedWrites (writeKey, appliedAt) VALUES (?, ?)";
+        selectAppliedWrite = "SELECT 1 FROM AppliedWrites WHERE writeKey = ?";
+        deleteExpiredWrites = "DELETE FROM AppliedWrites WHERE appliedAt < ?";
+
+        selectKitIds = "SELECT id, kitName FROM KitIds";
+        insertKitId = "INSERT INTO KitIds (id, kitName) VALUES (?, ?)";
+
+        insertLease = (sqlite ? "INSERT OR IGNORE" : "INSERT IGNORE")
+                + " INTO ProfileLeases (uuid, owner, token, expiresAt) VALUES (?, ?, ?, ?)";
+        takeLease = "UPDATE ProfileLeases SET owner = ?, token = ?, expiresAt = ?"
+                + " WHERE uuid = ? AND (owner = ? OR expiresAt < ?)";
+        forceLease = "UPDATE ProfileLeases SET owner = ?, token = ?, expiresAt = ? WHERE uuid = ?";
+        renewLeases = "UPDATE ProfileLeases SET expiresAt = ? WHERE owner = ?";
+        deleteLease = "DELETE FROM ProfileLeases WHERE uuid = ? AND token = ?";
+        deleteOwnedLeases = "DELETE FROM ProfileLeases WHERE owner = ?";
+    }
+
+    /**
+     * Gets the query selecting the profiles of several players.
+     * Columns are read by {@link #PROFILE_MAPPER}.
+     *
+     * @param playerCount The number of UUID parameters.
+     * @return The profile select SQL.
+     */
+    public @NotNull String getProfileSelect(int playerCount) {
+        return profileSelects.computeIfAbsent(playerCount, count -> "SELECT "
+                + String.join(", ", PROFILE_COLUMNS)
+                + " FROM Players WHERE uuid IN ("
+                + String.join(", ", Collections.nCopies(count, "?"))
+                + ")");
+    }
+
+    /**
+     * Gets the update writing only some columns of the Players table.
+     * The columns are bound in {@link PlayerField} order, followed by the UUID.
+     * The owned kits bind the stored bits to keep before the new mask.
+     *
+     * @param fields The changed fields.
+     * @return The profile update SQL.
+     */
+    public @NotNull String getProfileUpdate(@NotNull Collection<PlayerField> fields) {
+        return profileUpdates.computeIfAbsent(getFieldMask(fields), key -> {
+            String assignments = Arrays.stream(PlayerField.values())
+                    .filter(field -> (key & (1 << field.ordinal())) != 0)
+                    .flatMap(field -> field.getColumnNames().stream().map(column -> getAssignment(field, column)))
+                    .collect(Collectors.joining(", "));
+            return "UPDATE Players SET " + assignments + " WHERE uuid = ?";
+        });
+    }
+
+    /**
+     * Gets the update adding the changes of some columns to the Players table.
+     * <p>
+     * Counters are added to the stored values (coins = coins + ?) and the
+     * top killstreak keeps the higher value, so writes from several servers
+     * combine instead of overwriting each other. Other columns are set.
+     * The columns are bound in {@link PlayerField} order, followed by the UUID.
+     * The owned kits bind the stored bits to keep before the new mask.
+     *
+     * @param fields The changed fields.
+     * @return The delta profile update SQL.
+     */
+    public @NotNull String getProfileDeltaUpdate(@NotNull Collection<PlayerField> fields) {
+        return profileDeltaUpdates.computeIfAbsent(getFieldMask(fields), key -> {
+            String assignments = Arrays.stream(PlayerField.values())
+                    .filter(field -> (key & (1 << field.ordinal())) != 0)
+                    .flatMap(field -> field.getColumnNames().stream().map(column -> getDeltaAssignment(field, column)))
+                    .collect(Collectors.joining(", "));
+            return "UPDATE Players SET " + assignments + " WHERE uuid = ?";
+        });
+    }
+
+    /**
+     * Checks if a field is written as a change to the stored value in delta mode.
+     *
+     * @param field The field.
+     * @return Whether the field's change is bound instead of its value.
+     */
+    public static boolean isDeltaField(@NotNull PlayerField field) {
+        switch (field) {
+            case COINS:
+            case EXPERIENCE:
+            case KILLS:
+            case DEATHS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Gets the query selecting the highest scores of a column.
+     * The number of rows is bound as the only parameter.
+     *
+     * @param columnName The column to rank by.
+     * @return The top score select SQL.
+     */
+    public @NotNull String getTopScoreSelect(@NotNull String columnName) {
+        return topScoreSelects.computeIfAbsent(columnName, column -> "SELECT uuid, " + column
+                + " FROM Players ORDER BY " + column + " DESC LIMIT ?");
+    }
+
+    /**
+     * Builds an insert that replaces the row if its key already exists.
+     *
+     * @param tableName The table name.
+     * @param columns   The columns, in the order they are bound.
+     * @return The upsert SQL.
+     */
+    public @NotNull String buildUpsert(@NotNull String tableName, @NotNull List<String> columns) {
+        String placeholders = String.join(", ", Collections.nCopies(columns.size(), "?"));
+
+        if (sqlite) {
+            // SQLite's syntax with INSERT OR REPLACE (assumes table has PRIMARY KEY or UNIQUE constraints)
+            return String.format("INSERT OR REPLACE INTO %s (%s) VALUES (%s)",
+                    tableName, String.join(", ", columns), placeholders);
+        }
+
+        // MySQL/MariaDB's syntax with ON DUPLICATE KEY UPDATE
+        String updateStatement = columns.stream()
+                .map(column -> String.format("%s = VALUES(%s)", column, column))
+                .collect(Collectors.joining(", "));
+
+        return String.format("INSERT INTO %s (%s) VALUES (%s) ON DUPLICATE KEY UPDATE %s",
+                tableName, String.join(", ", columns), placeholders, updateStatement);
+    }
+
+    /**
+     * Gets the assignment of a column in the delta profile update.
+     *
+     * @param field  The field the column belongs to.
+     * @param column The column.
+     * @return The column's assignment.
+     */
+    private @NotNull String getDeltaAssignment(@NotNull PlayerField field, @NotNull String column) {
+        switch (field) {
+            case COINS:
+            case EXPERIENCE:
+                return column + " = " + max(column + " + ?", "0");
+            case KILLS:
+            case DEATHS:
+                return column + " = " + column + " + ?";
+            case TOP_KILLSTREAK:
+                return column + " = " + max(column, "?");
+            default:
+                return getAssignment(field, column);
+        }
+    }
+
+    /**
+     * Gets the assignment setting a column of the Players table.
+     * <p>
+     * The owned kits keep the stored bits selected by the first parameter,
+     * so kits this server doesn't know aren't dropped when it writes the mask.
+     *
+     * @param field  The field.
+     * @param column The column.
+     * @return The SQL assignment.
+     */
+    private @NotNull String getAssignment(@NotNull PlayerField field, @NotNull String column) {
+        if (field == PlayerField.OWNED_KITS) {
+            // MariaDB's bit operators return unsigned values, which don't fit the highest bit.
+            String merged = "(" + column + " & ?) | ?";
+            return column + " = " + (sqlite ? merged : "CAST(" + merged + " AS SIGNED)");
+        }
+        return column + " = ?";
+    }
+
+    /**
+     * Builds the higher of two expressions.
+     *
+     * @param first  The first expression.
+     * @param second The second expression.
+     * @return The SQL expression.
+     */
+    private @NotNull String max(@NotNull String first, @NotNull String second) {
+        return (sqlite ? "MAX(" : "GREATEST(") + first + ", " + second + ")";
+    }
+
+    /**
+     * Gets the bitmask of a set of fields.
+     *
+     * @param fields The fields.
+     * @return The field bitmask.
+     */
+    private static int getFieldMask(@NotNull Collection<PlayerField> fields) {
+        int mask = 0;
+        for (PlayerField field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        return mask;
+    }
+}
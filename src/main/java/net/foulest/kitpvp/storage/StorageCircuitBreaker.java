@@ -0,0 +1,299 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Stops database calls while the database is unreachable.
+ * <p>
+ * After several connection failures in a row, the breaker opens and
+ * every call fails right away instead of waiting on the connection
+ * timeout. Saves are buffered by the {@link PersistenceQueue} and
+ * joining players get their last known profile, which is called
+ * degraded mode. Once the open duration has passed, a single probe
+ * checks the database; if it answers, the breaker closes and the
+ * buffered saves are written.
+ *
+ * @author Foulest
+ */
+@Data
+public class StorageCircuitBreaker {
+
+    /**
+     * The states of the breaker.
+     */
+    public enum State {
+        /**
+         * Calls go through.
+         */
+        CLOSED,
+
+        /**
+         * Calls fail right away.
+         */
+        OPEN,
+
+        /**
+         * A probe is checking if the database is back.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Guards the state of the breaker.
+     */
+    private static final Object lock = new Object();
+
+    /**
+     * The current state.
+     */
+    private static volatile State state = State.CLOSED;
+
+    /**
+     * The number of connection failures in a row.
+     */
+    private static int consecutiveFailures;
+
+    /**
+     * When the breaker last opened or a probe failed, in epoch milliseconds.
+     */
+    private static long openedAt;
+
+    /**
+     * When the current outage started, in epoch milliseconds.
+     */
+    private static long outageStartedAt;
+
+    /**
+     * The task starting probes.
+     */
+    private static @Nullable BukkitTask probeTask;
+
+    // Metrics
+    private static long trips;
+    private static long rejectedCalls;
+
+    /**
+     * Starts checking on the database while the breaker is open.
+     */
+    public static void start() {
+        if (probeTask != null) {
+            return;
+        }
+
+        probeTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                startProbe();
+            }
+        }.runTaskTimer(KitPvP.instance, 20L, 20L);
+    }
+
+    /**
+     * Stops checking on the database.
+     */
+    public static void stop() {
+        if (probeTask != null) {
+            probeTask.cancel();
+            probeTask = null;
+        }
+    }
+
+    /**
+     * Checks on the calling thread if the database is back, without waiting for the open duration.
+     * Used on shutdown, so the saves held during an outage are written if the database has recovered.
+     */
+    public static void probeNow() {
+        synchronized (lock) {
+            if (state != State.OPEN) {
+                return;
+            }
+
+            state = State.HALF_OPEN;
+        }
+
+        probe();
+    }
+
+    /**
+     * Checks if a database call may go through.
+     *
+     * @return Whether the breaker is closed.
+     */
+    public static boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        synchronized (lock) {
+            rejectedCalls++;
+        }
+        return false;
+    }
+
+    /**
+     * Records that the database could be reached.
+     */
+    public static void recordSuccess() {
+        synchronized (lock) {
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * Records a failed database call, opening the breaker
+     * once too many connection failures happened in a row.
+     * Errors unrelated to the connection are ignored.
+     *
+     * @param ex The error.
+     */
+    public static void recordFailure(@NotNull SQLException ex) {
+        if (!isConnectionFailure(ex)) {
+            return;
+        }
+
+        synchronized (lock) {
+            if (state != State.CLOSED || ++consecutiveFailures < Settings.circuitBreakerFailureThreshold) {
+                return;
+            }
+
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            outageStartedAt = openedAt;
+            trips++;
+        }
+
+        MessageUtil.log(Level.WARNING, "The database is unreachable; entering degraded mode."
+                + " Player data saves are buffered until it recovers.");
+    }
+
+    /**
+     * Checks if the plugin is running in degraded mode.
+     *
+     * @return Whether the breaker is not closed.
+     */
+    public static boolean isDegraded() {
+        return state != State.CLOSED;
+    }
+
+    /**
+     * Gets the current state.
+     *
+     * @return The breaker state.
+     */
+    public static @NotNull State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the number of times the breaker opened.
+     *
+     * @return The trip count.
+     */
+    public static long getTrips() {
+        synchronized (lock) {
+            return trips;
+        }
+    }
+
+    /**
+     * Gets the number of calls failed because the breaker was open.
+     *
+     * @return The rejected call count.
+     */
+    public static long getRejectedCalls() {
+        synchronized (lock) {
+            return rejectedCalls;
+        }
+    }
+
+    /**
+     * Starts a probe on the storage executor once the open duration has passed.
+     */
+    private static void startProbe() {
+        synchronized (lock) {
+            if (state != State.OPEN || System.currentTimeMillis() - openedAt
+                    < TimeUnit.SECONDS.toMillis(Settings.circuitBreakerOpenDuration)) {
+                return;
+            }
+
+            state = State.HALF_OPEN;
+        }
+
+        // Tries again next second if the executor is full.
+        if (!StorageExecutor.execute(StorageCircuitBreaker::probe)) {
+            synchronized (lock) {
+                state = State.OPEN;
+            }
+        }
+    }
+
+    /**
+     * Checks if the database is back, closing the breaker if it is.
+     */
+    private static void probe() {
+        boolean reachable = DatabaseUtil.ping();
+        long outageMillis;
+
+        synchronized (lock) {
+            if (!reachable) {
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+                return;
+            }
+
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            outageMillis = System.currentTimeMillis() - outageStartedAt;
+        }
+
+        MessageUtil.log(Level.INFO, "The database recovered after " + (outageMillis / 1000L)
+                + "s; leaving degraded mode.");
+
+        // Writes the saves buffered during the outage.
+        PersistenceQueue.replayBuffered();
+    }
+
+    /**
+     * Checks if an error means the database couldn't be reached.
+     *
+     * @param ex The error.
+     * @return Whether the error is a connection failure.
+     */
+    private static boolean isConnectionFailure(@NotNull SQLException ex) {
+        String sqlState = ex.getSQLState();
+        return ex instanceof SQLTransientConnectionException
+                || ex instanceof SQLNonTransientConnectionException
+                || (sqlState != null && sqlState.startsWith("08"));
+    }
+}
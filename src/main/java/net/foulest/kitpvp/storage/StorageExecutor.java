@@ -0,0 +1,269 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Runs database work on a dedicated, fixed-size pool of threads.
+ * <p>
+ * Keeping blocking JDBC calls off shared pools (such as the common
+ * fork-join pool used by parallel streams) means slow queries can't
+ * starve unrelated work. The queue is bounded: when it's full, tasks
+ * run on the thread submitting them instead, slowing the producer
+ * down, except on the main thread, where they are rejected so the
+ * server never blocks on the database.
+ *
+ * @author Foulest
+ */
+@Data
+public class StorageExecutor {
+
+    /**
+     * The thread pool running the tasks.
+     */
+    private static volatile @Nullable ThreadPoolExecutor executor;
+
+    // Metrics
+    private static final AtomicLong submittedTasks = new AtomicLong();
+    private static final AtomicLong completedTasks = new AtomicLong();
+    private static final AtomicLong rejectedTasks = new AtomicLong();
+    private static final AtomicLong callerRunTasks = new AtomicLong();
+    private static final LatencyStats queueLatency = new LatencyStats();
+    private static final LatencyStats taskLatency = new LatencyStats();
+
+    /**
+     * Starts the storage threads.
+     */
+    public static synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "KitPvP Storage #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        executor = new ThreadPoolExecutor(Settings.storageThreads, Settings.storageThreads,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Settings.storageQueueCapacity),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Stops the storage threads, waiting for queued tasks to finish.
+     *
+     * @param timeoutMillis The maximum time to wait for queued tasks.
+     */
+    public static synchronized void shutdown(long timeoutMillis) {
+        ThreadPoolExecutor service = executor;
+
+        if (service == null) {
+            return;
+        }
+
+        executor = null;
+        service.shutdown();
+
+        try {
+            if (!service.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                int dropped = service.shutdownNow().size();
+                MessageUtil.log(Level.WARNING, "Dropped " + dropped + " storage tasks after " + timeoutMillis + "ms.");
+            }
+        } catch (InterruptedException ex) {
+            service.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        MessageUtil.log(Level.INFO, "Storage executor stopped: " + completedTasks.get() + " tasks run, "
+                + callerRunTasks.get() + " on the calling thread, " + rejectedTasks.get() + " rejected, "
+                + String.format("%.2f", queueLatency.getAverageMillis()) + "ms average queue time, "
+                + String.format("%.2f", taskLatency.getAverageMillis()) + "ms average task time.");
+    }
+
+    /**
+     * Queues a task without ever running it on the calling thread.
+     * Safe to call while holding locks the task itself needs.
+     *
+     * @param task The task to run.
+     * @return Whether the task was queued; false if the queue is full or not running.
+     */
+    public static boolean execute(@NotNull Runnable task) {
+        ThreadPoolExecutor service = executor;
+
+        if (service == null) {
+            return false;
+        }
+
+        long queuedAt = System.nanoTime();
+
+        try {
+            service.execute(() -> run(task, queuedAt));
+            submittedTasks.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException ex) {
+            rejectedTasks.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Runs a database task on the storage threads.
+     * <p>
+     * If the task can't be queued, it runs on the calling thread instead,
+     * or fails with a {@link RejectedExecutionException} on the main thread.
+     *
+     * @param task The task to run.
+     * @param <T>  The result type.
+     * @return A future completed with the task's result.
+     */
+    public static <T> @NotNull CompletableFuture<T> submit(@NotNull StorageTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        Runnable runnable = () -> {
+            try {
+                future.complete(task.call());
+            } catch (SQLException | RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+        };
+
+        if (execute(runnable)) {
+            return future;
+        }
+
+        // Never blocks the main thread on the database.
+        if (Bukkit.isPrimaryThread()) {
+            future.completeExceptionally(new RejectedExecutionException("The storage queue is full."));
+            return future;
+        }
+
+        callerRunTasks.incrementAndGet();
+        run(runnable, System.nanoTime());
+        return future;
+    }
+
+    /**
+     * Gets the number of tasks waiting for a storage thread.
+     *
+     * @return The queue depth.
+     */
+    public static int getQueueDepth() {
+        ThreadPoolExecutor service = executor;
+        return (service == null) ? 0 : service.getQueue().size();
+    }
+
+    /**
+     * Gets the number of storage threads running a task.
+     *
+     * @return The active thread count.
+     */
+    public static int getActiveThreads() {
+        ThreadPoolExecutor service = executor;
+        return (service == null) ? 0 : service.getActiveCount();
+    }
+
+    /**
+     * Gets the number of tasks queued.
+     *
+     * @return The submitted task count.
+     */
+    public static long getSubmittedTasks() {
+        return submittedTasks.get();
+    }
+
+    /**
+     * Gets the number of tasks run, on any thread.
+     *
+     * @return The completed task count.
+     */
+    public static long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    /**
+     * Gets the number of tasks that couldn't be queued.
+     *
+     * @return The rejected task count.
+     */
+    public static long getRejectedTasks() {
+        return rejectedTasks.get();
+    }
+
+    /**
+     * Gets the number of tasks run on the calling thread because the queue was full.
+     *
+     * @return The caller-run task count.
+     */
+    public static long getCallerRunTasks() {
+        return callerRunTasks.get();
+    }
+
+    /**
+     * Gets how long tasks waited for a storage thread.
+     *
+     * @return The queue latency stats.
+     */
+    public static LatencyStats getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * Gets how long tasks took to run.
+     *
+     * @return The task latency stats.
+     */
+    public static LatencyStats getTaskLatency() {
+        return taskLatency;
+    }
+
+    /**
+     * Runs a task and records its timing.
+     *
+     * @param task     The task to run.
+     * @param queuedAt When the task was queued, in nanoseconds.
+     */
+    private static void run(@NotNull Runnable task, long queuedAt) {
+        long startTime = System.nanoTime();
+        queueLatency.record(startTime - queuedAt);
+
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            MessageUtil.log(Level.WARNING, "A storage task failed.");
+            ex.printStackTrace();
+        } finally {
+            taskLatency.record(System.nanoTime() - startTime);
+            completedTasks.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.util.DatabaseUtil;
+import net.foulest.kitpvp.util.MessageUtil;
+import net.foulest.kitpvp.util.Settings;
+import net.foulest.kitpvp.util.timer.TimerWheel;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Times database operations and exports the storage metrics.
+ * <p>
+ * Each {@link StorageOperation} has its own latency histogram and
+ * error counter. Together with the connection pool, executor and
+ * queue gauges, they are shown by /kitpvp storage and written to
+ * a metrics file in the Prometheus text format, which the node
+ * exporter's textfile collector can pick up.
+ *
+ * @author Foulest
+ */
+@Data
+public class StorageMetrics {
+
+    /**
+     * The latency of each operation.
+     */
+    private static final Map<StorageOperation, LatencyStats> latencies = new EnumMap<>(StorageOperation.class);
+
+    /**
+     * The number of failures of each operation.
+     */
+    private static final Map<StorageOperation, AtomicLong> errors = new EnumMap<>(StorageOperation.class);
+
+    static {
+        for (StorageOperation operation : StorageOperation.values()) {
+            latencies.put(operation, new LatencyStats());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    /**
+     * The task writing the metrics file.
+     */
+    private static @Nullable BukkitTask exportTask;
+
+    /**
+     * Runs a database operation, recording its latency and whether it failed.
+     *
+     * @param operation The kind of operation.
+     * @param task      The operation.
+     * @param <T>       The result type.
+     * @return The operation's result.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static <T> T time(@NotNull StorageOperation operation, @NotNull StorageTask<T> task) throws SQLException {
+        long startTime = System.nanoTime();
+
+        try {
+            return task.call();
+        } catch (SQLException | RuntimeException ex) {
+            errors.get(operation).incrementAndGet();
+            throw ex;
+        } finally {
+            latencies.get(operation).record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Gets the latency of an operation.
+     *
+     * @param operation The kind of operation.
+     * @return The latency stats.
+     */
+    public static @NotNull LatencyStats getLatency(@NotNull StorageOperation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * Gets the number of failures of an operation.
+     *
+     * @param operation The kind of operation.
+     * @return The error count.
+     */
+    public static long getErrors(@NotNull StorageOperation operation) {
+        return errors.get(operation).get();
+    }
+
+    /**
+     * Starts writing the metrics file, if enabled.
+     */
+    public static void start() {
+        if (exportTask != null || Settings.metricsFile.isEmpty() || Settings.metricsInterval <= 0) {
+            return;
+        }
+
+        long period = Settings.metricsInterval * 20L;
+
+        exportTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                export();
+            }
+        }.runTaskTimerAsynchronously(KitPvP.instance, period, period);
+    }
+
+    /**
+     * Stops writing the metrics file.
+     */
+    public static void stop() {
+        if (exportTask != null) {
+            exportTask.cancel();
+            exportTask = null;
+        }
+    }
+
+    /**
+     * Renders every storage metric in the Prometheus text format.
+     *
+     * @return The metrics text.
+     */
+    public static @NotNull String render() {
+        StringBuilder builder = new StringBuilder();
+
+        // Operations
+        builder.append("# TYPE kitpvp_storage_latency_ms summary\n");
+        for (StorageOperation operation : StorageOperation.values()) {
+            LatencyStats stats = latencies.get(operation);
+            String labels = "operation=\"" + operation.getId() + "\"";
+            appendMetric(builder, "kitpvp_storage_latency_ms", labels + ",quantile=\"0.5\"", stats.getPercentileMillis(50));
+            appendMetric(builder, "kitpvp_storage_latency_ms", labels + ",quantile=\"0.99\"", stats.getPercentileMillis(99));
+            appendMetric(builder, "kitpvp_storage_latency_ms", labels + ",quantile=\"1\"", stats.getMaxMillis());
+            appendMetric(builder, "kitpvp_storage_latency_ms_count", labels, stats.getCount());
+        }
+
+        builder.append("# TYPE kitpvp_storage_errors_total counter\n");
+        for (StorageOperation operation : StorageOperation.values()) {
+            appendMetric(builder, "kitpvp_storage_errors_total",
+                    "operation=\"" + operation.getId() + "\"", errors.get(operation).get());
+        }
+
+        // Connection pools
+        builder.append("# TYPE kitpvp_storage_pool_connections gauge\n");
+        for (PoolStats pool : DatabaseUtil.getPoolStats()) {
+            String labels = "pool=\"" + pool.getName() + "\"";
+            appendMetric(builder, "kitpvp_storage_pool_connections", labels + ",state=\"active\"", pool.getActive());
+            appendMetric(builder, "kitpvp_storage_pool_connections", labels + ",state=\"idle\"", pool.getIdle());
+            appendMetric(builder, "kitpvp_storage_pool_connections", labels + ",state=\"max\"", pool.getMaximum());
+            appendMetric(builder, "kitpvp_storage_pool_waiting_threads", labels, pool.getWaiting());
+        }
+
+        // Storage executor
+        appendMetric(builder, "kitpvp_storage_executor_queue_depth", null, StorageExecutor.getQueueDepth());
+        appendMetric(builder, "kitpvp_storage_executor_active_threads", null, StorageExecutor.getActiveThreads());
+        appendMetric(builder, "kitpvp_storage_executor_rejected_total", null, StorageExecutor.getRejectedTasks());
+        appendMetric(builder, "kitpvp_storage_executor_caller_runs_total", null, StorageExecutor.getCallerRunTasks());
+        appendMetric(builder, "kitpvp_storage_executor_queue_ms", "quantile=\"0.99\"",
+                StorageExecutor.getQueueLatency().getPercentileMillis(99));
+
+        // Write-behind queue
+        appendMetric(builder, "kitpvp_storage_queue_depth", null, PersistenceQueue.getQueueDepth());
+        appendMetric(builder, "kitpvp_storage_buffered_saves", null, PersistenceQueue.getBufferedSaves());
+        appendMetric(builder, "kitpvp_storage_writes_total", "result=\"completed\"", PersistenceQueue.getCompletedWrites());
+        appendMetric(builder, "kitpvp_storage_writes_total", "result=\"coalesced\"", PersistenceQueue.getCoalescedWrites());
+        appendMetric(builder, "kitpvp_storage_writes_total", "result=\"skipped\"", PersistenceQueue.getSkippedWrites());
+        appendMetric(builder, "kitpvp_storage_writes_total", "result=\"failed\"", PersistenceQueue.getFailedWrites());
+        appendMetric(builder, "kitpvp_storage_writes_total", "result=\"dropped\"", PersistenceQueue.getDroppedWrites());
+        appendMetric(builder, "kitpvp_storage_overflow_total", null, PersistenceQueue.getOverflowWrites());
+
+        // Profile snapshot cache
+        appendMetric(builder, "kitpvp_storage_snapshot_profiles", null, ProfileSnapshotCache.getSize());
+        appendMetric(builder, "kitpvp_storage_snapshot_lookups_total", "result=\"hit\"", ProfileSnapshotCache.getHits());
+        appendMetric(builder, "kitpvp_storage_snapshot_lookups_total", "result=\"miss\"", ProfileSnapshotCache.getMisses());
+        appendMetric(builder, "kitpvp_storage_snapshot_outdated_total", null, ProfileSnapshotCache.getOutdated());
+
+        // Circuit breaker and journal
+        appendMetric(builder, "kitpvp_storage_degraded", null, StorageCircuitBreaker.isDegraded() ? 1 : 0);
+        appendMetric(builder, "kitpvp_storage_breaker_trips_total", null, StorageCircuitBreaker.getTrips());
+        appendMetric(builder, "kitpvp_storage_journal_pending_entries", null, EconomyJournal.getPendingEntries());
+
+        // Timer wheel
+        appendMetric(builder, "kitpvp_timers_pending", null, TimerWheel.getPendingTimers());
+        appendMetric(builder, "kitpvp_timers_dispatched_total", null, TimerWheel.getDispatchedTimers());
+        return builder.toString();
+    }
+
+    /**
+     * Writes the metrics file, replacing it in one step so readers never see a partial file.
+     */
+    private static void export() {
+        Path path = Paths.get(Settings.metricsFile);
+        Path temporary = Paths.get(Settings.metricsFile + ".tmp");
+
+        try {
+            Files.write(temporary, render().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            MessageUtil.log(Level.WARNING, "Failed to write the storage metrics file.");
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends a metric line.
+     *
+     * @param builder The builder to append to.
+     * @param name    The metric name.
+     * @param labels  The metric labels, or null if there are none.
+     * @param value   The metric value.
+     */
+    private static void appendMetric(@NotNull StringBuilder builder, @NotNull String name,
+                                     @Nullable String labels, double value) {
+        builder.append(name);
+
+        if (labels != null) {
+            builder.append('{').append(labels).append('}');
+        }
+
+        builder.append(' ').append(String.format(Locale.ROOT, "%.3f", value)).append('\n');
+    }
+}
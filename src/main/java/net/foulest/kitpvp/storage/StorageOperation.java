@@ -0,0 +1,89 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Getter;
+
+/**
+ * The kinds of database operations timed by {@link StorageMetrics}.
+ *
+ * @author Foulest
+ */
+@Getter
+public enum StorageOperation {
+    /**
+     * Loading player profiles.
+     */
+    PROFILE_LOAD("profile_load", "Profile loads"),
+
+    /**
+     * Saving a player's profile.
+     */
+    PROFILE_SAVE("profile_save", "Profile saves"),
+
+    /**
+     * Setting balances in a batch.
+     */
+    BALANCE_SAVE("balance_save", "Balance saves"),
+
+    /**
+     * Loading the highest scores of a leaderboard.
+     */
+    TOP_SCORES("top_scores", "Top scores"),
+
+    /**
+     * Replaying the economy journal's balance changes.
+     */
+    JOURNAL_REPLAY("journal_replay", "Journal replays"),
+
+    /**
+     * Importing a batch of profiles from a file.
+     */
+    PROFILE_IMPORT("profile_import", "Profile imports"),
+
+    /**
+     * Taking, renewing or releasing profile leases.
+     */
+    LEASE("lease", "Leases"),
+
+    /**
+     * Deleting expired write keys.
+     */
+    KEY_CLEANUP("key_cleanup", "Key cleanups");
+
+    /**
+     * The name used in the metrics file.
+     */
+    private final String id;
+
+    /**
+     * The name shown to players.
+     */
+    private final String displayName;
+
+    /**
+     * Creates an operation.
+     *
+     * @param id          The name used in the metrics file.
+     * @param displayName The name shown to players.
+     */
+    StorageOperation(String id, String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+    }
+}
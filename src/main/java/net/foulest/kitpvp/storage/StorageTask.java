@@ -0,0 +1,38 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import java.sql.SQLException;
+
+/**
+ * A database task run by the {@link StorageExecutor}.
+ *
+ * @param <T> The result type.
+ * @author Foulest
+ */
+@FunctionalInterface
+public interface StorageTask<T> {
+
+    /**
+     * Runs the task.
+     *
+     * @return The task's result.
+     * @throws SQLException If a database access error occurs.
+     */
+    T call() throws SQLException;
+}
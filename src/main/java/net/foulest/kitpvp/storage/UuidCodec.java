@@ -0,0 +1,62 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import lombok.Data;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to and from their 16-byte database form.
+ *
+ * @author Foulest
+ */
+@Data
+public class UuidCodec {
+
+    /**
+     * Converts a UUID to 16 bytes.
+     *
+     * @param uniqueId The UUID.
+     * @return The UUID's bytes.
+     */
+    public static byte @NotNull [] toBytes(@NotNull UUID uniqueId) {
+        return ByteBuffer.allocate(16)
+                .putLong(uniqueId.getMostSignificantBits())
+                .putLong(uniqueId.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Converts 16 bytes back to a UUID.
+     *
+     * @param bytes The UUID's bytes, or null.
+     * @return The UUID, or null if there were no bytes.
+     */
+    public static @Nullable UUID fromBytes(byte @Nullable [] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
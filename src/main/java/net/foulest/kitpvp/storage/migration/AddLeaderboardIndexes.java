@@ -0,0 +1,61 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage.migration;
+
+import net.foulest.kitpvp.storage.StatementRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Indexes the Players columns that leaderboards rank by,
+ * so seeding a leaderboard reads only its top rows.
+ *
+ * @author Foulest
+ */
+public class AddLeaderboardIndexes implements SchemaMigration {
+
+    /**
+     * The ranked columns.
+     */
+    private static final List<String> RANKED_COLUMNS = Arrays.asList("kills", "topKillstreak", "experience", "coins");
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public @NotNull String getDescription() {
+        return "Index the leaderboard columns";
+    }
+
+    @Override
+    public void migrate(@NotNull Connection connection, @NotNull StatementRegistry statements) throws SQLException {
+        for (String columnName : RANKED_COLUMNS) {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(
+                    "CREATE INDEX IF NOT EXISTS Players_" + columnName + " ON Players (" + columnName + ")")) {
+                preparedStatement.execute();
+            }
+        }
+    }
+}
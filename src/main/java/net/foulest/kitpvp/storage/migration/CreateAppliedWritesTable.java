@@ -0,0 +1,59 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage.migration;
+
+import net.foulest.kitpvp.storage.StatementRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Creates the AppliedWrites table, which records the key of every
+ * delta write so a retried or replayed write is never applied twice.
+ *
+ * @author Foulest
+ */
+public class CreateAppliedWritesTable implements SchemaMigration {
+
+    @Override
+    public int getVersion() {
+        return 4;
+    }
+
+    @Override
+    public @NotNull String getDescription() {
+        return "Create the AppliedWrites table";
+    }
+
+    @Override
+    public void migrate(@NotNull Connection connection, @NotNull StatementRegistry statements) throws SQLException {
+        SchemaMigrator.createTableIfNotExists(connection, "AppliedWrites",
+                "writeKey BINARY(16) NOT NULL, "
+                        + "appliedAt BIGINT NOT NULL, "
+                        + "PRIMARY KEY (writeKey)"
+        );
+
+        // Expired keys are deleted by age.
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "CREATE INDEX IF NOT EXISTS AppliedWrites_appliedAt ON AppliedWrites (appliedAt)")) {
+            preparedStatement.execute();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage.migration;
+
+import net.foulest.kitpvp.storage.StatementRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Creates the compact Players table and the KitIds table.
+ * <p>
+ * Each player is a single row keyed by their UUID as 16 bytes.
+ * Owned kits and enchants are stored as bitmasks, and the bounty
+ * is stored alongside the stats instead of in its own table.
+ *
+ * @author Foulest
+ */
+public class CreatePlayersTable implements SchemaMigration {
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public @NotNull String getDescription() {
+        return "Create the Players and KitIds tables";
+    }
+
+    @Override
+    public void migrate(@NotNull Connection connection, @NotNull StatementRegistry statements) throws SQLException {
+        SchemaMigrator.createTableIfNotExists(connection, "Players",
+                "uuid BINARY(16) NOT NULL, "
+                        + "coins INT NOT NULL DEFAULT 0, "
+                        + "experience INT NOT NULL DEFAULT 0, "
+                        + "kills INT NOT NULL DEFAULT 0, "
+                        + "deaths INT NOT NULL DEFAULT 0, "
+                        + "killstreak INT NOT NULL DEFAULT 0, "
+                        + "topKillstreak INT NOT NULL DEFAULT 0, "
+                        + "usingSoup TINYINT NOT NULL DEFAULT 0, "
+                        + "previousKit VARCHAR(64) NOT NULL DEFAULT 'Knight', "
+                        + "ownedKits BIGINT NOT NULL DEFAULT 0, "
+                        + "bounty INT NOT NULL DEFAULT 0, "
+                        + "benefactor BINARY(16), "
+                        + "enchants INT NOT NULL DEFAULT 0, "
+                        + "PRIMARY KEY (uuid)"
+        );
+
+        SchemaMigrator.createTableIfNotExists(connection, "KitIds",
+                "id INT NOT NULL, "
+                        + "kitName VARCHAR(64) NOT NULL, "
+                        + "PRIMARY KEY (id), "
+                        + "UNIQUE (kitName)"
+        );
+    }
+}
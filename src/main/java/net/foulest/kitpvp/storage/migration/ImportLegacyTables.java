@@ -0,0 +1,297 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage.migration;
+
+import net.foulest.kitpvp.enchants.Enchants;
+import net.foulest.kitpvp.storage.KitIndex;
+import net.foulest.kitpvp.storage.StatementRegistry;
+import net.foulest.kitpvp.storage.UuidCodec;
+import net.foulest.kitpvp.util.MessageUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Copies the legacy PlayerStats, PlayerKits, Bounties and Enchants
+ * tables into the Players table, then renames them with a _v1 suffix.
+ * <p>
+ * Rows are copied in chunks ordered by UUID, each chunk in its own
+ * transaction, so large tables never hold a single long transaction.
+ * On SQLite, the migrator already holds a transaction for the whole run,
+ * so the chunks are committed with it instead.
+ * <p>
+ * Rows are upserted, so an interrupted copy simply starts over. If the
+ * copy finished but only some tables were renamed, the rest are renamed.
+ *
+ * @author Foulest
+ */
+public class ImportLegacyTables implements SchemaMigration {
+
+    /**
+     * The legacy tables, renamed once their data has been copied.
+     */
+    private static final List<String> LEGACY_TABLES = Arrays.asList("PlayerStats", "PlayerKits", "Bounties", "Enchants");
+
+    /**
+     * The number of players copied per transaction.
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public @NotNull String getDescription() {
+        return "Import the legacy player tables";
+    }
+
+    @Override
+    public void migrate(@NotNull Connection connection, @NotNull StatementRegistry statements) throws SQLException {
+        for (String tableName : LEGACY_TABLES) {
+            if (!SchemaMigrator.tableExists(connection, tableName)) {
+                // Finishes renaming the tables if an earlier run copied them but was interrupted.
+                if (SchemaMigrator.tableExists(connection, tableName + "_v1")) {
+                    renameLegacyTables(connection);
+                }
+
+                // Nothing to import on fresh installs.
+                return;
+            }
+        }
+
+        // Indexes the legacy kits by player; without it, every player's kits are a full table scan.
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "CREATE INDEX IF NOT EXISTS PlayerKits_uuid ON PlayerKits (uuid)")) {
+            preparedStatement.execute();
+        }
+
+        // Assigns kit ids up front, as new ids are committed outside the copy transactions.
+        KitIndex.load(connection, statements);
+        List<String> kitNames = new ArrayList<>();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "SELECT DISTINCT kitName FROM PlayerKits WHERE kitName IS NOT NULL");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                kitNames.add(resultSet.getString(1));
+            }
+        }
+
+        KitIndex.register(connection, kitNames);
+
+        int copied = 0;
+        int skipped = 0;
+        String lastUuid = "";
+        boolean chunked = !statements.isSqlite();
+        boolean autoCommit = connection.getAutoCommit();
+
+        try {
+            if (chunked) {
+                connection.setAutoCommit(false);
+            }
+
+            while (true) {
+                List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+                int fetched = 0;
+
+                try (PreparedStatement preparedStatement = connection.prepareStatement(getChunkSelectSQL())) {
+                    preparedStatement.setString(1, lastUuid);
+
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            fetched++;
+                            lastUuid = resultSet.getString(1);
+                            Object[] row = readLegacyRow(resultSet);
+
+                            if (row == null) {
+                                skipped++;
+                            } else {
+                                rows.add(row);
+                            }
+                        }
+                    }
+                }
+
+                if (!rows.isEmpty()) {
+                    try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getUpsertProfile())) {
+                        for (Object[] row : rows) {
+                            for (int i = 0; i < row.length; i++) {
+                                if (row[i] == null) {
+                                    preparedStatement.setNull(i + 1, Types.BINARY);
+                                } else {
+                                    preparedStatement.setObject(i + 1, row[i]);
+                                }
+                            }
+
+                            preparedStatement.addBatch();
+                        }
+
+                        preparedStatement.executeBatch();
+                    }
+
+                    copied += rows.size();
+                }
+
+                if (chunked) {
+                    connection.commit();
+                }
+
+                if (fetched < CHUNK_SIZE) {
+                    break;
+                }
+            }
+        } catch (SQLException ex) {
+            if (chunked) {
+                connection.rollback();
+            }
+            throw ex;
+        } finally {
+            if (chunked) {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+
+        MessageUtil.log(Level.INFO, "Imported " + copied + " players from the legacy tables"
+                + (skipped > 0 ? " (" + skipped + " rows with invalid UUIDs skipped)." : "."));
+
+        renameLegacyTables(connection);
+    }
+
+    /**
+     * Renames the legacy tables that haven't been renamed yet.
+     * Keeps them around under a new name instead of dropping them.
+     *
+     * @param connection The connection to use.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void renameLegacyTables(@NotNull Connection connection) throws SQLException {
+        for (String tableName : LEGACY_TABLES) {
+            if (!SchemaMigrator.tableExists(connection, tableName)
+                    || SchemaMigrator.tableExists(connection, tableName + "_v1")) {
+                continue;
+            }
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(
+                    String.format("ALTER TABLE %s RENAME TO %s_v1", tableName, tableName))) {
+                preparedStatement.execute();
+            }
+        }
+    }
+
+    /**
+     * Builds the query selecting the next chunk of legacy players.
+     *
+     * @return The chunk select SQL.
+     */
+    private static @NotNull String getChunkSelectSQL() {
+        StringBuilder builder = new StringBuilder("SELECT s.uuid, s.coins, s.experience, s.kills, s.deaths,"
+                + " s.killstreak, s.topKillstreak, s.usingSoup, s.previousKit, b.bounty, b.benefactor");
+
+        for (Enchants enchant : Enchants.values()) {
+            builder.append(", e.").append(enchant.getDatabaseName());
+        }
+
+        builder.append(", (SELECT GROUP_CONCAT(k.kitName) FROM PlayerKits k WHERE k.uuid = s.uuid)"
+                + " FROM PlayerStats s"
+                + " LEFT JOIN Bounties b ON b.uuid = s.uuid"
+                + " LEFT JOIN Enchants e ON e.uuid = s.uuid"
+                + " WHERE s.uuid > ? ORDER BY s.uuid LIMIT ").append(CHUNK_SIZE);
+        return builder.toString();
+    }
+
+    /**
+     * Converts a legacy row to the values of a Players row.
+     *
+     * @param resultSet The result set positioned on the legacy row.
+     * @return The Players row values, or null if the row's UUID is invalid.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static Object @Nullable [] readLegacyRow(@NotNull ResultSet resultSet) throws SQLException {
+        UUID uniqueId = parseUUID(resultSet.getString(1));
+
+        if (uniqueId == null) {
+            return null;
+        }
+
+        String previousKit = resultSet.getString(9);
+        UUID benefactor = parseUUID(resultSet.getString(11));
+        int bounty = (benefactor == null) ? 0 : resultSet.getInt(10);
+
+        Set<Enchants> enchants = EnumSet.noneOf(Enchants.class);
+        Enchants[] values = Enchants.values();
+        for (int i = 0; i < values.length; i++) {
+            if (resultSet.getInt(12 + i) == 1) {
+                enchants.add(values[i]);
+            }
+        }
+
+        List<String> ownedKits = new ArrayList<>();
+        String ownedKitsString = resultSet.getString(12 + values.length);
+        if (ownedKitsString != null) {
+            for (String kitName : ownedKitsString.split(",")) {
+                if (!kitName.isEmpty()) {
+                    ownedKits.add(kitName);
+                }
+            }
+        }
+
+        // Column order matches the Players upsert.
+        return new Object[]{
+                UuidCodec.toBytes(uniqueId),
+                resultSet.getInt(2),
+                resultSet.getInt(3),
+                resultSet.getInt(4),
+                resultSet.getInt(5),
+                resultSet.getInt(6),
+                resultSet.getInt(7),
+                resultSet.getInt(8) == 1 ? 1 : 0,
+                (previousKit == null) ? "Knight" : previousKit,
+                KitIndex.toMask(ownedKits),
+                bounty,
+                (benefactor == null) ? null : UuidCodec.toBytes(benefactor),
+                Enchants.toMask(enchants)
+        };
+    }
+
+    /**
+     * Parses a legacy UUID string.
+     *
+     * @param value The UUID string.
+     * @return The UUID, or null if it's missing or invalid.
+     */
+    private static @Nullable UUID parseUUID(@Nullable String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
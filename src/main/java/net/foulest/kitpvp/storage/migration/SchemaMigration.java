@@ -0,0 +1,59 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage.migration;
+
+import net.foulest.kitpvp.storage.StatementRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Represents a single step of the database schema.
+ * <p>
+ * Migrations are applied in version order, each exactly once.
+ * A migration that fails is retried on the next startup,
+ * so every step must be safe to run again after a partial run.
+ *
+ * @author Foulest
+ */
+public interface SchemaMigration {
+
+    /**
+     * Gets the schema version this migration upgrades to.
+     *
+     * @return The schema version.
+     */
+    int getVersion();
+
+    /**
+     * Gets a short description of the migration.
+     *
+     * @return The description.
+     */
+    @NotNull String getDescription();
+
+    /**
+     * Applies the migration.
+     *
+     * @param connection The connection to use.
+     * @param statements The statements for the configured database.
+     * @throws SQLException If a database access error occurs.
+     */
+    void migrate(@NotNull Connection connection, @NotNull StatementRegistry statements) throws SQLException;
+}
@@ -0,0 +1,237 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage.migration;
+
+import lombok.Data;
+import net.foulest.kitpvp.storage.StatementRegistry;
+import net.foulest.kitpvp.util.MessageUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Brings the database schema up to date.
+ * <p>
+ * The applied version is tracked in the SchemaVersion table. On startup,
+ * every migration newer than that version is applied in order and recorded.
+ * <p>
+ * Servers sharing a database migrate one at a time: on MariaDB, under a
+ * named lock; on SQLite, inside a single immediate transaction, so a failed
+ * run is rolled back entirely. The version is read once the lock is held,
+ * and every migration can safely run again after a partial run.
+ *
+ * @author Foulest
+ */
+@Data
+public class SchemaMigrator {
+
+    /**
+     * Every migration, in version order.
+     * New migrations must be appended with the next version.
+     */
+    private static final List<SchemaMigration> migrations = Collections.unmodifiableList(Arrays.asList(
+            new CreatePlayersTable(),
+            new ImportLegacyTables(),
+            new AddLeaderboardIndexes(),
+            new CreateAppliedWritesTable(),
+            new CreateProfileLeasesTable()
+    ));
+
+    /**
+     * The name of the MariaDB lock held while migrating.
+     */
+    private static final String LOCK_NAME = "kitpvp_schema_migration";
+
+    /**
+     * The maximum time to wait for another server to finish migrating, in seconds.
+     */
+    private static final int LOCK_TIMEOUT = 300;
+
+    /**
+     * Applies every migration newer than the database's schema version.
+     *
+     * @param connection The connection to use.
+     * @param statements The statements for the configured database.
+     * @throws SQLException If a migration fails or the lock can't be taken.
+     */
+    public static void migrate(@NotNull Connection connection, @NotNull StatementRegistry statements) throws SQLException {
+        boolean sqlite = statements.isSqlite();
+        boolean success = false;
+
+        lock(connection, sqlite);
+
+        try {
+            applyMigrations(connection, statements);
+            success = true;
+        } finally {
+            unlock(connection, sqlite, success);
+        }
+    }
+
+    /**
+     * Applies every migration newer than the database's schema version.
+     * Must be called while holding the migration lock.
+     *
+     * @param connection The connection to use.
+     * @param statements The statements for the configured database.
+     * @throws SQLException If a migration fails.
+     */
+    private static void applyMigrations(@NotNull Connection connection,
+                                        @NotNull StatementRegistry statements) throws SQLException {
+        createTableIfNotExists(connection, "SchemaVersion",
+                "version INT NOT NULL, "
+                        + "description VARCHAR(255) NOT NULL, "
+                        + "appliedAt BIGINT NOT NULL, "
+                        + "PRIMARY KEY (version)"
+        );
+
+        int currentVersion = getSchemaVersion(connection);
+        int latestVersion = migrations.get(migrations.size() - 1).getVersion();
+
+        if (currentVersion > latestVersion) {
+            MessageUtil.log(Level.WARNING, "The database schema (v" + currentVersion
+                    + ") is newer than this version of the plugin supports (v" + latestVersion + ").");
+            return;
+        }
+
+        for (SchemaMigration migration : migrations) {
+            if (migration.getVersion() <= currentVersion) {
+                continue;
+            }
+
+            MessageUtil.log(Level.INFO, "Migrating database schema to v" + migration.getVersion()
+                    + ": " + migration.getDescription() + "...");
+            migration.migrate(connection, statements);
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(
+                    "INSERT INTO SchemaVersion (version, description, appliedAt) VALUES (?, ?, ?)")) {
+                preparedStatement.setInt(1, migration.getVersion());
+                preparedStatement.setString(2, migration.getDescription());
+                preparedStatement.setLong(3, System.currentTimeMillis());
+                preparedStatement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Takes the migration lock, waiting for another server that holds it.
+     *
+     * @param connection The connection to use.
+     * @param sqlite     Whether the database is SQLite.
+     * @throws SQLException If a database access error occurs or the wait times out.
+     */
+    private static void lock(@NotNull Connection connection, boolean sqlite) throws SQLException {
+        if (sqlite) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("BEGIN IMMEDIATE");
+            }
+            return;
+        }
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            preparedStatement.setString(1, LOCK_NAME);
+            preparedStatement.setInt(2, LOCK_TIMEOUT);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another server to migrate the database schema.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the migration lock.
+     * On SQLite, this commits the migrations, or rolls them back if they failed.
+     *
+     * @param connection The connection to use.
+     * @param sqlite     Whether the database is SQLite.
+     * @param success    Whether every migration was applied.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void unlock(@NotNull Connection connection, boolean sqlite, boolean success) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (sqlite) {
+                statement.execute(success ? "COMMIT" : "ROLLBACK");
+            } else {
+                statement.execute("SELECT RELEASE_LOCK('" + LOCK_NAME + "')");
+            }
+        } catch (SQLException ex) {
+            // Keeps the migration's own error if it failed.
+            if (success) {
+                throw ex;
+            }
+
+            MessageUtil.log(Level.WARNING, "Failed to release the schema migration lock.");
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the schema version the database was last migrated to.
+     *
+     * @param connection The connection to use.
+     * @return The schema version, or 0 if no migration has been applied.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static int getSchemaVersion(@NotNull Connection connection) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT MAX(version) FROM SchemaVersion");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Checks if a table exists.
+     *
+     * @param connection The connection to use.
+     * @param tableName  The table name.
+     * @return Whether the table exists.
+     * @throws SQLException If a database access error occurs.
+     */
+    static boolean tableExists(@NotNull Connection connection, @NotNull String tableName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+
+        try (ResultSet tables = metaData.getTables(null, null, tableName, null)) {
+            return tables.next();
+        }
+    }
+
+    /**
+     * Creates a table if it doesn't exist.
+     *
+     * @param connection   The connection to use.
+     * @param tableName    The table name.
+     * @param tableColumns The table column definition.
+     * @throws SQLException If a database access error occurs.
+     */
+    static void createTableIfNotExists(@NotNull Connection connection, @NotNull String tableName,
+                                       @NotNull String tableColumns) throws SQLException {
+        if (!tableExists(connection, tableName)) {
+            String createTableSQL = String.format("CREATE TABLE %s (%s)", tableName, tableColumns);
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(createTableSQL)) {
+                preparedStatement.execute();
+            }
+        }
+    }
+}
@@ -21,8 +21,6 @@ import lombok.Data;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
 import net.foulest.kitpvp.kits.type.Vampire;
-import net.foulest.kitpvp.region.Regions;
-import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.potion.PotionEffectType;
@@ -54,11 +52,10 @@ public class AbilityUtil {
 
             Player target = (Player) entity;
             PlayerData targetData = PlayerDataManager.getPlayerData(target);
-            Location targetLoc = target.getLocation();
 
             // Ignores ineligible players.
             if (targetData.getActiveKit() == null
-                    || Regions.isInSafezone(targetLoc)
+                    || targetData.isInSafezone()
                     || (target.hasPotionEffect(PotionEffectType.INVISIBILITY)
                     && targetData.getActiveKit() instanceof Vampire)) {
                 continue;
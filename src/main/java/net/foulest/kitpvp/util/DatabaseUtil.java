@@ -18,11 +18,24 @@
 package net.foulest.kitpvp.util;
 
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import lombok.Data;
 import lombok.Synchronized;
-import net.foulest.kitpvp.data.PlayerData;
+import net.foulest.kitpvp.data.PlayerField;
+import net.foulest.kitpvp.data.PlayerSnapshot;
 import net.foulest.kitpvp.enchants.Enchants;
 import net.foulest.kitpvp.kits.Kit;
+import net.foulest.kitpvp.kits.KitManager;
+import net.foulest.kitpvp.storage.KitIndex;
+import net.foulest.kitpvp.storage.PoolStats;
+import net.foulest.kitpvp.storage.ProfileConsumer;
+import net.foulest.kitpvp.storage.StatementRegistry;
+import net.foulest.kitpvp.storage.StorageCircuitBreaker;
+import net.foulest.kitpvp.storage.StorageMetrics;
+import net.foulest.kitpvp.storage.StorageOperation;
+import net.foulest.kitpvp.storage.UuidCodec;
+import net.foulest.kitpvp.storage.WriteAttempt;
+import net.foulest.kitpvp.storage.migration.SchemaMigrator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -31,9 +44,8 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Utility class for database operations.
@@ -45,13 +57,28 @@ public class DatabaseUtil {
 
     private static HikariDataSource dataSource;
 
+    /**
+     * The SQLite read pool, or null when using MariaDB.
+     */
+    private static @Nullable HikariDataSource readDataSource;
+
+    /**
+     * The player data statements for the configured database.
+     */
+    private static StatementRegistry statements;
+
     /**
      * Loads the plugin's databases.
+     *
+     * @return Whether the schema was migrated and the kit ids were loaded.
      */
-    public static void loadDatabase() {
+    public static boolean loadDatabase() {
         // Initializes the DBCP instance.
         initialize(new HikariDataSource());
 
+        // Builds the player data statements for the configured database.
+        statements = new StatementRegistry(Settings.usingFlatFile);
+
         if (Settings.usingFlatFile) {
             try {
                 // Creates the flat file database if missing.
@@ -65,7 +92,8 @@ public class DatabaseUtil {
 
             // Sets up the DBCP instance for SQLite.
             setupDbcp("jdbc:sqlite:" + Settings.flatFilePath, "org.sqlite.JDBC",
-                    null, null, null, false, null);
+                    null, null, null, false, "SELECT 1");
+            setupSQLiteReadPool();
         } else {
             // Sets up the DBCP instance for MariaDB.
             setupDbcp("jdbc:mariadb://" + Settings.host + ":" + Settings.port + "/" + Settings.database,
@@ -73,470 +101,939 @@ public class DatabaseUtil {
                     "utf8", true, "SELECT 1;");
         }
 
-        // Creates the PlayerStats table if it doesn't exist.
-        createTableIfNotExists(
-                "PlayerStats",
-                "uuid VARCHAR(255) NOT NULL, "
-                        + "coins INT, "
-                        + "experience INT, "
-                        + "kills INT, "
-                        + "deaths INT, "
-                        + "killstreak INT, "
-                        + "topKillstreak INT, "
-                        + "usingSoup INT, "
-                        + "previousKit VARCHAR(255), "
-                        + "PRIMARY KEY (uuid)"
-        );
-
-        // Creates the PlayerKits table if it doesn't exist.
-        createTableIfNotExists(
-                "PlayerKits",
-                "uuid VARCHAR(255) NOT NULL, "
-                        + "kitName VARCHAR(255)"
-        );
-
-        // Creates the Bounties table if it doesn't exist.
-        createTableIfNotExists(
-                "Bounties",
-                "uuid VARCHAR(255) NOT NULL, "
-                        + "bounty INT, "
-                        + "benefactor VARCHAR(255), "
-                        + "PRIMARY KEY (uuid)"
-        );
-
-        // Creates the Enchants table if it doesn't exist.
-        createTableIfNotExists(
-                "Enchants",
-                "uuid VARCHAR(255) NOT NULL, "
-                        + "featherFalling INT, "
-                        + "thorns INT, "
-                        + "protection INT, "
-                        + "knockback INT, "
-                        + "sharpness INT, "
-                        + "punch INT, "
-                        + "power INT, "
-                        + "PRIMARY KEY (uuid)"
-        );
-    }
-
-    /**
-     * Updates the PlayerStats table in the database.
-     *
-     * @param playerData The player's data.
-     */
-    public static void updatePlayerStatsTable(@NotNull PlayerData playerData) {
-        Map<String, Object> playerDataMap = new HashMap<>();
-
-        UUID playerUUID = playerData.getUniqueId();
-        String playerUUIDString = playerUUID.toString();
-        int coins = playerData.getCoins();
-        int experience = playerData.getExperience();
-        int kills = playerData.getKills();
-        int deaths = playerData.getDeaths();
-        int killstreak = playerData.getKillstreak();
-        int topKillstreak = playerData.getTopKillstreak();
-        boolean usingSoup = playerData.isUsingSoup();
-        Kit previousKit = playerData.getPreviousKit();
-        String previousKitName = previousKit.getName();
-
-        playerDataMap.put("uuid", playerUUIDString);
-        playerDataMap.put("coins", coins);
-        playerDataMap.put("experience", experience);
-        playerDataMap.put("kills", kills);
-        playerDataMap.put("deaths", deaths);
-        playerDataMap.put("killstreak", killstreak);
-        playerDataMap.put("topKillstreak", topKillstreak);
-        playerDataMap.put("usingSoup", usingSoup ? 1 : 0);
-        playerDataMap.put("previousKit", previousKitName);
-
-        addDataToTable("PlayerStats", playerDataMap);
-    }
-
-    /**
-     * Updates the PlayerKits table in the database.
+        // Brings the database schema up to date.
+        try (Connection connection = getConnection()) {
+            SchemaMigrator.migrate(connection, statements);
+            KitIndex.load(connection, statements);
+            return true;
+        } catch (SQLException ex) {
+            MessageUtil.log(Level.SEVERE, "Failed to migrate the database schema.");
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Loads the profiles of several players in a single query.
+     * <p>
+     * Returning players are loaded in one round trip. New players get
+     * their Players rows created with a single batched upsert.
      *
-     * @param playerData The player's data.
+     * @param uniqueIds The players' UUIDs.
+     * @return The players' profiles, keyed by UUID.
+     * @throws SQLException If a database access error occurs.
      */
-    public static void updatePlayerKitsTable(@NotNull PlayerData playerData) {
-        Set<Kit> ownedKits = playerData.getOwnedKits();
-        String uuid = playerData.getUniqueId().toString();
+    public static @NotNull Map<UUID, PlayerSnapshot> loadPlayerProfiles(@NotNull Collection<UUID> uniqueIds) throws SQLException {
+        return StorageMetrics.time(StorageOperation.PROFILE_LOAD, () -> {
+            Map<UUID, PlayerSnapshot> profiles = new HashMap<>();
+
+            if (uniqueIds.isEmpty()) {
+                return profiles;
+            }
+
+            try (Connection connection = getReadConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(statements.getProfileSelect(uniqueIds.size()))) {
+                int index = 1;
+
+                for (UUID uniqueId : uniqueIds) {
+                    preparedStatement.setBytes(index, UuidCodec.toBytes(uniqueId));
+                    index++;
+                }
 
-        if (!ownedKits.isEmpty()) {
-            deleteDataFromTable("PlayerKits", "uuid = ?", Collections.singletonList(uuid));
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        PlayerSnapshot profile = StatementRegistry.PROFILE_MAPPER.map(resultSet);
+                        profiles.put(profile.getUniqueId(), profile);
+                    }
+                }
+            }
 
-            for (Kit kit : ownedKits) {
-                if (kit == null) {
-                    continue;
+            List<UUID> newPlayers = new ArrayList<>();
+            for (UUID uniqueId : uniqueIds) {
+                if (!profiles.containsKey(uniqueId)) {
+                    newPlayers.add(uniqueId);
                 }
+            }
 
-                Map<String, Object> playerKitsData = new HashMap<>();
-                String kitName = kit.getName();
+            if (newPlayers.isEmpty()) {
+                return profiles;
+            }
 
-                playerKitsData.put("uuid", uuid);
-                playerKitsData.put("kitName", kitName);
+            // Creates the new players' rows; ignored if another node created them first.
+            try (Connection connection = getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(statements.getInsertDefaultProfile())) {
+                for (UUID uniqueId : newPlayers) {
+                    preparedStatement.setBytes(1, UuidCodec.toBytes(uniqueId));
+                    preparedStatement.setInt(2, Settings.startingCoins);
+                    preparedStatement.addBatch();
+                }
 
-                addDataToTable("PlayerKits", playerKitsData);
+                preparedStatement.executeBatch();
             }
-        }
+
+            for (UUID uniqueId : newPlayers) {
+                profiles.put(uniqueId, new PlayerSnapshot(uniqueId, Settings.startingCoins, 0, 0, 0, 0, 0,
+                        false, "Knight", Collections.emptySet(), 0, null, Collections.emptySet()));
+            }
+            return profiles;
+        });
     }
 
     /**
-     * Updates the Enchants table in the database.
+     * Streams every player's profile through a forward-only cursor.
+     * Rows are fetched in chunks of the fetch size, so memory use
+     * doesn't grow with the size of the table.
      *
-     * @param playerData The player's data.
+     * @param fetchSize The number of rows fetched at a time.
+     * @param consumer  The consumer of each profile.
+     * @return The number of profiles streamed.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If the consumer fails to write a profile.
      */
-    public static void updateEnchantsTable(@NotNull PlayerData playerData) {
-        Set<Enchants> enchants = playerData.getEnchants();
-        String uuid = playerData.getUniqueId().toString();
-
-        // Removes the player from the table if they have no enchants.
-        // Otherwise, adds the player to the table.
-        if (enchants.isEmpty()) {
-            deleteDataFromTable("Enchants",
-                    "uuid = ?", Collections.singletonList(uuid));
-        } else {
-            Map<String, Object> enchantsData = new HashMap<>();
-            boolean featherFalling = enchants.contains(Enchants.FEATHER_FALLING);
-            boolean thorns = enchants.contains(Enchants.THORNS);
-            boolean protection = enchants.contains(Enchants.PROTECTION);
-            boolean knockback = enchants.contains(Enchants.KNOCKBACK);
-            boolean sharpness = enchants.contains(Enchants.SHARPNESS);
-            boolean punch = enchants.contains(Enchants.PUNCH);
-            boolean power = enchants.contains(Enchants.POWER);
-
-            enchantsData.put("uuid", uuid);
-            enchantsData.put("featherFalling", featherFalling ? 1 : 0);
-            enchantsData.put("thorns", thorns ? 1 : 0);
-            enchantsData.put("protection", protection ? 1 : 0);
-            enchantsData.put("knockback", knockback ? 1 : 0);
-            enchantsData.put("sharpness", sharpness ? 1 : 0);
-            enchantsData.put("punch", punch ? 1 : 0);
-            enchantsData.put("power", power ? 1 : 0);
-
-            addDataToTable("Enchants", enchantsData);
+    public static long streamProfiles(int fetchSize, @NotNull ProfileConsumer consumer) throws SQLException, IOException {
+        long count = 0;
+
+        try (Connection connection = getReadConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(statements.getSelectAllProfiles(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            preparedStatement.setFetchSize(fetchSize);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(StatementRegistry.PROFILE_MAPPER.map(resultSet));
+                    count++;
+                }
+            }
         }
+        return count;
     }
 
     /**
-     * Updates the Bounties table in the database.
+     * Writes a batch of imported profiles in one transaction, replacing existing rows.
      *
-     * @param playerData The player's data.
-     */
-    public static void updateBountiesTable(@NotNull PlayerData playerData) {
-        int bounty = playerData.getBounty();
-        String uuid = playerData.getUniqueId().toString();
-        UUID benefactor = playerData.getBenefactor();
-
-        // Removes the player from the table if the bounty is 0 or the benefactor is null.
-        // Otherwise, adds the player to the table.
-        if (bounty == 0 || benefactor == null) {
-            deleteDataFromTable("Bounties",
-                    "uuid = ?", Collections.singletonList(uuid));
-        } else {
-            Map<String, Object> bountiesData = new HashMap<>();
-            String benefactorString = benefactor.toString();
+     * @param profiles The profiles to write.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void importProfiles(@NotNull List<PlayerSnapshot> profiles) throws SQLException {
+        StorageMetrics.time(StorageOperation.PROFILE_IMPORT, () -> {
+            try (Connection connection = getConnection()) {
+                // Gives the batch's kits their bits before they're written.
+                Set<String> kitNames = new HashSet<>();
+                for (PlayerSnapshot profile : profiles) {
+                    kitNames.addAll(profile.getOwnedKits());
+                }
+                KitIndex.register(connection, kitNames);
 
-            bountiesData.put("uuid", uuid);
-            bountiesData.put("bounty", bounty);
-            bountiesData.put("benefactor", benefactorString);
-            addDataToTable("Bounties", bountiesData);
-        }
+                connection.setAutoCommit(false);
+
+                try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getUpsertProfile())) {
+                    for (PlayerSnapshot profile : profiles) {
+                        bindProfile(preparedStatement, profile);
+                        preparedStatement.addBatch();
+                    }
+
+                    preparedStatement.executeBatch();
+                    connection.commit();
+                } catch (SQLException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            return null;
+        });
     }
 
     /**
-     * Initializes the DBCP instance.
+     * Sets the balances of several players in a single batch.
      *
-     * @param source The BasicDataSource instance.
+     * @param balances The players' balances, keyed by UUID.
+     * @throws SQLException If a database access error occurs.
      */
-    @Synchronized
-    private static void initialize(HikariDataSource source) {
-        if (dataSource == null) {
-            dataSource = source;
-        }
+    public static void saveBalances(@NotNull Map<UUID, Integer> balances) throws SQLException {
+        StorageMetrics.time(StorageOperation.BALANCE_SAVE, () -> {
+            if (balances.isEmpty()) {
+                return null;
+            }
+
+            try (Connection connection = getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(statements.getUpdateCoins())) {
+                for (Map.Entry<UUID, Integer> balance : balances.entrySet()) {
+                    preparedStatement.setInt(1, balance.getValue());
+                    preparedStatement.setBytes(2, UuidCodec.toBytes(balance.getKey()));
+                    preparedStatement.addBatch();
+                }
+
+                preparedStatement.executeBatch();
+            }
+            return null;
+        });
     }
 
     /**
-     * Sets up the DBCP instance.
+     * Loads the highest scores of a Players table column.
      *
-     * @param jdbcUrl           The JDBC URL.
-     * @param driverClassName   The driver class name.
-     * @param user              The database user.
-     * @param password          The database password.
-     * @param characterEncoding The character encoding.
-     * @param useUnicode        Whether to use Unicode.
-     * @param validationQuery   The query to validate connections from the pool.
+     * @param columnName The column to rank by.
+     * @param limit      The number of scores to load.
+     * @return The players' scores, from highest to lowest.
+     * @throws SQLException If a database access error occurs.
      */
-    private static void setupDbcp(String jdbcUrl, String driverClassName, String user, String password,
-                                  String characterEncoding, boolean useUnicode, String validationQuery) {
-        if (dataSource == null) {
-            dataSource = new HikariDataSource();
-        }
+    public static @NotNull Map<UUID, Integer> loadTopScores(@NotNull String columnName, int limit) throws SQLException {
+        return StorageMetrics.time(StorageOperation.TOP_SCORES, () -> {
+            Map<UUID, Integer> scores = new LinkedHashMap<>();
 
-        dataSource.setJdbcUrl(jdbcUrl);
-        dataSource.setDriverClassName(driverClassName);
+            try (Connection connection = getReadConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(statements.getTopScoreSelect(columnName))) {
+                preparedStatement.setInt(1, limit);
 
-        // SQLite specific adjustments
-        if (!jdbcUrl.startsWith("jdbc:sqlite:")) {
-            dataSource.setUsername(user);
-            dataSource.setPassword(password);
-            dataSource.setConnectionTestQuery(validationQuery);
-            dataSource.addDataSourceProperty("characterEncoding", characterEncoding);
-            dataSource.addDataSourceProperty("useUnicode", Boolean.toString(useUnicode));
-        }
-    }
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        UUID uniqueId = UuidCodec.fromBytes(resultSet.getBytes(1));
 
-    /**
-     * Closes the DBCP data source.
-     */
-    public static void closeDbcp() {
-        if (dataSource != null) {
-            dataSource.close();
-        }
+                        if (uniqueId != null) {
+                            scores.put(uniqueId, resultSet.getInt(2));
+                        }
+                    }
+                }
+            }
+            return scores;
+        });
     }
 
     /**
-     * Creates a table if it doesn't exist.
+     * Saves the changes between two snapshots of a player's data.
+     * <p>
+     * Only the columns that changed are written, in a single update
+     * of the player's row. The whole row is written if it doesn't exist.
+     * <p>
+     * In delta mode, counters are written as changes to the stored values,
+     * and the write's key is recorded in the same transaction. Earlier
+     * attempts that failed are checked first, so changes they did apply
+     * aren't applied again.
      *
-     * @param tableName    The table name.
-     * @param tableColumns The table column definition.
-     */
-    private static void createTableIfNotExists(String tableName, String tableColumns) {
-        try (Connection connection = (Settings.usingFlatFile ? getSQLiteConnection() : dataSource.getConnection())) {
-            if (connection == null) {
-                MessageUtil.log(Level.SEVERE, "Failed to establish a connection to the database.");
-                return;
+     * @param baseline    The last persisted snapshot, or null to write everything.
+     * @param snapshot    The player's data snapshot.
+     * @param writeKey    The key identifying this write.
+     * @param unconfirmed The earlier failed attempts of this write, oldest first.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void savePlayerSnapshot(@Nullable PlayerSnapshot baseline, @NotNull PlayerSnapshot snapshot,
+                                          @NotNull UUID writeKey,
+                                          @NotNull List<WriteAttempt> unconfirmed) throws SQLException {
+        StorageMetrics.time(StorageOperation.PROFILE_SAVE, () -> {
+            if (Settings.deltaWrites && baseline != null) {
+                saveDeltas(baseline, snapshot, writeKey, unconfirmed);
+                return null;
             }
 
-            DatabaseMetaData metaData = connection.getMetaData();
+            // Attempts that may have been applied touched other fields, so the whole row is written.
+            Set<PlayerField> changed = unconfirmed.isEmpty()
+                    ? snapshot.getChangedFields(baseline)
+                    : EnumSet.allOf(PlayerField.class);
 
-            try (ResultSet tables = metaData.getTables(null, null, tableName, null)) {
-                if (!tables.next()) {
-                    String createTableSQL = String.format("CREATE TABLE %s (%s)", tableName, tableColumns);
+            if (changed.isEmpty()) {
+                return null;
+            }
 
-                    try (PreparedStatement preparedStatement = connection.prepareStatement(createTableSQL)) {
-                        preparedStatement.execute();
+            try (Connection connection = getConnection()) {
+                // Gives new kits their bit before they're written.
+                KitIndex.register(connection, snapshot.getOwnedKits());
+
+                // Writes the update and the upsert in one transaction.
+                connection.setAutoCommit(false);
+
+                try {
+                    byte[] uuid = UuidCodec.toBytes(snapshot.getUniqueId());
+                    int updatedRows;
+
+                    try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getProfileUpdate(changed))) {
+                        int index = 1;
+
+                        for (PlayerField field : PlayerField.values()) {
+                            if (changed.contains(field)) {
+                                index = bindUpdateField(preparedStatement, index, snapshot, field);
+                            }
+                        }
+
+                        preparedStatement.setBytes(index, uuid);
+                        updatedRows = preparedStatement.executeUpdate();
+                    }
+
+                    // Writes the whole row if the player's row doesn't exist yet.
+                    if (updatedRows == 0) {
+                        upsertProfile(connection, snapshot);
                     }
+
+                    connection.commit();
+                } catch (SQLException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(true);
                 }
             }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+            return null;
+        });
     }
 
     /**
-     * Deletes a table if it exists.
+     * Saves the changes between two snapshots as deltas, recording the write's key.
      *
-     * @param tableName The table name.
+     * @param baseline    The last persisted snapshot.
+     * @param snapshot    The player's data snapshot.
+     * @param writeKey    The key identifying this write.
+     * @param unconfirmed The earlier failed attempts of this write, oldest first.
      * @throws SQLException If a database access error occurs.
      */
-    public static void deleteTableIfExists(String tableName) throws SQLException {
-        try (Connection connection = (Settings.usingFlatFile ? getSQLiteConnection() : dataSource.getConnection())) {
-            if (connection == null) {
-                MessageUtil.log(Level.SEVERE, "Failed to establish a connection to the database.");
-                return;
-            }
+    private static void saveDeltas(@NotNull PlayerSnapshot baseline, @NotNull PlayerSnapshot snapshot,
+                                   @NotNull UUID writeKey,
+                                   @NotNull List<WriteAttempt> unconfirmed) throws SQLException {
+        try (Connection connection = getConnection()) {
+            // Gives new kits their bit before they're written.
+            KitIndex.register(connection, snapshot.getOwnedKits());
 
-            DatabaseMetaData metaData = connection.getMetaData();
+            connection.setAutoCommit(false);
 
-            try (ResultSet tables = metaData.getTables(null, null, tableName, null)) {
-                if (tables.next()) {
-                    String deleteTableSQL = String.format("DROP TABLE %s", tableName);
+            try {
+                PlayerSnapshot from = baseline;
+                List<UUID> writeKeys = new ArrayList<>();
+
+                // Starts from the newest attempt that was applied after all.
+                for (WriteAttempt attempt : unconfirmed) {
+                    if (isWriteApplied(connection, attempt.getWriteKey())) {
+                        from = attempt.getSnapshot();
+                    } else {
+                        writeKeys.add(attempt.getWriteKey());
+                    }
+                }
 
-                    try (PreparedStatement preparedStatement = connection.prepareStatement(deleteTableSQL)) {
-                        preparedStatement.execute();
+                // Records this write along with the attempts it includes.
+                writeKeys.add(writeKey);
+                recordWrites(connection, writeKeys);
+
+                Set<PlayerField> changed = snapshot.getChangedFields(from);
+
+                if (!changed.isEmpty()) {
+                    byte[] uuid = UuidCodec.toBytes(snapshot.getUniqueId());
+                    int updatedRows;
+
+                    try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getProfileDeltaUpdate(changed))) {
+                        int index = 1;
+
+                        for (PlayerField field : PlayerField.values()) {
+                            if (changed.contains(field)) {
+                                index = StatementRegistry.isDeltaField(field)
+                                        ? bindDelta(preparedStatement, index, from, snapshot, field)
+                                        : bindUpdateField(preparedStatement, index, snapshot, field);
+                            }
+                        }
+
+                        preparedStatement.setBytes(index, uuid);
+                        updatedRows = preparedStatement.executeUpdate();
+                    }
+
+                    // Writes the whole row if the player's row doesn't exist yet.
+                    if (updatedRows == 0) {
+                        upsertProfile(connection, snapshot);
                     }
                 }
+
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
             }
         }
     }
 
     /**
-     * Adds data to a table.
+     * Adds balance changes replayed from the economy journal, once per write key.
+     * Writes whose key was already recorded are skipped.
      *
-     * @param tableName The table name.
-     * @param tableData The data to be added.
+     * @param deltas The balance changes of each player, grouped by write key.
+     * @return The number of writes applied.
+     * @throws SQLException If a database access error occurs.
      */
-    private static void addDataToTable(String tableName, @NotNull Map<String, Object> tableData) {
-        int size = tableData.size();
-        Set<String> keySet = tableData.keySet();
-        String columns = String.join(", ", keySet);
+    public static int replayBalanceDeltas(@NotNull Map<UUID, Map<UUID, Integer>> deltas) throws SQLException {
+        return StorageMetrics.time(StorageOperation.JOURNAL_REPLAY, () -> {
+            int applied = 0;
 
-        String placeholders = IntStream.range(0, size)
-                .mapToObj(i -> "?")
-                .collect(Collectors.joining(", "));
+            try (Connection connection = getConnection()) {
+                connection.setAutoCommit(false);
 
-        String insertSQL;
+                try {
+                    for (Map.Entry<UUID, Map<UUID, Integer>> write : deltas.entrySet()) {
+                        if (isWriteApplied(connection, write.getKey())) {
+                            continue;
+                        }
 
-        if (Settings.usingFlatFile) {
-            // SQLite's syntax with INSERT OR REPLACE (assumes table has PRIMARY KEY or UNIQUE constraints)
-            insertSQL = String.format("INSERT OR REPLACE INTO %s (%s) VALUES (%s)",
-                    tableName, columns, placeholders);
-        } else {
-            // MySQL/MariaDB's syntax with ON DUPLICATE KEY UPDATE
-            String updateStatement = " ON DUPLICATE KEY UPDATE " + keySet.stream()
-                    .map(column -> String.format("%s = VALUES(%s)", column, column))
-                    .collect(Collectors.joining(", "));
+                        recordWrites(connection, Collections.singletonList(write.getKey()));
 
-            insertSQL = String.format("INSERT INTO %s (%s) VALUES (%s)%s",
-                    tableName, columns, placeholders, updateStatement);
-        }
+                        try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getAddCoins())) {
+                            for (Map.Entry<UUID, Integer> delta : write.getValue().entrySet()) {
+                                preparedStatement.setInt(1, delta.getValue());
+                                preparedStatement.setBytes(2, UuidCodec.toBytes(delta.getKey()));
+                                preparedStatement.addBatch();
+                            }
 
-        try (Connection connection = (Settings.usingFlatFile ? getSQLiteConnection() : dataSource.getConnection())) {
-            if (connection == null) {
-                MessageUtil.log(Level.SEVERE, "Failed to establish a connection to the database.");
-                return;
+                            preparedStatement.executeBatch();
+                        }
+
+                        applied++;
+                    }
+
+                    connection.commit();
+                } catch (SQLException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
             }
+            return applied;
+        });
+    }
 
-            try (PreparedStatement preparedStatement = connection.prepareStatement(insertSQL)) {
-                int index = 1;
+    /**
+     * Deletes the write keys older than the retention period.
+     * Only delta mode records write keys.
+     */
+    public static void deleteExpiredWrites() {
+        if (!Settings.deltaWrites) {
+            return;
+        }
 
-                for (Object value : tableData.values()) {
-                    preparedStatement.setObject(index, value);
-                    index++;
+        try {
+            int deleted = StorageMetrics.time(StorageOperation.KEY_CLEANUP, () -> {
+                try (Connection connection = getConnection();
+                     PreparedStatement preparedStatement = connection.prepareStatement(statements.getDeleteExpiredWrites())) {
+                    preparedStatement.setLong(1, System.currentTimeMillis()
+                            - TimeUnit.DAYS.toMillis(Settings.appliedWriteRetention));
+                    return preparedStatement.executeUpdate();
                 }
+            });
 
-                preparedStatement.executeUpdate();
+            if (deleted > 0) {
+                MessageUtil.log(Level.INFO, "Deleted " + deleted + " expired write keys.");
             }
         } catch (SQLException ex) {
+            MessageUtil.log(Level.WARNING, "Failed to delete expired write keys.");
             ex.printStackTrace();
         }
     }
 
     /**
-     * Inserts values into a table if the column is empty.
+     * Tries to take the lease on a player's data.
+     * The lease is taken if nobody holds it, this server already holds it, or it has expired.
      *
-     * @param tableName The table name.
-     * @param tableData The data to be added.
+     * @param uniqueId  The player's UUID.
+     * @param owner     The id of this server.
+     * @param token     The token identifying this holding of the lease.
+     * @param expiresAt When the lease expires, in epoch milliseconds.
+     * @return Whether the lease was taken.
+     * @throws SQLException If a database access error occurs.
      */
-    @SuppressWarnings("JDBCResourceOpenedButNotSafelyClosed")
-    public static void addDefaultDataToTable(String tableName, @NotNull Map<String, Object> tableData) {
-        // Check if the table is empty
-        String checkTableEmptySQL = String.format("SELECT COUNT(*) FROM %s", tableName);
-
-        try (Connection connection = (Settings.usingFlatFile ? getSQLiteConnection() : dataSource.getConnection())) {
-            if (connection == null) {
-                MessageUtil.log(Level.SEVERE, "Failed to establish a connection to the database.");
-                return;
-            }
-
-            try (PreparedStatement checkTableEmptyStmt = connection.prepareStatement(checkTableEmptySQL)) {
-                try (ResultSet resultSet = checkTableEmptyStmt.executeQuery()) {
-                    if (resultSet.next() && resultSet.getInt(1) > 0) {
-                        return; // Table is not empty, no need to insert default data
+    public static boolean tryAcquireLease(@NotNull UUID uniqueId, @NotNull String owner,
+                                          long token, long expiresAt) throws SQLException {
+        return StorageMetrics.time(StorageOperation.LEASE, () -> {
+            byte[] uuidBytes = UuidCodec.toBytes(uniqueId);
+
+            try (Connection connection = getConnection()) {
+                try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getInsertLease())) {
+                    preparedStatement.setBytes(1, uuidBytes);
+                    preparedStatement.setString(2, owner);
+                    preparedStatement.setLong(3, token);
+                    preparedStatement.setLong(4, expiresAt);
+
+                    if (preparedStatement.executeUpdate() > 0) {
+                        return true;
                     }
                 }
 
-                // Proceed with insert since table is empty
-                int size = tableData.size();
-                Set<String> keySet = tableData.keySet();
-                String columns = String.join(", ", keySet);
-                String placeholders = String.join(", ", Collections.nCopies(size, "?"));
-                String insertSQL = String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, columns, placeholders);
-
-                try (PreparedStatement insertStmt = connection.prepareStatement(insertSQL)) {
-                    int index = 1;
-                    for (Object value : tableData.values()) {
-                        insertStmt.setObject(index, value);
-                        index++;
-                    }
-                    insertStmt.executeUpdate();
+                try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getTakeLease())) {
+                    preparedStatement.setString(1, owner);
+                    preparedStatement.setLong(2, token);
+                    preparedStatement.setLong(3, expiresAt);
+                    preparedStatement.setBytes(4, uuidBytes);
+                    preparedStatement.setString(5, owner);
+                    preparedStatement.setLong(6, System.currentTimeMillis());
+                    return preparedStatement.executeUpdate() > 0;
                 }
             }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        });
     }
 
     /**
-     * Loads data from a table.
+     * Takes the lease on a player's data from whichever server holds it.
      *
-     * @param tableName  The table name.
-     * @param condition  The condition for the SQL query.
-     * @param parameters The parameters to replace placeholders in the condition.
-     * @return A list of HashMaps representing the rows fetched.
+     * @param uniqueId  The player's UUID.
+     * @param owner     The id of this server.
+     * @param token     The token identifying this holding of the lease.
+     * @param expiresAt When the lease expires, in epoch milliseconds.
      * @throws SQLException If a database access error occurs.
      */
-    public static @NotNull List<HashMap<String, Object>> loadDataFromTable(String tableName,
-                                                                           String condition,
-                                                                           @NotNull List<Object> parameters) throws SQLException {
-        String selectSQL = String.format("SELECT * FROM %s WHERE %s", tableName, condition);
-
-        try (Connection connection = (Settings.usingFlatFile ? getSQLiteConnection() : dataSource.getConnection())) {
-            if (connection == null) {
-                MessageUtil.log(Level.SEVERE, "Failed to establish a connection to the database.");
-                return Collections.emptyList();
+    public static void forceLease(@NotNull UUID uniqueId, @NotNull String owner,
+                                  long token, long expiresAt) throws SQLException {
+        int updated = StorageMetrics.time(StorageOperation.LEASE, () -> {
+            try (Connection connection = getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(statements.getForceLease())) {
+                preparedStatement.setString(1, owner);
+                preparedStatement.setLong(2, token);
+                preparedStatement.setLong(3, expiresAt);
+                preparedStatement.setBytes(4, UuidCodec.toBytes(uniqueId));
+                return preparedStatement.executeUpdate();
             }
+        });
 
-            try (PreparedStatement preparedStatement = connection.prepareStatement(selectSQL)) {
-                for (int i = 0; i < parameters.size(); i++) {
-                    Object obj = parameters.get(i);
-                    preparedStatement.setObject(i + 1, obj);
-                }
+        // The lease may have been released since the last attempt.
+        if (updated == 0 && !tryAcquireLease(uniqueId, owner, token, expiresAt)) {
+            throw new SQLException("Failed to take the lease of " + uniqueId + ".");
+        }
+    }
 
-                try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                    List<HashMap<String, Object>> rows = new ArrayList<>();
+    /**
+     * Extends every lease held by a server.
+     *
+     * @param owner     The id of the server.
+     * @param expiresAt When the leases expire, in epoch milliseconds.
+     * @return The number of leases extended.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static int renewLeases(@NotNull String owner, long expiresAt) throws SQLException {
+        return StorageMetrics.time(StorageOperation.LEASE, () -> {
+            try (Connection connection = getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(statements.getRenewLeases())) {
+                preparedStatement.setLong(1, expiresAt);
+                preparedStatement.setString(2, owner);
+                return preparedStatement.executeUpdate();
+            }
+        });
+    }
 
-                    while (resultSet.next()) {
-                        HashMap<String, Object> row = new HashMap<>();
-                        ResultSetMetaData metaData = resultSet.getMetaData();
+    /**
+     * Releases the lease on a player's data, unless it has been taken again since.
+     *
+     * @param uniqueId The player's UUID.
+     * @param token    The token the lease was taken with.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void releaseLease(@NotNull UUID uniqueId, long token) throws SQLException {
+        StorageMetrics.time(StorageOperation.LEASE, () -> {
+            try (Connection connection = getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(statements.getDeleteLease())) {
+                preparedStatement.setBytes(1, UuidCodec.toBytes(uniqueId));
+                preparedStatement.setLong(2, token);
+                preparedStatement.executeUpdate();
+            }
+            return null;
+        });
+    }
 
-                        for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                            String columnName = metaData.getColumnName(i);
-                            Object object = resultSet.getObject(i);
-                            row.put(columnName, object);
-                        }
+    /**
+     * Releases every lease held by a server.
+     *
+     * @param owner The id of the server.
+     * @return The number of leases released.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static int releaseLeases(@NotNull String owner) throws SQLException {
+        return StorageMetrics.time(StorageOperation.LEASE, () -> {
+            try (Connection connection = getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(statements.getDeleteOwnedLeases())) {
+                preparedStatement.setString(1, owner);
+                return preparedStatement.executeUpdate();
+            }
+        });
+    }
 
-                        rows.add(row);
-                    }
-                    return rows;
-                }
+    /**
+     * Checks if a write's key was recorded.
+     *
+     * @param connection The connection to use.
+     * @param writeKey   The write key.
+     * @return Whether the write was applied.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static boolean isWriteApplied(@NotNull Connection connection, @NotNull UUID writeKey) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getSelectAppliedWrite())) {
+            preparedStatement.setBytes(1, UuidCodec.toBytes(writeKey));
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next();
             }
         }
     }
 
     /**
-     * Deletes data from a table.
+     * Records the keys of applied writes.
      *
-     * @param tableName  The table name.
-     * @param condition  The condition for the SQL query.
-     * @param parameters The parameters to replace placeholders in the condition.
-     */
-    private static void deleteDataFromTable(String tableName, String condition,
-                                            @NotNull List<Object> parameters) {
-        String deleteSQL = String.format("DELETE FROM %s WHERE %s", tableName, condition);
-
-        try (Connection connection = (Settings.usingFlatFile ? getSQLiteConnection() : dataSource.getConnection())) {
-            if (connection == null) {
-                MessageUtil.log(Level.SEVERE, "Failed to establish a connection to the database.");
-                return;
+     * @param connection The connection to use.
+     * @param writeKeys  The write keys.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void recordWrites(@NotNull Connection connection, @NotNull List<UUID> writeKeys) throws SQLException {
+        long appliedAt = System.currentTimeMillis();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getInsertAppliedWrite())) {
+            for (UUID writeKey : writeKeys) {
+                preparedStatement.setBytes(1, UuidCodec.toBytes(writeKey));
+                preparedStatement.setLong(2, appliedAt);
+                preparedStatement.addBatch();
             }
 
-            try (PreparedStatement preparedStatement = connection.prepareStatement(deleteSQL)) {
-                for (int i = 0; i < parameters.size(); i++) {
-                    Object obj = parameters.get(i);
-                    preparedStatement.setObject(i + 1, obj);
+            preparedStatement.executeBatch();
+        }
+    }
+
+    /**
+     * Writes a player's whole row, replacing it if it exists.
+     *
+     * @param connection The connection to use.
+     * @param snapshot   The player's data snapshot.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void upsertProfile(@NotNull Connection connection, @NotNull PlayerSnapshot snapshot) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(statements.getUpsertProfile())) {
+            bindProfile(preparedStatement, snapshot);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Binds every column of a player's row to the full upsert.
+     *
+     * @param preparedStatement The upsert statement.
+     * @param snapshot          The snapshot to bind.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void bindProfile(@NotNull PreparedStatement preparedStatement,
+                                    @NotNull PlayerSnapshot snapshot) throws SQLException {
+        preparedStatement.setBytes(1, UuidCodec.toBytes(snapshot.getUniqueId()));
+        int index = 2;
+
+        for (PlayerField field : PlayerField.values()) {
+            index = bindField(preparedStatement, index, snapshot, field);
+        }
+    }
+
+    /**
+     * Binds the change of a counter field since an older snapshot.
+     *
+     * @param preparedStatement The statement to bind to.
+     * @param index             The index of the field's column.
+     * @param from              The older snapshot.
+     * @param snapshot          The player's data snapshot.
+     * @param field             The field.
+     * @return The index after the field's column.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static int bindDelta(@NotNull PreparedStatement preparedStatement, int index, @NotNull PlayerSnapshot from,
+                                 @NotNull PlayerSnapshot snapshot, @NotNull PlayerField field) throws SQLException {
+        switch (field) {
+            case COINS:
+                preparedStatement.setInt(index, snapshot.getCoins() - from.getCoins());
+                break;
+            case EXPERIENCE:
+                preparedStatement.setInt(index, snapshot.getExperience() - from.getExperience());
+                break;
+            case KILLS:
+                preparedStatement.setInt(index, snapshot.getKills() - from.getKills());
+                break;
+            case DEATHS:
+                preparedStatement.setInt(index, snapshot.getDeaths() - from.getDeaths());
+                break;
+            default:
+                throw new IllegalArgumentException("Not a counter field: " + field);
+        }
+        return index + 1;
+    }
+
+    /**
+     * Binds the columns of a field to a profile update.
+     * The owned kits keep the stored bits of kits this server doesn't load.
+     *
+     * @param preparedStatement The update to bind to.
+     * @param index             The index of the field's first parameter.
+     * @param snapshot          The player's data snapshot.
+     * @param field             The field.
+     * @return The index after the field's parameters.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static int bindUpdateField(@NotNull PreparedStatement preparedStatement, int index,
+                                       @NotNull PlayerSnapshot snapshot, @NotNull PlayerField field) throws SQLException {
+        if (field != PlayerField.OWNED_KITS) {
+            return bindField(preparedStatement, index, snapshot, field);
+        }
+
+        // Gets the bits of the kits this server can hold in a snapshot.
+        Set<String> kitNames = new HashSet<>();
+        for (Kit kit : KitManager.getKits()) {
+            kitNames.add(kit.getName());
+        }
+
+        preparedStatement.setLong(index, ~KitIndex.toMask(kitNames));
+        preparedStatement.setLong(index + 1, KitIndex.toMask(snapshot.getOwnedKits()));
+        return index + 2;
+    }
+
+    /**
+     * Binds the columns of a field.
+     *
+     * @param preparedStatement The statement to bind to.
+     * @param index             The index of the field's first column.
+     * @param snapshot          The player's data snapshot.
+     * @param field             The field.
+     * @return The index after the field's columns.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static int bindField(@NotNull PreparedStatement preparedStatement, int index,
+                                 @NotNull PlayerSnapshot snapshot, @NotNull PlayerField field) throws SQLException {
+        switch (field) {
+            case COINS:
+                preparedStatement.setInt(index, snapshot.getCoins());
+                break;
+            case EXPERIENCE:
+                preparedStatement.setInt(index, snapshot.getExperience());
+                break;
+            case KILLS:
+                preparedStatement.setInt(index, snapshot.getKills());
+                break;
+            case DEATHS:
+                preparedStatement.setInt(index, snapshot.getDeaths());
+                break;
+            case KILLSTREAK:
+                preparedStatement.setInt(index, snapshot.getKillstreak());
+                break;
+            case TOP_KILLSTREAK:
+                preparedStatement.setInt(index, snapshot.getTopKillstreak());
+                break;
+            case USING_SOUP:
+                preparedStatement.setInt(index, snapshot.isUsingSoup() ? 1 : 0);
+                break;
+            case PREVIOUS_KIT:
+                preparedStatement.setString(index, snapshot.getPreviousKit());
+                break;
+            case OWNED_KITS:
+                preparedStatement.setLong(index, KitIndex.toMask(snapshot.getOwnedKits()));
+                break;
+            case BOUNTY:
+                UUID benefactor = snapshot.getBenefactor();
+
+                // Clears the bounty if it has no benefactor.
+                if (snapshot.getBounty() == 0 || benefactor == null) {
+                    preparedStatement.setInt(index, 0);
+                    preparedStatement.setNull(index + 1, Types.BINARY);
+                } else {
+                    preparedStatement.setInt(index, snapshot.getBounty());
+                    preparedStatement.setBytes(index + 1, UuidCodec.toBytes(benefactor));
                 }
+                break;
+            case ENCHANTS:
+                preparedStatement.setInt(index, Enchants.toMask(snapshot.getEnchants()));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown player field: " + field);
+        }
+        return index + field.getColumnNames().size();
+    }
 
-                preparedStatement.executeUpdate();
+    /**
+     * Initializes the DBCP instance.
+     *
+     * @param source The BasicDataSource instance.
+     */
+    @Synchronized
+    private static void initialize(HikariDataSource source) {
+        if (dataSource == null) {
+            dataSource = source;
+        }
+    }
+
+    /**
+     * Sets up the DBCP instance.
+     *
+     * @param jdbcUrl           The JDBC URL.
+     * @param driverClassName   The driver class name.
+     * @param user              The database user.
+     * @param password          The database password.
+     * @param characterEncoding The character encoding.
+     * @param useUnicode        Whether to use Unicode.
+     * @param validationQuery   The query to validate connections from the pool.
+     */
+    private static void setupDbcp(String jdbcUrl, String driverClassName, String user, String password,
+                                  String characterEncoding, boolean useUnicode, String validationQuery) {
+        if (dataSource == null) {
+            dataSource = new HikariDataSource();
+        }
+
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setDriverClassName(driverClassName);
+
+        dataSource.setConnectionTestQuery(validationQuery);
+        dataSource.setConnectionTimeout(Settings.storageConnectionTimeout);
+
+        // SQLite specific adjustments
+        if (jdbcUrl.startsWith("jdbc:sqlite:")) {
+            // SQLite allows a single writer, so the main pool holds one connection.
+            dataSource.setPoolName("KitPvP SQLite Writer");
+            dataSource.setMaximumPoolSize(1);
+            addSQLitePragmas(dataSource);
+        } else {
+            dataSource.setPoolName("KitPvP MariaDB");
+            dataSource.setUsername(user);
+            dataSource.setPassword(password);
+            dataSource.addDataSourceProperty("characterEncoding", characterEncoding);
+            dataSource.addDataSourceProperty("useUnicode", Boolean.toString(useUnicode));
+
+            // Lets the driver reuse prepared statements, as the registry always sends the same SQL.
+            dataSource.addDataSourceProperty("useServerPrepStmts", "true");
+            dataSource.addDataSourceProperty("cachePrepStmts", "true");
+            dataSource.addDataSourceProperty("prepStmtCacheSize", "250");
+        }
+    }
+
+    /**
+     * Sets up the SQLite read pool.
+     * <p>
+     * In WAL mode, readers don't block the writer and the writer
+     * doesn't block readers, so loads get their own connections.
+     */
+    private static void setupSQLiteReadPool() {
+        readDataSource = new HikariDataSource();
+        readDataSource.setPoolName("KitPvP SQLite Reader");
+        readDataSource.setJdbcUrl(dataSource.getJdbcUrl());
+        readDataSource.setDriverClassName(dataSource.getDriverClassName());
+        readDataSource.setConnectionTestQuery("SELECT 1");
+        readDataSource.setConnectionTimeout(Settings.storageConnectionTimeout);
+        readDataSource.setMaximumPoolSize(Settings.sqliteReadPoolSize);
+        addSQLitePragmas(readDataSource);
+    }
+
+    /**
+     * Adds the pragmas applied to every SQLite connection.
+     *
+     * @param source The SQLite data source.
+     */
+    private static void addSQLitePragmas(@NotNull HikariDataSource source) {
+        source.addDataSourceProperty("journal_mode", "WAL");
+        source.addDataSourceProperty("synchronous", "NORMAL");
+        source.addDataSourceProperty("busy_timeout", Integer.toString(Settings.sqliteBusyTimeout));
+        source.addDataSourceProperty("temp_store", "MEMORY");
+    }
+
+    /**
+     * Gets a connection from a pool, failing right away while the database is unreachable.
+     * Connection failures are reported to the {@link StorageCircuitBreaker}.
+     *
+     * @param source The pool to use.
+     * @return The connection.
+     * @throws SQLException If the database is unreachable or a database access error occurs.
+     */
+    private static @NotNull Connection connect(@NotNull HikariDataSource source) throws SQLException {
+        if (!StorageCircuitBreaker.allowRequest()) {
+            throw new SQLTransientConnectionException("The database is unreachable (degraded mode).", "08000");
+        }
+
+        try {
+            Connection connection = source.getConnection();
+            StorageCircuitBreaker.recordSuccess();
+            return connection;
+        } catch (SQLException ex) {
+            StorageCircuitBreaker.recordFailure(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets the usage of the connection pools.
+     *
+     * @return The stats of each started pool.
+     */
+    public static @NotNull List<PoolStats> getPoolStats() {
+        List<PoolStats> stats = new ArrayList<>();
+
+        for (HikariDataSource source : new HikariDataSource[]{dataSource, readDataSource}) {
+            HikariPoolMXBean pool = (source == null) ? null : source.getHikariPoolMXBean();
+
+            if (pool != null) {
+                stats.add(new PoolStats(source.getPoolName(), pool.getActiveConnections(),
+                        pool.getIdleConnections(), pool.getThreadsAwaitingConnection(), source.getMaximumPoolSize()));
             }
+        }
+        return stats;
+    }
+
+    /**
+     * Checks if the database can be reached, ignoring the circuit breaker.
+     *
+     * @return Whether a valid connection could be opened.
+     */
+    public static boolean ping() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(5);
         } catch (SQLException ex) {
-            ex.printStackTrace();
+            return false;
         }
     }
 
     /**
-     * Method to get a SQLite connection directly without DBCP.
+     * Gets a connection for writing.
+     * With SQLite, this is the single writer connection.
      *
-     * @return The SQLite connection.
+     * @return The connection.
      * @throws SQLException If a database access error occurs.
      */
-    private static @Nullable Connection getSQLiteConnection() throws SQLException {
-        try {
-            Class.forName("org.sqlite.JDBC");
-            return DriverManager.getConnection("jdbc:sqlite:" + Settings.flatFilePath);
-        } catch (ClassNotFoundException ex) {
-            ex.printStackTrace();
-            return null;
+    private static @NotNull Connection getConnection() throws SQLException {
+        return connect(dataSource);
+    }
+
+    /**
+     * Gets a connection for reading.
+     * With SQLite, this comes from the read pool.
+     *
+     * @return The connection.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static @NotNull Connection getReadConnection() throws SQLException {
+        return connect((readDataSource != null) ? readDataSource : dataSource);
+    }
+
+    /**
+     * Closes the DBCP data source.
+     */
+    public static void closeDbcp() {
+        if (readDataSource != null) {
+            readDataSource.close();
+            readDataSource = null;
+        }
+
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Deletes a table if it exists.
+     *
+     * @param tableName The table name.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void deleteTableIfExists(String tableName) throws SQLException {
+        try (Connection connection = getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+
+            try (ResultSet tables = metaData.getTables(null, null, tableName, null)) {
+                if (tables.next()) {
+                    String deleteTableSQL = String.format("DROP TABLE %s", tableName);
+
+                    try (PreparedStatement preparedStatement = connection.prepareStatement(deleteTableSQL)) {
+                        preparedStatement.execute();
+                    }
+                }
+            }
         }
     }
 }
@@ -21,8 +21,13 @@ import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import net.foulest.kitpvp.combattag.CombatTag;
 import net.foulest.kitpvp.data.PlayerData;
 import net.foulest.kitpvp.data.PlayerDataManager;
+import net.foulest.kitpvp.data.PlayerSnapshot;
 import net.foulest.kitpvp.kits.Kit;
 import net.foulest.kitpvp.kits.type.Soldier;
+import net.foulest.kitpvp.leaderboard.LeaderboardEntry;
+import net.foulest.kitpvp.leaderboard.LeaderboardType;
+import net.foulest.kitpvp.leaderboard.Leaderboards;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
@@ -50,55 +55,77 @@ public class PlaceholderUtil extends PlaceholderExpansion {
 
     @Override
     public String onPlaceholderRequest(Player player, @NotNull String identifier) {
-        PlayerData playerData = PlayerDataManager.getPlayerData(player);
+        // Leaderboard placeholders don't need a player.
+        if (identifier.startsWith("top_")) {
+            return getLeaderboardPlaceholder(identifier);
+        }
+
+        PlayerData playerData = player == null ? null : PlayerDataManager.getPlayerDataIfPresent(player.getUniqueId());
+
+        if (playerData == null) {
+            return "";
+        }
+
+        // Placeholders may be requested off the main thread, so stats are read from the
+        // published snapshot; on the main thread it is brought up to date first.
+        if (Bukkit.isPrimaryThread()) {
+            playerData.publishSnapshot();
+        }
+
+        PlayerSnapshot snapshot = playerData.getPublishedSnapshot();
+
+        if (snapshot == null) {
+            return "";
+        }
+
         Kit activeKit = playerData.getActiveKit();
-        int bounty = playerData.getBounty();
+        int bounty = snapshot.getBounty();
 
         StringBuilder builder = new StringBuilder();
 
         switch (identifier) {
             case "kills":
-                int kills = playerData.getKills();
+                int kills = snapshot.getKills();
                 builder.append(kills);
                 break;
 
             case "deaths":
-                int deaths = playerData.getDeaths();
+                int deaths = snapshot.getDeaths();
                 builder.append(deaths);
                 break;
 
             case "kdr":
-                String kdrText = playerData.getKDRText();
+                String kdrText = snapshot.getKDRText();
                 builder.append(kdrText);
                 break;
 
             case "killstreak":
-                int killstreak = playerData.getKillstreak();
+                int killstreak = snapshot.getKillstreak();
                 builder.append(killstreak);
                 break;
 
             case "top_killstreak":
-                int topKillstreak = playerData.getTopKillstreak();
+                int topKillstreak = snapshot.getTopKillstreak();
                 builder.append(topKillstreak);
                 break;
 
             case "coins":
-                int coins = playerData.getCoins();
+                int coins = snapshot.getCoins();
                 builder.append(coins);
                 break;
 
             case "level":
-                int level = playerData.getLevel();
+                int level = snapshot.getLevel();
                 builder.append(level);
                 break;
 
             case "experience":
-                int experience = playerData.getExperience();
+                int experience = snapshot.getExperience();
                 builder.append(experience);
                 break;
 
             case "experience_percent":
-                int expPercent = playerData.getExpPercent();
+                int expPercent = snapshot.getExpPercent();
                 builder.append(expPercent).append("%");
                 break;
 
@@ -141,4 +168,52 @@ public class PlaceholderUtil extends PlaceholderExpansion {
         }
         return builder.toString();
     }
+
+    /**
+     * Gets a leaderboard placeholder, e.g. top_kills_1_name.
+     * The last part can be name, value (as displayed) or score (as stored).
+     *
+     * @param identifier The placeholder identifier.
+     * @return The placeholder value, or an empty string if the rank is empty.
+     */
+    private static @NotNull String getLeaderboardPlaceholder(@NotNull String identifier) {
+        String[] parts = identifier.split("_");
+
+        if (parts.length != 4) {
+            return "";
+        }
+
+        LeaderboardType type = LeaderboardType.fromId(parts[1]);
+
+        if (type == null) {
+            return "";
+        }
+
+        int rank;
+        try {
+            rank = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException ex) {
+            return "";
+        }
+
+        LeaderboardEntry entry = Leaderboards.getEntry(type, rank);
+
+        if (entry == null) {
+            return "";
+        }
+
+        switch (parts[3]) {
+            case "name":
+                return entry.getName();
+
+            case "value":
+                return String.valueOf(entry.getValue());
+
+            case "score":
+                return String.valueOf(entry.getScore());
+
+            default:
+                return "";
+        }
+    }
 }
@@ -50,6 +50,7 @@ public class Settings {
     public static double spawnZ;
     public static float spawnYaw;
     public static float spawnPitch;
+    public static long safezoneRefreshInterval;
 
     // Flask settings
     public static boolean flaskEnabled;
@@ -147,12 +148,66 @@ public class Settings {
     public static boolean usingFlatFile;
     public static long autoSaveInterval;
     public static String flatFilePath;
+    public static int sqliteReadPoolSize;
+    public static int sqliteBusyTimeout;
     public static String host;
     public static int port;
     public static String database;
     public static String user;
     public static String password;
 
+    // Storage executor settings
+    public static int storageThreads;
+    public static int storageQueueCapacity;
+
+    // Circuit breaker settings
+    public static int circuitBreakerFailureThreshold;
+    public static long circuitBreakerOpenDuration;
+    public static long storageConnectionTimeout;
+    public static int storageBufferSize;
+    public static int fallbackCacheSize;
+
+    // Storage metrics settings
+    public static String metricsFile;
+    public static long metricsInterval;
+
+    // Profile transfer settings
+    public static int transferFetchSize;
+
+    // Snapshot cache settings
+    public static String snapshotCacheFile;
+    public static long snapshotCacheInterval;
+
+    // Write-behind settings
+    public static int writeBehindQueueCapacity;
+    public static int writeBehindFlushTimeout;
+    public static boolean deltaWrites;
+    public static int appliedWriteRetention;
+
+    // Join batching settings
+    public static int joinBatchWindow;
+    public static int joinBatchMaxSize;
+    public static int preLoginTimeout;
+
+    // Economy journal settings
+    public static boolean economyJournalEnabled;
+    public static String economyJournalPath;
+    public static int economyJournalSize;
+    public static long economyJournalCommitInterval;
+
+    // Offline profile settings
+    public static int offlineCacheSize;
+
+    // Profile lease settings
+    public static boolean leasesEnabled;
+    public static String leaseNodeId;
+    public static long leaseHandoffTimeout;
+    public static long leaseDuration;
+
+    // Leaderboard settings
+    public static int leaderboardSize;
+    public static long leaderboardRefreshInterval;
+
     /**
      * Loads the configuration file and values.
      */
@@ -222,6 +277,7 @@ public class Settings {
         spawnZ = config.getDouble("kitpvp.spawn.z");
         spawnYaw = (float) config.getDouble("kitpvp.spawn.yaw");
         spawnPitch = (float) config.getDouble("kitpvp.spawn.pitch");
+        safezoneRefreshInterval = Math.max(0, config.getLong("kitpvp.spawn.safezone-refresh"));
 
         // Combat tag settings
         combatTagEnabled = config.getBoolean("kitpvp.combat-tag.enabled");
@@ -318,10 +374,67 @@ public class Settings {
         // Database settings
         usingFlatFile = config.getString("kitpvp.storage.type").trim().equalsIgnoreCase("sqlite");
         flatFilePath = KitPvP.getInstance().getDataFolder() + File.separator + config.getString("kitpvp.storage.sqlite.file");
+        autoSaveInterval = Math.max(0, config.getLong("kitpvp.storage.auto-save.interval"));
+        sqliteReadPoolSize = Math.max(1, config.getInt("kitpvp.storage.sqlite.read-pool-size"));
+        sqliteBusyTimeout = Math.max(0, config.getInt("kitpvp.storage.sqlite.busy-timeout"));
         host = config.getString("kitpvp.storage.mariadb.host");
         port = config.getInt("kitpvp.storage.mariadb.port");
         database = config.getString("kitpvp.storage.mariadb.database");
         user = config.getString("kitpvp.storage.mariadb.user");
         password = config.getString("kitpvp.storage.mariadb.password");
+
+        // Storage executor settings
+        storageThreads = Math.max(1, config.getInt("kitpvp.storage.executor.threads"));
+        storageQueueCapacity = Math.max(1, config.getInt("kitpvp.storage.executor.queue-capacity"));
+
+        // Circuit breaker settings
+        circuitBreakerFailureThreshold = Math.max(1, config.getInt("kitpvp.storage.circuit-breaker.failure-threshold"));
+        circuitBreakerOpenDuration = Math.max(1, config.getLong("kitpvp.storage.circuit-breaker.open-duration"));
+        storageConnectionTimeout = Math.max(250, config.getLong("kitpvp.storage.circuit-breaker.connection-timeout"));
+        storageBufferSize = Math.max(1, config.getInt("kitpvp.storage.circuit-breaker.buffer-size"));
+        fallbackCacheSize = Math.max(0, config.getInt("kitpvp.storage.circuit-breaker.fallback-cache-size"));
+
+        // Storage metrics settings
+        String metricsFileName = config.getString("kitpvp.storage.metrics.file").trim();
+        metricsFile = metricsFileName.isEmpty() ? "" : KitPvP.getInstance().getDataFolder() + File.separator + metricsFileName;
+        metricsInterval = Math.max(0, config.getLong("kitpvp.storage.metrics.interval"));
+
+        // Profile transfer settings
+        transferFetchSize = Math.max(1, config.getInt("kitpvp.storage.transfer.fetch-size"));
+
+        // Snapshot cache settings
+        String snapshotCacheFileName = config.getString("kitpvp.storage.snapshot-cache.file").trim();
+        snapshotCacheFile = snapshotCacheFileName.isEmpty() ? "" : KitPvP.getInstance().getDataFolder() + File.separator + snapshotCacheFileName;
+        snapshotCacheInterval = Math.max(0, config.getLong("kitpvp.storage.snapshot-cache.interval"));
+
+        // Write-behind settings
+        writeBehindQueueCapacity = Math.max(1, config.getInt("kitpvp.storage.write-behind.queue-capacity"));
+        writeBehindFlushTimeout = Math.max(0, config.getInt("kitpvp.storage.write-behind.flush-timeout"));
+        deltaWrites = config.getString("kitpvp.storage.write-behind.mode").trim().equalsIgnoreCase("delta");
+        appliedWriteRetention = Math.max(1, config.getInt("kitpvp.storage.write-behind.key-retention"));
+
+        // Join batching settings
+        joinBatchWindow = Math.max(1, config.getInt("kitpvp.storage.join-batching.window"));
+        joinBatchMaxSize = Math.max(1, config.getInt("kitpvp.storage.join-batching.max-size"));
+        preLoginTimeout = Math.max(1, config.getInt("kitpvp.storage.join-batching.pre-login-timeout"));
+
+        // Economy journal settings
+        economyJournalEnabled = config.getBoolean("kitpvp.storage.economy-journal.enabled");
+        economyJournalPath = KitPvP.getInstance().getDataFolder() + File.separator + config.getString("kitpvp.storage.economy-journal.file");
+        economyJournalSize = Math.max(1, config.getInt("kitpvp.storage.economy-journal.size"));
+        economyJournalCommitInterval = Math.max(1, config.getLong("kitpvp.storage.economy-journal.commit-interval"));
+
+        // Offline profile settings
+        offlineCacheSize = Math.max(1, config.getInt("kitpvp.storage.offline-cache.size"));
+
+        // Profile lease settings
+        leasesEnabled = config.getBoolean("kitpvp.storage.leases.enabled");
+        leaseNodeId = config.getString("kitpvp.storage.leases.node-id").trim();
+        leaseHandoffTimeout = Math.max(0, config.getLong("kitpvp.storage.leases.handoff-timeout"));
+        leaseDuration = Math.max(3, config.getLong("kitpvp.storage.leases.duration"));
+
+        // Leaderboard settings
+        leaderboardSize = Math.max(1, config.getInt("kitpvp.leaderboards.size"));
+        leaderboardRefreshInterval = Math.max(0, config.getLong("kitpvp.leaderboards.refresh-interval"));
     }
 }
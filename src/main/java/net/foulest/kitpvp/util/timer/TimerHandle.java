@@ -0,0 +1,94 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.util.timer;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A timer scheduled on the {@link TimerWheel}.
+ * Must only be used on the main thread.
+ *
+ * @author Foulest
+ */
+public class TimerHandle {
+
+    /**
+     * The callback run when the timer expires.
+     */
+    final Runnable callback;
+
+    /**
+     * The ticks between runs, or zero if the timer runs once.
+     */
+    final long period;
+
+    /**
+     * The tick the timer expires on.
+     */
+    long deadline;
+
+    // Position in the wheel; the level is -1 while the timer isn't in the wheel.
+    int level = -1;
+    int slot;
+    TimerHandle previous;
+    TimerHandle next;
+
+    /**
+     * Whether the timer was cancelled.
+     */
+    @Getter(AccessLevel.PUBLIC)
+    boolean cancelled;
+
+    /**
+     * Creates a timer.
+     *
+     * @param callback The callback run when the timer expires.
+     * @param period   The ticks between runs, or zero if the timer runs once.
+     */
+    TimerHandle(@NotNull Runnable callback, long period) {
+        this.callback = callback;
+        this.period = period;
+    }
+
+    /**
+     * Cancels the timer. Does nothing if it already ran or was cancelled.
+     */
+    public void cancel() {
+        TimerWheel.cancel(this);
+    }
+
+    /**
+     * Checks if the timer is waiting to run.
+     *
+     * @return Whether the timer is pending.
+     */
+    public boolean isPending() {
+        return level >= 0;
+    }
+
+    /**
+     * Gets the number of ticks until the timer runs.
+     *
+     * @return The remaining ticks, or zero if the timer isn't pending.
+     */
+    public long getRemainingTicks() {
+        return isPending() ? Math.max(0L, deadline - TimerWheel.getCurrentTick()) : 0L;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.util.timer;
+
+import lombok.Data;
+import net.foulest.kitpvp.KitPvP;
+import net.foulest.kitpvp.util.MessageUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.logging.Level;
+
+/**
+ * Runs the plugin's short-lived per-player timers from a single task.
+ * <p>
+ * Combat tags, cooldown notifications, kit ability expiries and spawn
+ * teleports each need a callback after a few ticks or seconds. Instead of
+ * scheduling a Bukkit task for each one, they are kept in a hierarchical
+ * timer wheel ticked once per server tick: four levels of 64 slots, each
+ * level's slot spanning 64 times the ticks of the level below. A timer is
+ * placed in the slot its deadline falls in, and a higher level's slot is
+ * moved down a level each time the level below wraps around, so adding and
+ * cancelling a timer are O(1) and each tick only looks at the due slot.
+ * <p>
+ * Timers must be scheduled and cancelled on the main thread.
+ *
+ * @author Foulest
+ */
+@Data
+public class TimerWheel {
+
+    /**
+     * The number of bits of a tick used to pick a slot on each level.
+     */
+    private static final int SLOT_BITS = 6;
+
+    /**
+     * The number of slots on each level.
+     */
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    /**
+     * The mask picking a slot.
+     */
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /**
+     * The number of levels.
+     */
+    private static final int LEVELS = 4;
+
+    /**
+     * The longest delay the wheel can hold, about 9.7 days.
+     * Longer timers are placed at this delay and moved again when they get there.
+     */
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    // The first and last timer of each slot, which run in the order they were added.
+    private static final TimerHandle[][] heads = new TimerHandle[LEVELS][SLOTS];
+    private static final TimerHandle[][] tails = new TimerHandle[LEVELS][SLOTS];
+
+    /**
+     * The tick being run, or the last tick run.
+     */
+    private static long currentTick;
+
+    /**
+     * The task ticking the wheel.
+     */
+    private static @Nullable BukkitTask task;
+
+    // Metrics; only written on the main thread, read by the metrics export.
+    private static volatile int pendingTimers;
+    private static volatile long dispatchedTimers;
+
+    /**
+     * Starts ticking the wheel.
+     */
+    public static void start() {
+        if (task != null) {
+            return;
+        }
+
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(KitPvP.instance, 1L, 1L);
+    }
+
+    /**
+     * Stops ticking the wheel and cancels every pending timer.
+     */
+    public static void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                TimerHandle timer;
+
+                while ((timer = heads[level][slot]) != null) {
+                    unlink(timer);
+                    timer.cancelled = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a callback once after a delay.
+     *
+     * @param callback The callback.
+     * @param delay    The delay in ticks; at least one.
+     * @return The timer, which can be cancelled.
+     */
+    public static @NotNull TimerHandle schedule(@NotNull Runnable callback, long delay) {
+        return add(new TimerHandle(callback, 0L), delay);
+    }
+
+    /**
+     * Runs a callback repeatedly until it is cancelled.
+     *
+     * @param callback The callback.
+     * @param delay    The delay before the first run in ticks; at least one.
+     * @param period   The ticks between runs; at least one.
+     * @return The timer, which can be cancelled.
+     */
+    public static @NotNull TimerHandle scheduleRepeating(@NotNull Runnable callback, long delay, long period) {
+        return add(new TimerHandle(callback, Math.max(1L, period)), delay);
+    }
+
+    /**
+     * Gets the tick being run, or the last tick run.
+     *
+     * @return The current tick.
+     */
+    public static long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Gets the number of timers waiting to run.
+     *
+     * @return The pending timer count.
+     */
+    public static int getPendingTimers() {
+        return pendingTimers;
+    }
+
+    /**
+     * Gets the number of timer callbacks run.
+     *
+     * @return The dispatched timer count.
+     */
+    public static long getDispatchedTimers() {
+        return dispatchedTimers;
+    }
+
+    /**
+     * Cancels a timer.
+     *
+     * @param timer The timer.
+     */
+    static void cancel(@NotNull TimerHandle timer) {
+        checkThread();
+
+        if (timer.cancelled) {
+            return;
+        }
+
+        timer.cancelled = true;
+
+        if (timer.level >= 0) {
+            unlink(timer);
+        }
+    }
+
+    /**
+     * Adds a new timer to the wheel.
+     *
+     * @param timer The timer.
+     * @param delay The delay in ticks.
+     * @return The timer.
+     */
+    private static @NotNull TimerHandle add(@NotNull TimerHandle timer, long delay) {
+        checkThread();
+        timer.deadline = currentTick + Math.max(1L, delay);
+        insert(timer);
+        return timer;
+    }
+
+    /**
+     * Runs the timers due this tick, after moving down the timers of higher levels that are now in range.
+     */
+    private static void tick() {
+        currentTick++;
+        int index = (int) (currentTick & SLOT_MASK);
+
+        // Moves the next slot of each higher level down when the level below it wraps around.
+        for (int level = 1; level < LEVELS && index == 0; level++) {
+            index = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            cascade(level, index);
+        }
+
+        int slot = (int) (currentTick & SLOT_MASK);
+        TimerHandle timer;
+
+        // Timers added by callbacks are due on a later tick, so they land in other slots.
+        while ((timer = heads[0][slot]) != null) {
+            unlink(timer);
+
+            // Moves back timers that were placed early because of their length.
+            if (timer.deadline > currentTick) {
+                insert(timer);
+                continue;
+            }
+
+            dispatchedTimers++;
+
+            try {
+                timer.callback.run();
+            } catch (RuntimeException ex) {
+                MessageUtil.log(Level.WARNING, "A timer callback failed.");
+                ex.printStackTrace();
+            }
+
+            if (timer.period > 0 && !timer.cancelled) {
+                timer.deadline = currentTick + timer.period;
+                insert(timer);
+            }
+        }
+    }
+
+    /**
+     * Moves the timers of a slot to the lower levels.
+     *
+     * @param level The slot's level.
+     * @param slot  The slot.
+     */
+    private static void cascade(int level, int slot) {
+        TimerHandle timer;
+
+        while ((timer = heads[level][slot]) != null) {
+            unlink(timer);
+            insert(timer);
+        }
+    }
+
+    /**
+     * Places a timer in the slot its deadline falls in.
+     *
+     * @param timer The timer.
+     */
+    private static void insert(@NotNull TimerHandle timer) {
+        long delay = Math.min(Math.max(0L, timer.deadline - currentTick), MAX_DELAY);
+        long placement = currentTick + delay;
+        int level = 0;
+
+        while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+
+        int slot = (int) ((placement >>> (SLOT_BITS * level)) & SLOT_MASK);
+        TimerHandle tail = tails[level][slot];
+
+        timer.level = level;
+        timer.slot = slot;
+        timer.previous = tail;
+        timer.next = null;
+
+        if (tail == null) {
+            heads[level][slot] = timer;
+        } else {
+            tail.next = timer;
+        }
+
+        tails[level][slot] = timer;
+        pendingTimers++;
+    }
+
+    /**
+     * Removes a timer from its slot.
+     *
+     * @param timer The timer.
+     */
+    private static void unlink(@NotNull TimerHandle timer) {
+        int level = timer.level;
+        int slot = timer.slot;
+
+        if (timer.previous == null) {
+            heads[level][slot] = timer.next;
+        } else {
+            timer.previous.next = timer.next;
+        }
+
+        if (timer.next == null) {
+            tails[level][slot] = timer.previous;
+        } else {
+            timer.next.previous = timer.previous;
+        }
+
+        timer.level = -1;
+        timer.previous = null;
+        timer.next = null;
+        pendingTimers--;
+    }
+
+    /**
+     * Ensures the wheel is only used on the main thread.
+     *
+     * @throws IllegalStateException If called from another thread.
+     */
+    private static void checkThread() {
+        if (!Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("Timers must be used on the main thread.");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * KitPvP - a fully-featured core plugin for the KitPvP gamemode.
+ * Copyright (C) 2024 Foulest (https://github.com/Foulest)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.foulest.kitpvp.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests writing entries to the economy journal and reading them back.
+ *
+ * @author Foulest
+ */
+class EconomyJournalTest {
+
+    private static final UUID PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID OTHER_PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID FIRST_SAVE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID SECOND_SAVE = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    /**
+     * Checks that every appended entry is replayed.
+     */
+    @Test
+    void replaysAppendedEntries() {
+        ByteBuffer journal = createJournal(4);
+        EconomyJournal.writeEntry(journal, entryOffset(0), 1, PLAYER, FIRST_SAVE, 150, 50);
+        EconomyJournal.writeEntry(journal, entryOffset(1), 2, OTHER_PLAYER, FIRST_SAVE, 80, -20);
+        EconomyJournal.writeEntry(journal, entryOffset(2), 3, PLAYER, SECOND_SAVE, 175, 25);
+
+        Map<UUID, Integer> balances = new LinkedHashMap<>();
+        Map<UUID, Map<UUID, Integer>> deltas = new LinkedHashMap<>();
+
+        assertEquals(3, EconomyJournal.readEntries(journal, 0, balances, deltas));
+        assertEquals(175, balances.get(PLAYER));
+        assertEquals(80, balances.get(OTHER_PLAYER));
+        assertEquals(50, deltas.get(FIRST_SAVE).get(PLAYER));
+        assertEquals(-20, deltas.get(FIRST_SAVE).get(OTHER_PLAYER));
+        assertEquals(25, deltas.get(SECOND_SAVE).get(PLAYER));
+    }
+
+    /**
+     * Checks that entries up to the checkpoint are skipped.
+     */
+    @Test
+    void skipsCheckpointedEntries() {
+        ByteBuffer journal = createJournal(4);
+        EconomyJournal.writeEntry(journal, entryOffset(0), 1, PLAYER, FIRST_SAVE, 150, 50);
+        EconomyJournal.writeEntry(journal, entryOffset(1), 2, PLAYER, SECOND_SAVE, 175, 25);
+
+        Map<UUID, Integer> balances = new LinkedHashMap<>();
+        Map<UUID, Map<UUID, Integer>> deltas = new LinkedHashMap<>();
+
+        assertEquals(2, EconomyJournal.readEntries(journal, 1, balances, deltas));
+        assertEquals(175, balances.get(PLAYER));
+        assertFalse(deltas.containsKey(FIRST_SAVE));
+        assertEquals(25, deltas.get(SECOND_SAVE).get(PLAYER));
+    }
+
+    /**
+     * Checks that replay stops at a torn entry.
+     */
+    @Test
+    void stopsAtTornEntry() {
+        ByteBuffer journal = createJournal(4);
+        EconomyJournal.writeEntry(journal, entryOffset(0), 1, PLAYER, FIRST_SAVE, 150, 50);
+        EconomyJournal.writeEntry(journal, entryOffset(1), 2, PLAYER, SECOND_SAVE, 175, 25);
+
+        // Corrupts the second entry's balance.
+        journal.put(entryOffset(1) + 40, (byte) 0x7F);
+
+        Map<UUID, Integer> balances = new LinkedHashMap<>();
+        Map<UUID, Map<UUID, Integer>> deltas = new LinkedHashMap<>();
+
+        assertEquals(1, EconomyJournal.readEntries(journal, 0, balances, deltas));
+        assertEquals(150, balances.get(PLAYER));
+        assertFalse(deltas.containsKey(SECOND_SAVE));
+    }
+
+    /**
+     * Checks that an empty journal has nothing to replay.
+     */
+    @Test
+    void emptyJournalHasNoEntries() {
+        Map<UUID, Integer> balances = new LinkedHashMap<>();
+        Map<UUID, Map<UUID, Integer>> deltas = new LinkedHashMap<>();
+
+        assertEquals(0, EconomyJournal.readEntries(createJournal(4), 0, balances, deltas));
+        assertTrue(balances.isEmpty());
+    }
+
+    /**
+     * Creates an empty journal buffer.
+     *
+     * @param entries The number of entries it holds.
+     * @return The journal buffer.
+     */
+    private static ByteBuffer createJournal(int entries) {
+        return ByteBuffer.allocate(EconomyJournal.HEADER_SIZE + entries * EconomyJournal.ENTRY_SIZE);
+    }
+
+    /**
+     * Gets the offset of an entry in the journal.
+     *
+     * @param index The entry's index.
+     * @return The entry's offset.
+     */
+    private static int entryOffset(int index) {
+        return EconomyJournal.HEADER_SIZE + index * EconomyJournal.ENTRY_SIZE;
+    }
+}